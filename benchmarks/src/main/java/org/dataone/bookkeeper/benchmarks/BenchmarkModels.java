@@ -0,0 +1,249 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dataone.bookkeeper.api.Address;
+import org.dataone.bookkeeper.api.Customer;
+import org.dataone.bookkeeper.api.Feature;
+import org.dataone.bookkeeper.api.Order;
+import org.dataone.bookkeeper.api.OrderItem;
+import org.dataone.bookkeeper.api.OrderList;
+import org.dataone.bookkeeper.api.Product;
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.api.QuotaList;
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.api.UsageList;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Build synthetic model instances for the benchmarks
+ */
+public final class BenchmarkModels {
+
+    /* The subject used across the synthetic models */
+    public static final String SUBJECT = "http://orcid.org/0000-0002-8121-2341";
+
+    /* The timestamp used across the synthetic models (seconds since the epoch) */
+    public static final int TIMESTAMP = 1559768309;
+
+    private BenchmarkModels() {
+    }
+
+    /**
+     * Create a portal quota
+     * @param id the quota identifier
+     * @return quota the quota
+     */
+    public static Quota quota(int id) {
+        return new Quota(id, "quota", "portal", 3.0, 3.0, 0.0, "portal",
+            id, SUBJECT, "DataONE Order # " + id);
+    }
+
+    /**
+     * Create a storage usage
+     * @param id the usage identifier
+     * @return usage the usage
+     */
+    public static Usage usage(int id) {
+        return new Usage(id, "usage", id % 100, "urn:uuid:00000000-0000-0000-0000-" +
+            String.format("%012d", id), 1024.0 * (id % 7 + 1), "active", "urn:node:testNode");
+    }
+
+    /**
+     * Create a feature, with a quota for even numbered features
+     * @param index the feature index
+     * @return feature the feature
+     */
+    public static Feature feature(int index) {
+        return new Feature("feature_" + index, "Feature " + index,
+            "A synthetic feature used for benchmarking, number " + index,
+            index % 2 == 0 ? quota(index) : null);
+    }
+
+    /**
+     * Create a product metadata object with the given number of features
+     * @param featureCount the number of features
+     * @return metadata the product metadata
+     */
+    public static ObjectNode productMetadata(int featureCount) {
+        JsonNodeFactory nodeFactory = BookkeeperCodecs.nodeFactory();
+        ObjectNode metadata = nodeFactory.objectNode();
+        ArrayNode features = metadata.putArray("features");
+        for (int i = 0; i < featureCount; i++) {
+            features.add(nodeFactory.pojoNode(feature(i)));
+        }
+        return (ObjectNode) toTree(metadata);
+    }
+
+    /**
+     * Create a product with the given number of features in its metadata
+     * @param id the product identifier
+     * @param featureCount the number of features
+     * @return product the product
+     */
+    public static Product product(int id, int featureCount) {
+        return new Product(id, "product", true, 180000, "Small institutions or groups", "USD",
+            TIMESTAMP, "Create multiple portals for your work and projects.", "year",
+            "Organization", "DataONE Membership Plan - Organization", "service",
+            "membership", "https://dataone.org/memberships/organization",
+            productMetadata(featureCount));
+    }
+
+    /**
+     * Create a customer
+     * @param id the customer identifier
+     * @return customer the customer
+     */
+    public static Customer customer(int id) {
+        JsonNodeFactory nodeFactory = BookkeeperCodecs.nodeFactory();
+        Address address = new Address("735 State Street", "Suite 300", "Santa Barbara",
+            "CA", "93106", "USA");
+        ObjectNode discount = nodeFactory.objectNode();
+        discount.put("percentOff", 10);
+        return new Customer(id, "customer", SUBJECT, 0, address, TIMESTAMP, "USD", false,
+            "A synthetic customer", discount, "customer" + id + "@example.org", "DO" + id,
+            nodeFactory.objectNode(), nodeFactory.objectNode(), "Christopher", "Jones",
+            "805-893-2500");
+    }
+
+    /**
+     * Create an order with the given number of items
+     * @param id the order identifier
+     * @param itemCount the number of order items
+     * @return order the order
+     */
+    public static Order order(int id, int itemCount) {
+        JsonNodeFactory nodeFactory = BookkeeperCodecs.nodeFactory();
+        List<OrderItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new OrderItem("order_item", 50000, "USD",
+                "DataONE Membership item " + i, 1000 + i, 1, "sku"));
+        }
+        ObjectNode charge = nodeFactory.objectNode();
+        charge.put("id", id);
+        charge.put("object", "charge");
+        charge.put("amount", 50000 * itemCount);
+        charge.put("currency", "USD");
+        charge.put("paid", true);
+        charge.put("status", "succeeded");
+        ObjectNode statusTransitions = nodeFactory.objectNode();
+        statusTransitions.put("created", TIMESTAMP);
+        statusTransitions.put("paid", TIMESTAMP);
+        return new Order(id, "order", 50000 * itemCount, 0, charge, TIMESTAMP, "USD", SUBJECT,
+            id, "cjones@nceas.ucsb.edu", items, nodeFactory.objectNode(), "DataONE Order # " + id,
+            "paid", statusTransitions, TIMESTAMP, "series-" + id, TIMESTAMP,
+            TIMESTAMP + 365 * 24 * 3600, null);
+    }
+
+    /**
+     * Create a usage list of the given size
+     * @param size the number of usages
+     * @return usageList the usage list
+     */
+    public static UsageList usageList(int size) {
+        List<Usage> usages = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            usages.add(usage(i));
+        }
+        UsageList usageList = new UsageList(usages);
+        usageList.setStart(0);
+        usageList.setCount(size);
+        usageList.setTotal(size);
+        return usageList;
+    }
+
+    /**
+     * Create a quota list of the given size
+     * @param size the number of quotas
+     * @return quotaList the quota list
+     */
+    public static QuotaList quotaList(int size) {
+        List<Quota> quotas = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            quotas.add(quota(i));
+        }
+        QuotaList quotaList = new QuotaList(quotas);
+        quotaList.setStart(0);
+        quotaList.setCount(size);
+        quotaList.setTotal(size);
+        return quotaList;
+    }
+
+    /**
+     * Create an order list of the given size
+     * @param size the number of orders
+     * @param itemCount the number of items per order
+     * @return orderList the order list
+     */
+    public static OrderList orderList(int size, int itemCount) {
+        List<Order> orders = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            orders.add(order(i, itemCount));
+        }
+        OrderList orderList = new OrderList(orders);
+        orderList.setStart(0);
+        orderList.setCount(size);
+        orderList.setTotal(size);
+        return orderList;
+    }
+
+    /**
+     * Serialize a value to JSON, failing the benchmark setup on error
+     * @param value the value to serialize
+     * @return json the JSON string
+     */
+    public static String json(Object value) {
+        try {
+            return BookkeeperCodecs.toJSON(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Deserialize a value from JSON, failing the benchmark setup on error
+     * @param json the JSON string
+     * @param type the value type
+     * @param <T> the value type
+     * @return value the deserialized value
+     */
+    public static <T> T read(String json, Class<T> type) {
+        try {
+            return BookkeeperCodecs.reader(type).readValue(json);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* Convert a value to a plain JSON tree */
+    private static JsonNode toTree(Object value) {
+        return read(json(value), JsonNode.class);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the per-call cost of a new ObjectMapper with the shared BookkeeperCodecs registry
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+    /* The metadata tree to serialize */
+    private ObjectNode metadata;
+
+    /* The quota JSON to deserialize */
+    private String quotaJSON;
+
+    @Setup
+    public void setup() throws IOException {
+        metadata = BenchmarkModels.productMetadata(6);
+        quotaJSON = BookkeeperCodecs.toJSON(BenchmarkModels.quota(1));
+    }
+
+    @Benchmark
+    public String writeTreeNewMapper() throws IOException {
+        return new ObjectMapper().writeValueAsString(metadata);
+    }
+
+    @Benchmark
+    public String writeTreeSharedCodecs() throws IOException {
+        return BookkeeperCodecs.toJSON(metadata);
+    }
+
+    @Benchmark
+    public Quota readQuotaNewMapper() throws IOException {
+        return new ObjectMapper().readValue(quotaJSON, Quota.class);
+    }
+
+    @Benchmark
+    public Quota readQuotaSharedCodecs() throws IOException {
+        return BookkeeperCodecs.reader(Quota.class).readValue(quotaJSON);
+    }
+}
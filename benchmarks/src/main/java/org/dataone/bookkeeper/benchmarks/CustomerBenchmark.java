@@ -0,0 +1,115 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.Customer;
+import org.dataone.bookkeeper.api.Violation;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the Customer model serialization, JSON helpers, equality, and validation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerBenchmark {
+
+    /* The customer under test */
+    private Customer customer;
+
+    /* An equal, distinct copy of the customer */
+    private Customer copy;
+
+    /* The customer as JSON */
+    private String json;
+
+    @Setup
+    public void setup() {
+        customer = BenchmarkModels.customer(1);
+        json = BenchmarkModels.json(customer);
+        copy = BenchmarkModels.read(json, Customer.class);
+    }
+
+    @Benchmark
+    public String serialize() throws IOException {
+        return BookkeeperCodecs.writer(Customer.class).writeValueAsString(customer);
+    }
+
+    @Benchmark
+    public Customer deserialize() throws IOException {
+        return BookkeeperCodecs.reader(Customer.class).readValue(json);
+    }
+
+    @Benchmark
+    public String addressJSON() throws IOException {
+        return customer.getAddressJSON();
+    }
+
+    @Benchmark
+    public String discountJSON() throws IOException {
+        return customer.getDiscountJSON();
+    }
+
+    @Benchmark
+    public String metadataJSON() throws IOException {
+        return customer.getMetadataJSON();
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        return customer.equals(copy);
+    }
+
+    @Benchmark
+    public int hash() {
+        return customer.hashCode();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Customer>> validate(ValidatorState state) {
+        return state.validator.validate(customer);
+    }
+
+    @Benchmark
+    public List<Violation> validateDirect() {
+        return customer.validate();
+    }
+}
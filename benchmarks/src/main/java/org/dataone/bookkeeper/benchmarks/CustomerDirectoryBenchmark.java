@@ -0,0 +1,112 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.Customer;
+import org.dataone.bookkeeper.index.CustomerDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure customer lookups in the directory against a synchronized access-ordered
+ * LinkedHashMap, the usual bounded LRU map
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerDirectoryBenchmark {
+
+    @Param({"100000"})
+    private int size;
+
+    /* The customer directory */
+    private CustomerDirectory directory;
+
+    /* The LRU map baseline */
+    private Map<String, Customer> lru;
+
+    /* The subjects and emails to look up, in random order */
+    private String[] subjects;
+    private String[] emails;
+
+    /* The next lookup */
+    private int next;
+
+    @Setup
+    public void setup() {
+        directory = new CustomerDirectory(size, 1, TimeUnit.HOURS);
+        final int capacity = size;
+        lru = Collections.synchronizedMap(new LinkedHashMap<String, Customer>(size * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Customer> eldest) {
+                return size() > capacity;
+            }
+        });
+        subjects = new String[size];
+        emails = new String[size];
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            Customer customer = BenchmarkModels.customer(i);
+            customer.setSubject("http://orcid.org/0000-0000-" + String.format("%04d-%04d", i / 10000, i % 10000));
+            directory.put(customer);
+            lru.put(customer.getSubject(), customer);
+            int slot = random.nextInt(i + 1);
+            subjects[i] = subjects[slot];
+            emails[i] = emails[slot];
+            subjects[slot] = customer.getSubject();
+            emails[slot] = customer.getEmail().toUpperCase();
+        }
+    }
+
+    @Benchmark
+    public Customer directoryBySubject() {
+        return directory.getBySubject(subjects[next++ % size]);
+    }
+
+    @Benchmark
+    public Customer directoryByEmail() {
+        return directory.getByEmail(emails[next++ % size]);
+    }
+
+    @Benchmark
+    public Customer lruBySubject() {
+        return lru.get(subjects[next++ % size]);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.dataone.bookkeeper.api.Feature;
+import org.dataone.bookkeeper.api.Order;
+import org.dataone.bookkeeper.api.OrderItem;
+import org.dataone.bookkeeper.api.Product;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.dataone.bookkeeper.entitlement.EntitlementResolver;
+import org.dataone.bookkeeper.entitlement.FeatureCatalog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure checking a feature of a subject with a three item order, through the
+ * entitlement resolver cache, through resolving without the cache, and by parsing the
+ * product metadata features on every check
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntitlementBenchmark {
+
+    /* The reader of feature metadata */
+    private static final ObjectReader FEATURE_READER = BookkeeperCodecs.reader(Feature.class);
+
+    /* The products by id, ten features each */
+    private Map<Integer, Product> products;
+
+    /* The subject orders */
+    private List<Order> orders;
+
+    /* The resolver, caching entitlements */
+    private EntitlementResolver resolver;
+
+    @Setup
+    public void setup() throws IOException {
+        Order order = BenchmarkModels.order(1, 3);
+        order.setEndDate(null);
+        orders = Collections.singletonList(order);
+        products = new HashMap<>();
+        for (OrderItem item : order.getItems()) {
+            products.put(item.getParent(), BenchmarkModels.product(item.getParent(), 10));
+        }
+        resolver = new EntitlementResolver(FeatureCatalog.of(new ArrayList<>(products.values())),
+            subject -> orders);
+    }
+
+    @Benchmark
+    public boolean cached() {
+        return resolver.hasFeature(BenchmarkModels.SUBJECT, "feature_9");
+    }
+
+    @Benchmark
+    public boolean resolved() {
+        resolver.invalidate(BenchmarkModels.SUBJECT);
+        return resolver.hasFeature(BenchmarkModels.SUBJECT, "feature_9");
+    }
+
+    @Benchmark
+    public boolean parsed() throws IOException {
+        for (OrderItem item : orders.get(0).getItems()) {
+            for (JsonNode node : products.get(item.getParent()).getMetadata().get("features")) {
+                Feature feature = FEATURE_READER.readValue(node);
+                if ( "feature_9".equals(feature.getName()) ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
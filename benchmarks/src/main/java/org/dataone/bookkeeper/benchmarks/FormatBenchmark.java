@@ -0,0 +1,92 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.codec.BookkeeperFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure encoding and decoding 1000-element lists as JSON, Smile and CBOR. The encoded
+ * payload size of each format is printed during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatBenchmark {
+
+    /* The number of list elements */
+    private static final int SIZE = 1000;
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    public BookkeeperFormat format;
+
+    @Param({"orders", "usages", "quotas"})
+    public String payload;
+
+    /* The list to encode */
+    private Object list;
+
+    /* The encoded list */
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        switch (payload) {
+            case "orders":
+                list = BenchmarkModels.orderList(SIZE, 2);
+                break;
+            case "usages":
+                list = BenchmarkModels.usageList(SIZE);
+                break;
+            default:
+                list = BenchmarkModels.quotaList(SIZE);
+        }
+        encoded = format.write(list);
+        System.out.println(format + " " + payload + " payload: " + encoded.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return format.write(list);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return format.read(list.getClass(), encoded);
+    }
+}
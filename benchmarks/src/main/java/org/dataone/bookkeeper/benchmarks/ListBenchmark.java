@@ -0,0 +1,134 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.OrderList;
+import org.dataone.bookkeeper.api.QuotaList;
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.api.UsageList;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the list wrappers, parameterized by the number of elements per page
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListBenchmark {
+
+    /* The number of elements in each list */
+    @Param({"10", "1000", "10000"})
+    public int size;
+
+    /* The usage list under test */
+    private UsageList usageList;
+
+    /* The usage list as JSON */
+    private String usageListJSON;
+
+    /* The quota list under test */
+    private QuotaList quotaList;
+
+    /* The quota list as JSON */
+    private String quotaListJSON;
+
+    /* The order list under test, with a single item per order */
+    private OrderList orderList;
+
+    /* The order list as JSON */
+    private String orderListJSON;
+
+    @Setup
+    public void setup() {
+        usageList = BenchmarkModels.usageList(size);
+        usageListJSON = BenchmarkModels.json(usageList);
+        quotaList = BenchmarkModels.quotaList(size);
+        quotaListJSON = BenchmarkModels.json(quotaList);
+        orderList = BenchmarkModels.orderList(size, 1);
+        orderListJSON = BenchmarkModels.json(orderList);
+    }
+
+    @Benchmark
+    public String serializeUsageList() throws IOException {
+        return BookkeeperCodecs.writer(UsageList.class).writeValueAsString(usageList);
+    }
+
+    @Benchmark
+    public UsageList deserializeUsageList() throws IOException {
+        return BookkeeperCodecs.reader(UsageList.class).readValue(usageListJSON);
+    }
+
+    @Benchmark
+    public String serializeQuotaList() throws IOException {
+        return BookkeeperCodecs.writer(QuotaList.class).writeValueAsString(quotaList);
+    }
+
+    @Benchmark
+    public QuotaList deserializeQuotaList() throws IOException {
+        return BookkeeperCodecs.reader(QuotaList.class).readValue(quotaListJSON);
+    }
+
+    @Benchmark
+    public String serializeOrderList() throws IOException {
+        return BookkeeperCodecs.writer(OrderList.class).writeValueAsString(orderList);
+    }
+
+    @Benchmark
+    public OrderList deserializeOrderList() throws IOException {
+        return BookkeeperCodecs.reader(OrderList.class).readValue(orderListJSON);
+    }
+
+    @Benchmark
+    public int validateUsageList(ValidatorState state) {
+        int violations = 0;
+        for (Usage usage : usageList.getUsages()) {
+            violations += state.validator.validate(usage).size();
+        }
+        return violations;
+    }
+
+    @Benchmark
+    public int validateUsageListDirect() {
+        int violations = 0;
+        for (Usage usage : usageList.getUsages()) {
+            violations += usage.validate().size();
+        }
+        return violations;
+    }
+}
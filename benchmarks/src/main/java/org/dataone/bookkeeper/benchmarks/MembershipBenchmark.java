@@ -0,0 +1,132 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.Customer;
+import org.dataone.service.types.v1.Group;
+import org.dataone.service.types.v1.Person;
+import org.dataone.service.types.v1.SubjectInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.security.auth.Subject;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure Customer.implies() against a subject info with a binary tree of nested groups
+ * and as many other people, with the memberships precomputed and with them recomputed
+ * for every check, as walking the subject info per request would
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MembershipBenchmark {
+
+    @Param({"100", "10000"})
+    private int groupCount;
+
+    /* The customer, a member of ten leaf groups */
+    private Customer customer;
+
+    /* The customer subject info */
+    private SubjectInfo subjectInfo;
+
+    /* A subject naming the root group, which the customer belongs to through nesting */
+    private Subject rootGroup;
+
+    /* A subject naming people and groups the customer is not */
+    private Subject strangers;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        subjectInfo = new SubjectInfo();
+        Group[] groups = new Group[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            groups[i] = new Group();
+            groups[i].setSubject(subject("CN=group" + i + ",DC=dataone,DC=org"));
+            if ( i > 0 ) {
+                groups[(i - 1) / 2].addHasMember(groups[i].getSubject());
+            }
+            subjectInfo.addGroup(groups[i]);
+        }
+        customer = BenchmarkModels.customer(1);
+        for (int i = 0; i < groupCount; i++) {
+            Person person = new Person();
+            person.setSubject(subject(i == 0 ? customer.getSubject() :
+                "http://orcid.org/0000-0000-0000-" + i));
+            int memberships = i == 0 ? 10 : 2;
+            for (int j = 0; j < memberships; j++) {
+                Group leaf = groups[groupCount / 2 + random.nextInt(groupCount - groupCount / 2)];
+                person.addIsMemberOf(leaf.getSubject());
+            }
+            subjectInfo.addPerson(person);
+        }
+        customer.setSubjectInfo(subjectInfo);
+        rootGroup = principals("CN=group0,DC=dataone,DC=org");
+        strangers = principals("http://orcid.org/0000-0000-0000-1", "CN=unknown,DC=dataone,DC=org",
+            "CN=admins,DC=dataone,DC=org");
+    }
+
+    @Benchmark
+    public boolean impliesGroup() {
+        return customer.implies(rootGroup);
+    }
+
+    @Benchmark
+    public boolean impliesNone() {
+        return customer.implies(strangers);
+    }
+
+    @Benchmark
+    public boolean impliesGroupRecomputed() {
+        customer.setSubjectInfo(subjectInfo);
+        return customer.implies(rootGroup);
+    }
+
+    private static Subject principals(String... names) {
+        Subject subject = new Subject();
+        for (String name : names) {
+            subject.getPrincipals().add(() -> name);
+        }
+        return subject;
+    }
+
+    private static org.dataone.service.types.v1.Subject subject(String value) {
+        org.dataone.service.types.v1.Subject subject = new org.dataone.service.types.v1.Subject();
+        subject.setValue(value);
+        return subject;
+    }
+}
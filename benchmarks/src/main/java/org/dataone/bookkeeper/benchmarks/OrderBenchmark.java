@@ -0,0 +1,171 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.ImmutableOrder;
+import org.dataone.bookkeeper.api.Order;
+import org.dataone.bookkeeper.api.OrderStatus;
+import org.dataone.bookkeeper.api.Violation;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the Order model serialization, JSON helpers, equality, and validation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderBenchmark {
+
+    /* The number of items per order */
+    @Param({"1", "10", "100"})
+    public int itemCount;
+
+    /* The order under test */
+    private Order order;
+
+    /* An equal, distinct copy of the order */
+    private Order copy;
+
+    /* The order as JSON */
+    private String json;
+
+    /* A snapshot of the order */
+    private ImmutableOrder snapshot;
+
+    /* A snapshot of the copy */
+    private ImmutableOrder snapshotCopy;
+
+    /* A snapshot of a later version of the order */
+    private ImmutableOrder updatedSnapshot;
+
+    @Setup
+    public void setup() {
+        order = BenchmarkModels.order(1, itemCount);
+        json = BenchmarkModels.json(order);
+        copy = BenchmarkModels.read(json, Order.class);
+        snapshot = order.freeze();
+        snapshotCopy = copy.freeze();
+        Order updated = BenchmarkModels.read(json, Order.class);
+        updated.setUpdated(updated.getUpdated() + 1);
+        updatedSnapshot = updated.freeze();
+    }
+
+    @Benchmark
+    public String serialize() throws IOException {
+        return BookkeeperCodecs.writer(Order.class).writeValueAsString(order);
+    }
+
+    @Benchmark
+    public Order deserialize() throws IOException {
+        return BookkeeperCodecs.reader(Order.class).readValue(json);
+    }
+
+    @Benchmark
+    public String itemsJSON() throws IOException {
+        return order.getItemsJSON();
+    }
+
+    @Benchmark
+    public String chargeJSON() throws IOException {
+        return order.getChargeJSON();
+    }
+
+    @Benchmark
+    public String metadataJSON() throws IOException {
+        return order.getMetadataJSON();
+    }
+
+    @Benchmark
+    public String statusTransitionsJSON() throws IOException {
+        return order.getStatusTransitionsJSON();
+    }
+
+    @Benchmark
+    public long totalAmount() {
+        return order.getTotalAmount();
+    }
+
+    @Benchmark
+    public int paidTimestamp() {
+        return order.getStatusHistory().getTimestamp(OrderStatus.PAID);
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        return order.equals(copy);
+    }
+
+    @Benchmark
+    public int hash() {
+        return order.hashCode();
+    }
+
+    @Benchmark
+    public ImmutableOrder freeze() {
+        return order.freeze();
+    }
+
+    @Benchmark
+    public boolean equalsSnapshotCopy() {
+        return snapshot.equals(snapshotCopy);
+    }
+
+    @Benchmark
+    public boolean equalsUpdatedSnapshot() {
+        return snapshot.equals(updatedSnapshot);
+    }
+
+    @Benchmark
+    public int hashSnapshot() {
+        return snapshot.hashCode();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Order>> validate(ValidatorState state) {
+        return state.validator.validate(order);
+    }
+
+    @Benchmark
+    public List<Violation> validateDirect() {
+        return order.validate();
+    }
+}
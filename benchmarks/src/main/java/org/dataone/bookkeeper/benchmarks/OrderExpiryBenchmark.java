@@ -0,0 +1,107 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.Order;
+import org.dataone.bookkeeper.index.OrderExpiryIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure finding the orders expiring in the next week, by index and by a full scan
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderExpiryBenchmark {
+
+    /* One week in seconds */
+    private static final int WEEK = 7 * 24 * 3600;
+
+    @Param({"10000", "500000"})
+    public int orderCount;
+
+    /* The orders, with end dates spread over three years */
+    private List<Order> orders;
+
+    /* The index of the orders */
+    private OrderExpiryIndex index;
+
+    /* The start of the queried week */
+    private int now;
+
+    @Setup
+    public void setup() {
+        orders = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            Order order = BenchmarkModels.order(i, 1);
+            order.setEndDate(BenchmarkModels.TIMESTAMP + (int) ((long) i * 3 * 52 * WEEK / orderCount));
+            orders.add(order);
+        }
+        index = new OrderExpiryIndex(orders);
+        now = BenchmarkModels.TIMESTAMP + 52 * WEEK;
+    }
+
+    @Benchmark
+    public int expiringIndex() {
+        int count = 0;
+        for (Order order : index.getExpiring(now, now + WEEK)) {
+            count += order.getId();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int expiringScan() {
+        int count = 0;
+        for (Order order : orders) {
+            Integer endDate = order.getEndDate();
+            if ( endDate != null && endDate >= now && endDate < now + WEEK ) {
+                count += order.getId();
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public boolean update() {
+        Order order = orders.get(orderCount / 2);
+        order.setEndDate(order.getEndDate() ^ 1);
+        return index.put(order);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.Product;
+import org.dataone.bookkeeper.api.Violation;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the Product model serialization, JSON helpers, equality, and validation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductBenchmark {
+
+    /* The number of features in the product metadata */
+    @Param({"1", "6", "50"})
+    public int featureCount;
+
+    /* The product under test */
+    private Product product;
+
+    /* An equal, distinct copy of the product */
+    private Product copy;
+
+    /* The product as JSON */
+    private String json;
+
+    @Setup
+    public void setup() {
+        product = BenchmarkModels.product(1, featureCount);
+        json = BenchmarkModels.json(product);
+        copy = BenchmarkModels.read(json, Product.class);
+    }
+
+    @Benchmark
+    public String serialize() throws IOException {
+        return BookkeeperCodecs.writer(Product.class).writeValueAsString(product);
+    }
+
+    @Benchmark
+    public Product deserialize() throws IOException {
+        return BookkeeperCodecs.reader(Product.class).readValue(json);
+    }
+
+    @Benchmark
+    public String metadataJSON() throws IOException {
+        return product.getMetadataJSON();
+    }
+
+    @Benchmark
+    public String createdTimestamp() {
+        return product.getCreatedTimestamp();
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        return product.equals(copy);
+    }
+
+    @Benchmark
+    public int hash() {
+        return product.hashCode();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Product>> validate(ValidatorState state) {
+        return state.validator.validate(product);
+    }
+
+    @Benchmark
+    public List<Violation> validateDirect() {
+        return product.validate();
+    }
+}
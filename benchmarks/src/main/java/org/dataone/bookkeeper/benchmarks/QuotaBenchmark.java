@@ -0,0 +1,134 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.ImmutableQuota;
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.api.Violation;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the Quota model serialization, JSON constructors, equality, and validation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuotaBenchmark {
+
+    /* The quota under test */
+    private Quota quota;
+
+    /* An equal, distinct copy of the quota */
+    private Quota copy;
+
+    /* The quota as JSON */
+    private String json;
+
+    /* The quota as UTF-8 JSON bytes */
+    private byte[] jsonBytes;
+
+    /* A snapshot of the quota */
+    private ImmutableQuota snapshot;
+
+    /* A snapshot of the copy */
+    private ImmutableQuota snapshotCopy;
+
+    @Setup
+    public void setup() {
+        quota = BenchmarkModels.quota(1);
+        json = BenchmarkModels.json(quota);
+        jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        copy = BenchmarkModels.read(json, Quota.class);
+        snapshot = quota.freeze();
+        snapshotCopy = copy.freeze();
+    }
+
+    @Benchmark
+    public String serialize() throws IOException {
+        return BookkeeperCodecs.writer(Quota.class).writeValueAsString(quota);
+    }
+
+    @Benchmark
+    public Quota deserialize() throws IOException {
+        return BookkeeperCodecs.reader(Quota.class).readValue(json);
+    }
+
+    @Benchmark
+    public Quota stringConstructor() throws IOException {
+        return new Quota(json);
+    }
+
+    @Benchmark
+    public Quota fromJsonBytes() throws IOException {
+        return Quota.fromJson(jsonBytes);
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        return quota.equals(copy);
+    }
+
+    @Benchmark
+    public int hash() {
+        return quota.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsSnapshotCopy() {
+        return snapshot.equals(snapshotCopy);
+    }
+
+    @Benchmark
+    public int hashSnapshot() {
+        return snapshot.hashCode();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Quota>> validate(ValidatorState state) {
+        return state.validator.validate(quota);
+    }
+
+    @Benchmark
+    public List<Violation> validateDirect() {
+        return quota.validate();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.quota.Admission;
+import org.dataone.bookkeeper.quota.QuotaCheck;
+import org.dataone.bookkeeper.quota.QuotaLedger;
+import org.dataone.bookkeeper.quota.QuotaView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the cost of a quota admission check, which should not allocate
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuotaCheckBenchmark {
+
+    /* The quota under test */
+    private Quota quota;
+
+    /* The primitive view of the quota */
+    private QuotaView view;
+
+    /* A ledger holding the quota */
+    private QuotaLedger ledger;
+
+    /* The quantity requested by each check */
+    private double requestedQuantity = 1.5;
+
+    @Setup
+    public void setup() {
+        quota = BenchmarkModels.quota(1);
+        view = QuotaView.of(quota);
+        ledger = new QuotaLedger();
+        ledger.register(quota);
+    }
+
+    @Benchmark
+    public Admission admitQuota() {
+        return QuotaCheck.admit(quota, requestedQuantity);
+    }
+
+    @Benchmark
+    public Admission admitView() {
+        return view.admit(requestedQuantity);
+    }
+
+    @Benchmark
+    public Admission admitLedger() {
+        return ledger.admit(1, requestedQuantity);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.quota.QuotaLedger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure concurrent usage update throughput of the quota ledger across all cores
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class QuotaLedgerBenchmark {
+
+    /* The number of quotas the updates are spread over; 1 measures a single hot quota */
+    @Param({"1", "1000"})
+    public int quotaCount;
+
+    /* The ledger shared by all threads */
+    private QuotaLedger ledger;
+
+    /* The usages applied by the benchmark */
+    private Usage[] usages;
+
+    @Setup
+    public void setup() {
+        ledger = new QuotaLedger();
+        for (int i = 0; i < quotaCount; i++) {
+            ledger.register(BenchmarkModels.quota(i));
+        }
+        usages = new Usage[1024];
+        for (int i = 0; i < usages.length; i++) {
+            usages[i] = new Usage(i, "usage", i % quotaCount, "urn:uuid:" + i, 1.0,
+                "active", "urn:node:testNode");
+        }
+    }
+
+    @Benchmark
+    public boolean record() {
+        return ledger.record(ThreadLocalRandom.current().nextInt(quotaCount), 1.0);
+    }
+
+    @Benchmark
+    public boolean apply() {
+        return ledger.apply(usages[ThreadLocalRandom.current().nextInt(usages.length)]);
+    }
+
+    @Benchmark
+    public double totalUsage() {
+        return ledger.getTotalUsage(ThreadLocalRandom.current().nextInt(quotaCount));
+    }
+}
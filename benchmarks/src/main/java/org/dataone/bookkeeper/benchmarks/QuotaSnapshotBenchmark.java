@@ -0,0 +1,122 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.quota.QuotaLedger;
+import org.dataone.bookkeeper.quota.QuotaSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure warm starting a quota ledger from a snapshot file against rebuilding it by
+ * applying every usage, with 100 usages per quota
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuotaSnapshotBenchmark {
+
+    @Param({"10000"})
+    private int quotaCount;
+
+    /* The registered quotas, without usage */
+    private List<Quota> quotas;
+
+    /* The usage history */
+    private List<Usage> usages;
+
+    /* The snapshot of the ledger after the usage history */
+    private QuotaSnapshot snapshot;
+
+    /* The snapshot file */
+    private Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        quotas = new ArrayList<>(quotaCount);
+        usages = new ArrayList<>(quotaCount * 100);
+        for (int i = 0; i < quotaCount; i++) {
+            quotas.add(new Quota(i, "quota", "storage", 1000.0, 2000.0, 0.0, "megabyte",
+                i, "http://orcid.org/0000-0000-0000-" + i, null));
+            for (int j = 0; j < 100; j++) {
+                usages.add(new Usage(null, "usage", i, "urn:uuid:" + i + "-" + j, 1.0,
+                    "active", "urn:node:testNode"));
+            }
+        }
+        snapshot = QuotaSnapshot.of(rebuild(), usages.size());
+        file = Files.createTempFile("quotas", ".snapshot");
+        snapshot.write(file);
+        System.out.println("snapshot: " + Files.size(file) + " bytes");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public QuotaLedger rebuild() {
+        QuotaLedger ledger = new QuotaLedger();
+        for (Quota quota : quotas) {
+            ledger.register(quota);
+        }
+        for (Usage usage : usages) {
+            ledger.apply(usage);
+        }
+        return ledger;
+    }
+
+    @Benchmark
+    public QuotaLedger restore() throws IOException {
+        QuotaLedger ledger = new QuotaLedger();
+        QuotaSnapshot.read(file).restore(ledger);
+        return ledger;
+    }
+
+    @Benchmark
+    public QuotaSnapshot write() throws IOException {
+        snapshot.write(file);
+        return snapshot;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.Order;
+import org.dataone.bookkeeper.api.OrderList;
+import org.dataone.bookkeeper.index.SeriesIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure resolving the current order of a series in a synthetic dataset of a million
+ * orders (250,000 series of four yearly renewals), by index and by sorting the series
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class SeriesIndexBenchmark {
+
+    /* The number of series */
+    private static final int SERIES_COUNT = 250000;
+
+    /* The number of renewals per series */
+    private static final int RENEWALS = 4;
+
+    /* One year in seconds */
+    private static final int YEAR = 365 * 24 * 3600;
+
+    /* The synthetic orders */
+    private OrderList orderList;
+
+    /* The unsorted orders of each series, as loaded */
+    private Map<String, List<Order>> ordersBySeries;
+
+    /* The series ids */
+    private String[] seriesIds;
+
+    /* The index of the orders */
+    private SeriesIndex index;
+
+    /* The lookup time, in the third year */
+    private long now;
+
+    /* The position of the next lookup */
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<Order> orders = new ArrayList<>(SERIES_COUNT * RENEWALS);
+        ordersBySeries = new HashMap<>();
+        seriesIds = new String[SERIES_COUNT];
+        for (int series = 0; series < SERIES_COUNT; series++) {
+            seriesIds[series] = "urn:uuid:series-" + series;
+            // Add the renewals newest first, as a store returning them by id descending would
+            for (int renewal = RENEWALS - 1; renewal >= 0; renewal--) {
+                Order order = new Order();
+                order.setId(series * RENEWALS + renewal);
+                order.setObject("order");
+                order.setSeriesId(seriesIds[series]);
+                order.setStartDate(BenchmarkModels.TIMESTAMP + renewal * YEAR);
+                order.setEndDate(BenchmarkModels.TIMESTAMP + (renewal + 1) * YEAR);
+                orders.add(order);
+                ordersBySeries.computeIfAbsent(seriesIds[series], key -> new ArrayList<>())
+                    .add(order);
+            }
+        }
+        orderList = new OrderList(orders);
+        index = new SeriesIndex(orderList);
+        now = BenchmarkModels.TIMESTAMP + 2L * YEAR + YEAR / 2;
+    }
+
+    private String nextSeries() {
+        int position = next;
+        next = position + 1 == SERIES_COUNT ? 0 : position + 1;
+        return seriesIds[position];
+    }
+
+    @Benchmark
+    public Order currentIndex() {
+        return index.getCurrent(nextSeries(), now);
+    }
+
+    @Benchmark
+    public Order currentSort() {
+        List<Order> orders = new ArrayList<>(ordersBySeries.get(nextSeries()));
+        orders.sort(Comparator.comparing(Order::getStartDate));
+        Order current = null;
+        for (Order order : orders) {
+            if ( order.getStartDate() <= now ) {
+                current = order;
+            }
+        }
+        return current != null && current.getEndDate() > now ? current : null;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SeriesIndex rebuild() {
+        return new SeriesIndex(orderList);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import org.dataone.bookkeeper.api.UsageList;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.dataone.bookkeeper.codec.CanonicalStringDeserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark reading usages with pooled low-cardinality strings against plain strings,
+ * and report the heap retained by the usages read each way
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringPoolBenchmark {
+
+    /* The number of usages in the list */
+    @Param({"10000"})
+    public int size;
+
+    /* The number of lists retained when measuring the heap */
+    private static final int RETAINED_LISTS = 20;
+
+    /* A reader that ignores the canonical string deserializer */
+    private static final ObjectReader PLAIN_READER = new ObjectMapper()
+        .setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+            @Override
+            public Object findDeserializer(Annotated annotated) {
+                Object deserializer = super.findDeserializer(annotated);
+                return deserializer == CanonicalStringDeserializer.class ? null : deserializer;
+            }
+        })
+        .readerFor(UsageList.class);
+
+    /* The usage list as JSON */
+    private String json;
+
+    @Setup
+    public void setup() throws IOException {
+        json = BenchmarkModels.json(BenchmarkModels.usageList(size));
+        long pooled = retainedBytes(BookkeeperCodecs.reader(UsageList.class));
+        long plain = retainedBytes(PLAIN_READER);
+        int usages = RETAINED_LISTS * size;
+        System.out.println(usages + " usages retain pooled: " + pooled / usages +
+            " bytes/usage, plain: " + plain / usages + " bytes/usage");
+    }
+
+    @Benchmark
+    public UsageList deserializePooled() throws IOException {
+        return BookkeeperCodecs.reader(UsageList.class).readValue(json);
+    }
+
+    @Benchmark
+    public UsageList deserializePlain() throws IOException {
+        return PLAIN_READER.readValue(json);
+    }
+
+    /**
+     * Measure the heap used by lists read with the reader, once garbage is collected
+     */
+    private long retainedBytes(ObjectReader reader) throws IOException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        UsageList[] lists = new UsageList[RETAINED_LISTS];
+        collect(memory);
+        long before = memory.getHeapMemoryUsage().getUsed();
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = reader.readValue(json);
+        }
+        collect(memory);
+        long after = memory.getHeapMemoryUsage().getUsed();
+        if ( lists[lists.length - 1].getUsages().size() != size ) {
+            throw new IllegalStateException("The usage list was not read");
+        }
+        return after - before;
+    }
+
+    private static void collect(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            memory.gc();
+        }
+    }
+}
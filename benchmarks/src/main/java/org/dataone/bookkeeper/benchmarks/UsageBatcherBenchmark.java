@@ -0,0 +1,125 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.api.UsageList;
+import org.dataone.bookkeeper.client.HttpUsageSink;
+import org.dataone.bookkeeper.client.UsageBatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the per-usage cost of posting 1000 usages to a local stand-in endpoint, one
+ * request per usage versus batched through a UsageBatcher
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UsageBatcherBenchmark {
+
+    /* The number of usages posted per invocation */
+    private static final int USAGE_COUNT = 1000;
+
+    @Param({"10", "100", "1000"})
+    public int batchSize;
+
+    /* The stand-in usages endpoint */
+    private HttpServer server;
+
+    /* The sink posting to the endpoint */
+    private HttpUsageSink sink;
+
+    /* The usages to post */
+    private Usage[] usages;
+
+    @Setup
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/usages", exchange -> {
+            byte[] buffer = new byte[8192];
+            try (InputStream body = exchange.getRequestBody()) {
+                while ( body.read(buffer) != -1 ) {
+                    // discard
+                }
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        sink = new HttpUsageSink(
+            new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/usages"), null, 5000);
+        usages = new Usage[USAGE_COUNT];
+        for (int i = 0; i < USAGE_COUNT; i++) {
+            usages[i] = BenchmarkModels.usage(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(USAGE_COUNT)
+    public void postEach() throws IOException {
+        for (Usage usage : usages) {
+            sink.send(new UsageList(Collections.singletonList(usage)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(USAGE_COUNT)
+    public long postBatched() throws Exception {
+        UsageBatcher batcher = new UsageBatcher(sink, batchSize, batchSize * 2, 1, TimeUnit.SECONDS);
+        try {
+            for (Usage usage : usages) {
+                batcher.add(usage);
+            }
+        } finally {
+            batcher.close();
+        }
+        return batcher.getSentBatches();
+    }
+}
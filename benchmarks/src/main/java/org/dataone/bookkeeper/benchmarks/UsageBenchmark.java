@@ -0,0 +1,100 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.api.Violation;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark the Usage model serialization, equality, and validation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UsageBenchmark {
+
+    /* The usage under test */
+    private Usage usage;
+
+    /* An equal, distinct copy of the usage */
+    private Usage copy;
+
+    /* The usage as JSON */
+    private String json;
+
+    @Setup
+    public void setup() {
+        usage = BenchmarkModels.usage(1);
+        json = BenchmarkModels.json(usage);
+        copy = BenchmarkModels.read(json, Usage.class);
+    }
+
+    @Benchmark
+    public String serialize() throws IOException {
+        return BookkeeperCodecs.writer(Usage.class).writeValueAsString(usage);
+    }
+
+    @Benchmark
+    public Usage deserialize() throws IOException {
+        return BookkeeperCodecs.reader(Usage.class).readValue(json);
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        return usage.equals(copy);
+    }
+
+    @Benchmark
+    public int hash() {
+        return usage.hashCode();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Usage>> validate(ValidatorState state) {
+        return state.validator.validate(usage);
+    }
+
+    @Benchmark
+    public List<Violation> validateDirect() {
+        return usage.validate();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.quota.BloomFilter;
+import org.dataone.bookkeeper.quota.UsageDedupeIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure duplicate usage detection against a concurrent set of composite string keys
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UsageDedupeBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int entryCount;
+
+    /* The instance ids recorded in the indexes */
+    private String[] knownIds;
+
+    /* Instance ids not recorded in the indexes */
+    private String[] unknownIds;
+
+    /* The index without a Bloom filter */
+    private UsageDedupeIndex index;
+
+    /* The index with a Bloom filter */
+    private UsageDedupeIndex filteredIndex;
+
+    /* The composite key set baseline */
+    private Set<String> keySet;
+
+    /* The position of the next lookup */
+    private int next;
+
+    @Setup
+    public void setup() {
+        knownIds = new String[entryCount];
+        unknownIds = new String[entryCount];
+        index = new UsageDedupeIndex(entryCount);
+        filteredIndex = new UsageDedupeIndex(entryCount, new BloomFilter(entryCount, 0.01));
+        keySet = ConcurrentHashMap.newKeySet(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            knownIds[i] = "urn:uuid:" + i;
+            unknownIds[i] = "urn:uuid:new-" + i;
+            index.add(i, knownIds[i]);
+            filteredIndex.add(i, knownIds[i]);
+            keySet.add(i + ":" + knownIds[i]);
+        }
+    }
+
+    private int nextPosition() {
+        int position = next;
+        next = position + 1 == entryCount ? 0 : position + 1;
+        return position;
+    }
+
+    @Benchmark
+    public boolean duplicateIndex() {
+        int i = nextPosition();
+        return index.contains(i, knownIds[i]);
+    }
+
+    @Benchmark
+    public boolean duplicateKeySet() {
+        int i = nextPosition();
+        return keySet.contains(i + ":" + knownIds[i]);
+    }
+
+    @Benchmark
+    public boolean newIndex() {
+        int i = nextPosition();
+        return index.contains(i, unknownIds[i]);
+    }
+
+    @Benchmark
+    public boolean newFilteredIndex() {
+        int i = nextPosition();
+        return filteredIndex.contains(i, unknownIds[i]);
+    }
+
+    @Benchmark
+    public boolean newKeySet() {
+        int i = nextPosition();
+        return keySet.contains(i + ":" + unknownIds[i]);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.benchmarks;
+
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.api.UsageList;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.dataone.bookkeeper.codec.UsageRecordReader;
+import org.dataone.bookkeeper.codec.UsageRecordWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure exporting and importing 1000 usages as framed binary records and as a JSON
+ * usage list. The payload sizes are printed during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UsageRecordBenchmark {
+
+    /* The usages to export */
+    private UsageList usages;
+
+    /* The usages as framed records */
+    private byte[] records;
+
+    /* The usages as JSON */
+    private byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        usages = BenchmarkModels.usageList(1000);
+        records = writeRecords();
+        json = writeJson();
+        System.out.println("records: " + records.length + " bytes, JSON: " + json.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] writeRecords() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(65536);
+        try (UsageRecordWriter writer = new UsageRecordWriter(outputStream)) {
+            writer.writeAll(usages.getUsages());
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] writeJson() throws IOException {
+        return BookkeeperCodecs.writer(UsageList.class).writeValueAsBytes(usages);
+    }
+
+    @Benchmark
+    public int readRecords() throws IOException {
+        int count = 0;
+        try (UsageRecordReader reader = new UsageRecordReader(new ByteArrayInputStream(records))) {
+            Usage usage;
+            while ( (usage = reader.read()) != null ) {
+                count += usage.getQuotaId();
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public UsageList readJson() throws IOException {
+        return BookkeeperCodecs.read(UsageList.class, json);
+    }
+}
@@ -22,9 +22,11 @@
 package org.dataone.bookkeeper.api;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 /**
@@ -68,17 +70,41 @@ public class Address {
         // Return an empty Address instance when the JSON object is empty
         if ( ! json.equals("{}") ) {
 
-            // Otherwise try to build the Address
-            Address address = new ObjectMapper().readValue(json, Address.class);
-            this.line1 = address.line1;
-            this.line2 = address.line2;
-            this.city = address.city;
-            this.state = address.state;
-            this.postalCode = address.postalCode;
-            this.country = address.country;
+            // Otherwise read the JSON directly into this Address
+            BookkeeperCodecs.readInto(this, json);
         }
     }
 
+    /**
+     * Read an address from UTF-8 encoded JSON bytes
+     * @param json the JSON bytes
+     * @return address the address
+     * @throws IOException when an I/O exception occurs
+     */
+    public static Address fromJson(byte[] json) throws IOException {
+        return BookkeeperCodecs.read(Address.class, json);
+    }
+
+    /**
+     * Read an address from the remaining UTF-8 encoded JSON bytes of a buffer
+     * @param json the JSON buffer, its position is left unchanged
+     * @return address the address
+     * @throws IOException when an I/O exception occurs
+     */
+    public static Address fromJson(ByteBuffer json) throws IOException {
+        return BookkeeperCodecs.read(Address.class, json);
+    }
+
+    /**
+     * Read an address from a JSON stream
+     * @param json the JSON stream, closed when read
+     * @return address the address
+     * @throws IOException when an I/O exception occurs
+     */
+    public static Address fromJson(InputStream json) throws IOException {
+        return BookkeeperCodecs.read(Address.class, json);
+    }
+
     /**
      * Construct an address
      * @param line1 the address line 1
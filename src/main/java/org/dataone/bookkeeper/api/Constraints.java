@@ -0,0 +1,188 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Collects the violations of a model validate() method. Each check mirrors a bean
+ * validation constraint: it accepts the same values and reports the default English
+ * message of Hibernate Validator, so validate() agrees with the annotations without
+ * reflection. The list of violations is only allocated once a check fails.
+ */
+final class Constraints {
+
+    /* The violations, or null while there are none */
+    private List<Violation> violations;
+
+    /**
+     * Check a @NotNull constraint
+     */
+    void notNull(String path, Object value) {
+        if ( value == null ) {
+            add(path, "must not be null", null);
+        }
+    }
+
+    /**
+     * Check a @NotEmpty constraint on a string, which also rejects null
+     */
+    void notEmpty(String path, CharSequence value) {
+        if ( value == null || value.length() == 0 ) {
+            add(path, "must not be empty", value);
+        }
+    }
+
+    /**
+     * Check a @NotEmpty constraint on a collection, which also rejects null
+     */
+    void notEmpty(String path, Collection<?> value) {
+        if ( value == null || value.isEmpty() ) {
+            add(path, "must not be empty", value);
+        }
+    }
+
+    /**
+     * Check a @Pattern constraint, which accepts null
+     */
+    void pattern(String path, String value, Regexp regexp) {
+        if ( value != null && ! regexp.matches(value) ) {
+            add(path, "must match \"" + regexp.regexp + "\"", value);
+        }
+    }
+
+    /**
+     * Check an @Email constraint, which accepts null
+     */
+    void email(String path, String value) {
+        if ( value != null && ! EmailCheck.isValid(value) ) {
+            add(path, "must be a well-formed email address", value);
+        }
+    }
+
+    /**
+     * Check a @Min constraint, which accepts null
+     */
+    void min(String path, Integer value, long min) {
+        if ( value != null && value < min ) {
+            add(path, "must be greater than or equal to " + min, value);
+        }
+    }
+
+    /**
+     * Check a Hibernate @Length constraint with only a maximum, which accepts null
+     */
+    void maxLength(String path, String value, int max) {
+        if ( value != null && value.length() > max ) {
+            add(path, "length must be between 0 and " + max, value);
+        }
+    }
+
+    /**
+     * Add the violations of a @Valid list's elements, under the list property path
+     */
+    <T> void valid(String path, List<T> values, Function<T, List<Violation>> validator) {
+        if ( values == null ) {
+            return;
+        }
+        for (int i = 0; i < values.size(); i++) {
+            T value = values.get(i);
+            if ( value != null ) {
+                for (Violation violation : validator.apply(value)) {
+                    add(violation.under(path + "[" + i + "]"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the violations found
+     * @return violations the violations, empty if there are none
+     */
+    List<Violation> violations() {
+        return violations == null ? Collections.<Violation>emptyList() : violations;
+    }
+
+    private void add(String path, String message, Object value) {
+        add(new Violation(path, message, value));
+    }
+
+    private void add(Violation violation) {
+        if ( violations == null ) {
+            violations = new ArrayList<>(4);
+        }
+        violations.add(violation);
+    }
+
+    /**
+     * Create a check for a @Pattern regexp that is a list of literal alternatives, such
+     * as "day|week|month|year", by set lookup
+     * @param regexp the alternatives separated by '|'
+     * @return regexp the check
+     */
+    static Regexp choices(String regexp) {
+        Set<String> choices = new HashSet<>(Arrays.asList(regexp.split("\\|")));
+        return new Regexp(regexp) {
+            @Override
+            boolean matches(String value) {
+                return choices.contains(value);
+            }
+        };
+    }
+
+    /**
+     * Create a check for a @Pattern regexp with a precompiled pattern
+     * @param regexp the regular expression
+     * @return regexp the check
+     */
+    static Regexp regexp(String regexp) {
+        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(regexp);
+        return new Regexp(regexp) {
+            @Override
+            boolean matches(String value) {
+                return pattern.matcher(value).matches();
+            }
+        };
+    }
+
+    /**
+     * A @Pattern regexp and the check of whole values against it
+     */
+    abstract static class Regexp {
+
+        /* The regexp, as it appears in violation messages */
+        private final String regexp;
+
+        Regexp(String regexp) {
+            this.regexp = regexp;
+        }
+
+        abstract boolean matches(String value);
+    }
+}
@@ -24,8 +24,12 @@ package org.dataone.bookkeeper.api;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.dataone.bookkeeper.codec.CanonicalStringDeserializer;
+import org.dataone.bookkeeper.codec.Timestamps;
 import org.dataone.service.types.v1.SubjectInfo;
 
 import javax.security.auth.Subject;
@@ -34,14 +38,25 @@ import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import java.security.Principal;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Customers represent individuals that order products.
  */
-@JsonIgnoreProperties({"discountJSON", "addressJSON", "metadataJSON", "invoiceSettingsJSON"})
+@JsonIgnoreProperties({"discountJSON", "addressJSON", "metadataJSON", "invoiceSettingsJSON",
+    "createdTimestamp", "memberships"})
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Customer implements Principal {
+    /* The object @Pattern check */
+    private static final Constraints.Regexp OBJECT_PATTERN =
+        Constraints.choices("customer");
+
+    /* The currency @Pattern check */
+    private static final Constraints.Regexp CURRENCY_PATTERN =
+        Constraints.regexp("[A-Z]{3}");
+
     /* The customer unique id */
     private Integer id;
 
@@ -49,6 +64,7 @@ public class Customer implements Principal {
     @NotEmpty
     @NotNull
     @Pattern(regexp = "customer")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String object;
 
     /* The customer unique subject id as the full http or https URL */
@@ -70,6 +86,7 @@ public class Customer implements Principal {
 
     /* The customer default currency code */
     @Pattern(regexp = "[A-Z]{3}")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String currency;
 
     /* The customer invoice delinquency status */
@@ -109,6 +126,9 @@ public class Customer implements Principal {
     /* The customer phone number */
     private String phone;
 
+    /* The cached subjects the customer acts as, or null when they must be computed */
+    private volatile Memberships memberships;
+
     /**
      * Construct an empty Customer
      */
@@ -219,6 +239,7 @@ public class Customer implements Principal {
      */
     public void setSubject(String subject) {
         this.subject = subject;
+        this.memberships = null;
     }
 
     /**
@@ -230,11 +251,13 @@ public class Customer implements Principal {
     }
 
     /**
-     * Set the customer subject info
+     * Set the customer subject info. Set it again after changing the subject info, so the
+     * memberships are recomputed.
      * @param subjectInfo  the customer subject info
      */
     public void setSubjectInfo(SubjectInfo subjectInfo) {
         this.subjectInfo = subjectInfo;
+        this.memberships = null;
     }
 
     /**
@@ -285,6 +308,14 @@ public class Customer implements Principal {
         this.created = created;
     }
 
+    /**
+     * Get the customer creation date as an ISO 8601 timestamp string
+     * @return createdTimestamp the customer creation date as an ISO 8601 timestamp string, or null
+     */
+    public String getCreatedTimestamp() {
+        return Timestamps.format(getCreated());
+    }
+
     /**
      * Get the customer currency
      * @return currency the customer currency
@@ -468,7 +499,7 @@ public class Customer implements Principal {
      */
     public String getDiscountJSON() throws JsonProcessingException {
         if ( discount != null ) {
-            return new ObjectMapper().writeValueAsString(getDiscount());
+            return BookkeeperCodecs.toJSON(getDiscount());
         } else {
             return "{}";
         }
@@ -481,7 +512,7 @@ public class Customer implements Principal {
      */
     public String getAddressJSON() throws JsonProcessingException {
         if ( address != null ) {
-            return new ObjectMapper().writeValueAsString(getAddress());
+            return BookkeeperCodecs.toJSON(getAddress());
         } else {
             return "{}";
         }
@@ -494,7 +525,7 @@ public class Customer implements Principal {
      */
     public String getInvoiceSettingsJSON() throws JsonProcessingException {
         if ( invoiceSettings != null ) {
-            return new ObjectMapper().writeValueAsString(getInvoiceSettings());
+            return BookkeeperCodecs.toJSON(getInvoiceSettings());
         } else {
             return "{}";
         }
@@ -507,12 +538,35 @@ public class Customer implements Principal {
      */
     public String getMetadataJSON() throws JsonProcessingException {
         if ( metadata != null ) {
-            return new ObjectMapper().writeValueAsString(getMetadata());
+            return BookkeeperCodecs.toJSON(getMetadata());
         } else {
             return "{}";
         }
     }
 
+    /**
+     * Check the bean validation constraints of the customer without reflection, reporting
+     * the same violations as a Validator would
+     * @return violations the constraint violations, empty if the customer is valid
+     */
+    public List<Violation> validate() {
+        Constraints constraints = new Constraints();
+        constraints.notEmpty("object", object);
+        constraints.notNull("object", object);
+        constraints.pattern("object", object, OBJECT_PATTERN);
+        constraints.notEmpty("subject", subject);
+        constraints.notNull("subject", subject);
+        constraints.pattern("currency", currency, CURRENCY_PATTERN);
+        constraints.notEmpty("email", email);
+        constraints.notNull("email", email);
+        constraints.email("email", email);
+        constraints.notEmpty("givenName", givenName);
+        constraints.notNull("givenName", givenName);
+        constraints.notEmpty("surName", surName);
+        constraints.notNull("surName", surName);
+        return constraints.violations();
+    }
+
     /**
      * Determine object equality based on the equality of all fields
      * @param o the object to be compared
@@ -562,19 +616,39 @@ public class Customer implements Principal {
      * @return the name of this principal.
      */
     @Override
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     public String getName() {
         return getSubject();
     }
 
     /**
-     * Returns true if the specified subject is implied by this principal.
-     *
-     * <p>The default implementation of this method returns true if
-     * {@code subject} is non-null and contains at least one principal that
-     * is equal to this principal.
-     *
-     * <p>Subclasses may override this with a different implementation, if
-     * necessary.
+     * Get the subjects the customer acts as: its subject, the equivalent identities and
+     * the groups, including nested groups, in its subject info, and the DataONE "public",
+     * "authenticatedUser" and, when an identity is verified, "verifiedUser" subjects. The
+     * set is computed once from the subject info and cached until the subject or subject
+     * info is set.
+     * @return memberships the immutable set of subject values, empty without a subject
+     */
+    public Set<String> getMemberships() {
+        return memberships().subjects();
+    }
+
+    /**
+     * Determine if the customer acts as a subject, being that subject, an equivalent
+     * identity, or a member of that group
+     * @param subject the subject value
+     * @return true if the subject is one of the customer memberships
+     */
+    public boolean isMemberOf(String subject) {
+        return memberships().subjects().contains(subject);
+    }
+
+    /**
+     * Returns true if the specified subject is implied by this principal: the subject
+     * contains a principal named after the customer subject or one of its equivalent
+     * identities. Groups, and the "public", "authenticatedUser" and "verifiedUser"
+     * subjects, are shared with other customers and do not imply the customer; use
+     * isMemberOf(String) to check them.
      *
      * @param subject the {@code Subject}
      * @return true if {@code subject} is non-null and is
@@ -583,9 +657,28 @@ public class Customer implements Principal {
      */
     @Override
     public boolean implies(Subject subject) {
-
-        // TODO: Iterate through subjectInfo groups that this subject is a member of?
+        if ( subject == null ) {
+            return false;
+        }
+        Set<String> identities = memberships().identities();
+        for (Principal principal : subject.getPrincipals()) {
+            if ( identities.contains(principal.getName()) ) {
+                return true;
+            }
+        }
         return false;
     }
 
+    /*
+     * Get the cached memberships, computing them from the subject info when needed
+     */
+    private Memberships memberships() {
+        Memberships current = memberships;
+        if ( current == null ) {
+            current = Memberships.of(subject, subjectInfo);
+            memberships = current;
+        }
+        return current;
+    }
+
 }
@@ -0,0 +1,51 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import org.hibernate.validator.internal.constraintvalidators.bv.EmailValidator;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.constraints.Email;
+
+/**
+ * The @Email check of Hibernate Validator, for Constraints. Hibernate Validator has no
+ * public email check, so this is the one place that depends on its internal EmailValidator,
+ * used through the public ConstraintValidator interface. EmailCheckTest compares it with
+ * the Validator, so a Hibernate Validator upgrade that changes the check fails the tests.
+ */
+final class EmailCheck {
+
+    /* The email validator of the default @Email constraint, which keeps no state */
+    private static final ConstraintValidator<Email, CharSequence> VALIDATOR = new EmailValidator();
+
+    private EmailCheck() {
+    }
+
+    /**
+     * Determine if a value is a well-formed email address
+     * @param value the value, or null
+     * @return true if the value is null or a well-formed email address
+     */
+    static boolean isValid(CharSequence value) {
+        return VALIDATOR.isValid(value, null);
+    }
+}
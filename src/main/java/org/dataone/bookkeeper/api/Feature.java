@@ -22,11 +22,14 @@
 package org.dataone.bookkeeper.api;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
 
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -70,15 +73,41 @@ public class Feature {
         // Return an empty Feature instance when the JSON object is empty
         if ( ! json.equals("{}") ) {
 
-            // Otherwise try to build the Feature
-            Feature feature = new ObjectMapper().readValue(json, Feature.class);
-            this.name = feature.name;
-            this.label = feature.label;
-            this.description = feature.description;
-            this.quota = feature.quota;
+            // Otherwise read the JSON directly into this Feature
+            BookkeeperCodecs.readInto(this, json);
         }
     }
 
+    /**
+     * Read a feature from UTF-8 encoded JSON bytes
+     * @param json the JSON bytes
+     * @return feature the feature
+     * @throws IOException when an I/O exception occurs
+     */
+    public static Feature fromJson(byte[] json) throws IOException {
+        return BookkeeperCodecs.read(Feature.class, json);
+    }
+
+    /**
+     * Read a feature from the remaining UTF-8 encoded JSON bytes of a buffer
+     * @param json the JSON buffer, its position is left unchanged
+     * @return feature the feature
+     * @throws IOException when an I/O exception occurs
+     */
+    public static Feature fromJson(ByteBuffer json) throws IOException {
+        return BookkeeperCodecs.read(Feature.class, json);
+    }
+
+    /**
+     * Read a feature from a JSON stream
+     * @param json the JSON stream, closed when read
+     * @return feature the feature
+     * @throws IOException when an I/O exception occurs
+     */
+    public static Feature fromJson(InputStream json) throws IOException {
+        return BookkeeperCodecs.read(Feature.class, json);
+    }
+
     /**
      * Construct a Feature
      * @param name the feature name
@@ -160,6 +189,22 @@ public class Feature {
         this.quota = quota;
     }
 
+    /**
+     * Check the bean validation constraints of the feature without reflection, reporting
+     * the same violations as a Validator would
+     * @return violations the constraint violations, empty if the feature is valid
+     */
+    public List<Violation> validate() {
+        Constraints constraints = new Constraints();
+        constraints.notNull("name", name);
+        constraints.notEmpty("name", name);
+        constraints.notNull("label", label);
+        constraints.notEmpty("label", label);
+        constraints.notNull("description", description);
+        constraints.notEmpty("description", description);
+        return constraints.violations();
+    }
+
     /**
      * Determine object equality based on the equality of all fields
      * @param o the object to be compared
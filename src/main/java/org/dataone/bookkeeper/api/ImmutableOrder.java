@@ -0,0 +1,464 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An immutable snapshot of an order, created with Order.freeze(), for use as a map key or
+ * a value shared between threads without copying.
+ *
+ * The items and quotas are immutable snapshots too. The charge, metadata and status
+ * history are copied when the snapshot is taken, and copied again when they are read.
+ * The hash is computed once and equals Order.hashCode() for the order it was taken from.
+ * Snapshots with different hashes, ids or updated timestamps are unequal without
+ * comparing the other fields. The snapshot serializes to the same JSON as the order.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class ImmutableOrder {
+
+    /* The order unique id */
+    private final Integer id;
+
+    /* The order object type */
+    private final String object;
+
+    /* The order amount */
+    private final Integer amount;
+
+    /* The order amount returned */
+    private final Integer amountReturned;
+
+    /* The order charge */
+    private final ObjectNode charge;
+
+    /* The order creation timestamp */
+    private final Integer created;
+
+    /* The order currency */
+    private final String currency;
+
+    /* The order subject */
+    private final String subject;
+
+    /* The order customer */
+    private final Integer customer;
+
+    /* The order email */
+    private final String email;
+
+    /* The order items */
+    private final List<ImmutableOrderItem> items;
+
+    /* The order metadata */
+    private final ObjectNode metadata;
+
+    /* The order name */
+    private final String name;
+
+    /* The order status value */
+    private final String status;
+
+    /* The order status transitions */
+    private final StatusHistory statusTransitions;
+
+    /* The order updated timestamp */
+    private final Integer updated;
+
+    /* The order series identifier */
+    private final String seriesId;
+
+    /* The start date for the order used to determine service expiry */
+    private final Integer startDate;
+
+    /* The end date for the order used to determine service expiry */
+    private final Integer endDate;
+
+    /* The quotas associated with the product, if any */
+    private final List<ImmutableQuota> quotas;
+
+    /* The item totals */
+    private final OrderTotals totals;
+
+    /* The hash of the fields */
+    private final int hash;
+
+    /**
+     * Construct a snapshot of an order
+     * @param order the order
+     */
+    ImmutableOrder(Order order) {
+        this.id = order.getId();
+        this.object = order.getObject();
+        this.amount = order.getAmount();
+        this.amountReturned = order.getAmountReturned();
+        this.charge = copy(order.getCharge());
+        this.created = order.getCreated();
+        this.currency = order.getCurrency();
+        this.subject = order.getSubject();
+        this.customer = order.getCustomer();
+        this.email = order.getEmail();
+        this.items = freezeItems(order.getItems());
+        this.metadata = copy(order.getMetadata());
+        this.name = order.getName();
+        this.status = order.getStatus();
+        this.statusTransitions = order.getStatusHistory() == null ? null :
+            order.getStatusHistory().copy();
+        this.updated = order.getUpdated();
+        this.seriesId = order.getSeriesId();
+        this.startDate = order.getStartDate();
+        this.endDate = order.getEndDate();
+        this.quotas = freezeQuotas(order.getQuotas());
+        this.totals = OrderTotals.of(toOrderItems(items), currency);
+        this.hash = Objects.hash(id, object, amount, amountReturned, charge, created, currency,
+            subject, customer, email, items, metadata, name, getStatus(), statusTransitions,
+            updated, seriesId, startDate, endDate, quotas);
+    }
+
+    /**
+     * Get the order identifier
+     * @return id the order identifier
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Get the order object type
+     * @return object the order object type
+     */
+    public String getObject() {
+        return object;
+    }
+
+    /**
+     * Get the order amount
+     * @return amount the order amount in the smallest unit of the currency
+     */
+    public Integer getAmount() {
+        return amount;
+    }
+
+    /**
+     * Get the order total amount, computed from the order items when the snapshot was taken
+     * @return total the sum of the order item amounts
+     */
+    public long getTotalAmount() {
+        return totals.getTotal();
+    }
+
+    /**
+     * Get the order totals by item type and currency
+     * @return totals the order totals
+     */
+    @JsonIgnore
+    public OrderTotals getTotals() {
+        return totals;
+    }
+
+    /**
+     * Get the order amount returned
+     * @return amountReturned the order amount returned
+     */
+    public Integer getAmountReturned() {
+        return amountReturned;
+    }
+
+    /**
+     * Get a copy of the order charge
+     * @return charge the order charge
+     */
+    public ObjectNode getCharge() {
+        return copy(charge);
+    }
+
+    /**
+     * Get the order created timestamp
+     * @return created the order created timestamp (seconds since the epoch)
+     */
+    public Integer getCreated() {
+        return created;
+    }
+
+    /**
+     * Get the order currency
+     * @return currency the order currency
+     */
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Get the order customer identifier
+     * @return customer the order customer identifier
+     */
+    public Integer getCustomer() {
+        return customer;
+    }
+
+    /**
+     * Get the order subject
+     * @return subject the order subject
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Get the order email
+     * @return email the order email
+     */
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Get the order items
+     * @return items the unmodifiable list of item snapshots
+     */
+    public List<ImmutableOrderItem> getItems() {
+        return items;
+    }
+
+    /**
+     * Get a copy of the order metadata
+     * @return metadata the order metadata
+     */
+    public ObjectNode getMetadata() {
+        return copy(metadata);
+    }
+
+    /**
+     * Get the order name
+     * @return name the order name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the order status
+     * @return status the status of the order, or null if it is not set or not a known status
+     */
+    @JsonIgnore
+    public OrderStatus getOrderStatus() {
+        return OrderStatus.find(status);
+    }
+
+    /**
+     * Get the order status value
+     * @return status the status of the order, one of
+     * active|created|paid|past_due|refunded|trialing|unpaid
+     */
+    @JsonProperty("status")
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Get a copy of the times the order entered each status
+     * @return statusTransitions the order status history
+     */
+    @JsonProperty("statusTransitions")
+    public StatusHistory getStatusHistory() {
+        return statusTransitions == null ? null : statusTransitions.copy();
+    }
+
+    /**
+     * Get the order status transitions as a JSON object
+     * @return statusTransitions the JSON object of status transitions
+     */
+    @JsonIgnore
+    public ObjectNode getStatusTransitions() {
+        return statusTransitions == null ? null :
+            statusTransitions.toObjectNode(BookkeeperCodecs.nodeFactory());
+    }
+
+    /**
+     * Get the order updated timestamp, which serves as the order version
+     * @return updated the order updated timestamp (seconds since the epoch)
+     */
+    public Integer getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Get the order series identifier
+     * @return seriesId the order series identifier
+     */
+    public String getSeriesId() {
+        return seriesId;
+    }
+
+    /**
+     * Get the order start date
+     * @return startDate the order start timestamp (seconds since the epoch)
+     */
+    public Integer getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * Get the order end date
+     * @return endDate the order end timestamp (seconds since the epoch)
+     */
+    public Integer getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * Get the quotas associated with the order
+     * @return quotas the unmodifiable list of quota snapshots
+     */
+    public List<ImmutableQuota> getQuotas() {
+        return quotas;
+    }
+
+    /**
+     * Create a mutable order with the snapshot's values
+     * @return order the order
+     */
+    public Order toOrder() {
+        List<Quota> orderQuotas = null;
+        if ( quotas != null ) {
+            orderQuotas = new ArrayList<>(quotas.size());
+            for (ImmutableQuota quota : quotas) {
+                orderQuotas.add(quota == null ? null : quota.toQuota());
+            }
+        }
+        Order order = new Order(id, object, amount, amountReturned, getCharge(), created,
+            currency, subject, customer, email, toOrderItems(items), getMetadata(), name, null,
+            null, updated, seriesId, startDate, endDate, orderQuotas);
+        order.setStatus(status);
+        order.setStatusHistory(getStatusHistory());
+        return order;
+    }
+
+    /**
+     * Determine equality of another order snapshot. Snapshots of other orders, or of other
+     * versions of the same order, almost always differ in hash, id or updated timestamp,
+     * so only equal snapshots compare every field.
+     * @param o the object to compare
+     * @return true if they are equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ImmutableOrder order = (ImmutableOrder) o;
+        if ( hash != order.hash || ! Objects.equals(id, order.id) ||
+            ! Objects.equals(updated, order.updated) ) {
+            return false;
+        }
+        return Objects.equals(object, order.object) &&
+            Objects.equals(amount, order.amount) &&
+            Objects.equals(amountReturned, order.amountReturned) &&
+            Objects.equals(created, order.created) &&
+            Objects.equals(currency, order.currency) &&
+            Objects.equals(subject, order.subject) &&
+            Objects.equals(customer, order.customer) &&
+            Objects.equals(email, order.email) &&
+            Objects.equals(name, order.name) &&
+            Objects.equals(status, order.status) &&
+            Objects.equals(statusTransitions, order.statusTransitions) &&
+            Objects.equals(seriesId, order.seriesId) &&
+            Objects.equals(startDate, order.startDate) &&
+            Objects.equals(endDate, order.endDate) &&
+            equalLists(items, order.items) &&
+            equalLists(quotas, order.quotas) &&
+            Objects.equals(charge, order.charge) &&
+            Objects.equals(metadata, order.metadata);
+    }
+
+    /**
+     * Get the order hash code, computed when the snapshot was taken
+     * @return hash the order hash
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /*
+     * Compare snapshot lists by index, as the unmodifiable wrappers compare with an iterator
+     */
+    private static boolean equalLists(List<?> list, List<?> other) {
+        if ( list == null || other == null ) {
+            return list == other;
+        }
+        if ( list.size() != other.size() ) {
+            return false;
+        }
+        for (int i = 0; i < list.size(); i++) {
+            if ( ! Objects.equals(list.get(i), other.get(i)) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ObjectNode copy(ObjectNode node) {
+        return node == null ? null : node.deepCopy();
+    }
+
+    private static List<ImmutableOrderItem> freezeItems(List<OrderItem> items) {
+        if ( items == null ) {
+            return null;
+        }
+        List<ImmutableOrderItem> frozen = new ArrayList<>(items.size());
+        for (OrderItem item : items) {
+            frozen.add(item == null ? null : item.freeze());
+        }
+        return Collections.unmodifiableList(frozen);
+    }
+
+    private static List<ImmutableQuota> freezeQuotas(List<Quota> quotas) {
+        if ( quotas == null ) {
+            return null;
+        }
+        List<ImmutableQuota> frozen = new ArrayList<>(quotas.size());
+        for (Quota quota : quotas) {
+            frozen.add(quota == null ? null : quota.freeze());
+        }
+        return Collections.unmodifiableList(frozen);
+    }
+
+    private static List<OrderItem> toOrderItems(List<ImmutableOrderItem> items) {
+        if ( items == null ) {
+            return null;
+        }
+        List<OrderItem> orderItems = new ArrayList<>(items.size());
+        for (ImmutableOrderItem item : items) {
+            orderItems.add(item == null ? null : item.toOrderItem());
+        }
+        return orderItems;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Objects;
+
+/**
+ * An immutable snapshot of an order item, created with OrderItem.freeze(). The hash is
+ * computed once, and equals OrderItem.hashCode() for the item it was taken from.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class ImmutableOrderItem {
+
+    /* The order item object type */
+    private final String object;
+
+    /* The order item amount */
+    private final Integer amount;
+
+    /* The order item currency */
+    private final String currency;
+
+    /* The order item description */
+    private final String description;
+
+    /* The order item parent product */
+    private final Integer parent;
+
+    /* The order item quantity */
+    private final Integer quantity;
+
+    /* The order item type */
+    private final String type;
+
+    /* The hash of the fields */
+    private final int hash;
+
+    /**
+     * Construct a snapshot of an order item
+     * @param item the order item
+     */
+    ImmutableOrderItem(OrderItem item) {
+        this.object = item.getObject();
+        this.amount = item.getAmount();
+        this.currency = item.getCurrency();
+        this.description = item.getDescription();
+        this.parent = item.getParent();
+        this.quantity = item.getQuantity();
+        this.type = item.getType();
+        this.hash = Objects.hash(object, amount, currency, description, parent, quantity, type);
+    }
+
+    /**
+     * Get the order item object type
+     * @return object the order item object type
+     */
+    public String getObject() {
+        return object;
+    }
+
+    /**
+     * Get the order item amount
+     * @return amount the order item amount
+     */
+    public Integer getAmount() {
+        return amount;
+    }
+
+    /**
+     * Get the order item currency
+     * @return currency the order item currency
+     */
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Get the order item description
+     * @return description the order item description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Get the order item parent product
+     * @return parent the order item parent product
+     */
+    public Integer getParent() {
+        return parent;
+    }
+
+    /**
+     * Get the order item quantity
+     * @return quantity the order item quantity
+     */
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Get the order item type
+     * @return type the order item type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Create a mutable order item with the snapshot's values
+     * @return item the order item
+     */
+    public OrderItem toOrderItem() {
+        return new OrderItem(object, amount, currency, description, parent, quantity, type);
+    }
+
+    /**
+     * Determine order item equality, comparing the cached hashes first
+     * @param o the object to compare
+     * @return true if the objects are equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ImmutableOrderItem orderItem = (ImmutableOrderItem) o;
+        return hash == orderItem.hash &&
+            Objects.equals(object, orderItem.object) &&
+            Objects.equals(amount, orderItem.amount) &&
+            Objects.equals(currency, orderItem.currency) &&
+            Objects.equals(description, orderItem.description) &&
+            Objects.equals(parent, orderItem.parent) &&
+            Objects.equals(quantity, orderItem.quantity) &&
+            Objects.equals(type, orderItem.type);
+    }
+
+    /**
+     * Get the order item hash code, computed when the snapshot was taken
+     * @return hashcode the order item hashcode
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Objects;
+
+/**
+ * An immutable snapshot of a quota, created with Quota.freeze(), for use as a map key or a
+ * value shared between threads. The hash is computed once, and equals Quota.hashCode() for
+ * the quota it was taken from.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class ImmutableQuota {
+
+    /* The quota id */
+    private final Integer id;
+
+    /* The quota object type */
+    private final String object;
+
+    /* The quota type */
+    private final String quotaType;
+
+    /* The quota soft limit */
+    private final Double softLimit;
+
+    /* The quota hard limit */
+    private final Double hardLimit;
+
+    /* The total usage of the quota */
+    private final Double totalUsage;
+
+    /* The quota unit */
+    private final String unit;
+
+    /* The quota order id */
+    private final Integer orderId;
+
+    /* The quota subject id */
+    private final String subject;
+
+    /* A name that helps associate a quota with an order */
+    private final String name;
+
+    /* The hash of the fields */
+    private final int hash;
+
+    /**
+     * Construct a snapshot of a quota
+     * @param quota the quota
+     */
+    ImmutableQuota(Quota quota) {
+        this.id = quota.getId();
+        this.object = quota.getObject();
+        this.quotaType = quota.getQuotaType();
+        this.softLimit = quota.getSoftLimit();
+        this.hardLimit = quota.getHardLimit();
+        this.totalUsage = quota.getTotalUsage();
+        this.unit = quota.getUnit();
+        this.orderId = quota.getOrderId();
+        this.subject = quota.getSubject();
+        this.name = quota.getName();
+        this.hash = Objects.hash(id, object, quotaType, softLimit, hardLimit, totalUsage, unit,
+            orderId, subject, name);
+    }
+
+    /**
+     * Get the quota id
+     * @return id  the quota id
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Get the quota object type
+     * @return object  the quota object type
+     */
+    public String getObject() {
+        return object;
+    }
+
+    /**
+     * Get the quota type
+     * @return quotaType  the quota type
+     */
+    public String getQuotaType() {
+        return quotaType;
+    }
+
+    /**
+     * Get the quota soft limit
+     * @return softLimit  the quota soft limit
+     */
+    public Double getSoftLimit() {
+        return softLimit;
+    }
+
+    /**
+     * Get the quota hard limit
+     * @return hardLimit  the quota hard limit
+     */
+    public Double getHardLimit() {
+        return hardLimit;
+    }
+
+    /**
+     * Get the quota total usage
+     * @return totalUsage  the quota total usage, zero when it had not been set
+     */
+    public Double getTotalUsage() {
+        return totalUsage;
+    }
+
+    /**
+     * Get the quota unit
+     * @return unit  the quota unit
+     */
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * Get the order id
+     * @return orderId  the quota order identifier
+     */
+    public Integer getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Get the subject
+     * @return subject  the quota subject
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Get the quota name
+     * @return the quota name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Create a mutable quota with the snapshot's values
+     * @return quota the quota
+     */
+    public Quota toQuota() {
+        return new Quota(id, object, quotaType, softLimit, hardLimit, totalUsage, unit, orderId,
+            subject, name);
+    }
+
+    /**
+     * Determine quota equality, comparing the cached hashes and ids before the other fields
+     * @param o the object to be compared
+     * @return  true if the given object is equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ImmutableQuota quota = (ImmutableQuota) o;
+        return hash == quota.hash &&
+            Objects.equals(id, quota.id) &&
+            Objects.equals(object, quota.object) &&
+            Objects.equals(quotaType, quota.quotaType) &&
+            Objects.equals(softLimit, quota.softLimit) &&
+            Objects.equals(hardLimit, quota.hardLimit) &&
+            Objects.equals(totalUsage, quota.totalUsage) &&
+            Objects.equals(unit, quota.unit) &&
+            Objects.equals(orderId, quota.orderId) &&
+            Objects.equals(subject, quota.subject) &&
+            Objects.equals(name, quota.name);
+    }
+
+    /**
+     * Get the quota hash code, computed when the snapshot was taken
+     * @return hashcode  the hashcode of the object
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import org.dataone.service.types.v1.Group;
+import org.dataone.service.types.v1.Person;
+import org.dataone.service.types.v1.Subject;
+import org.dataone.service.types.v1.SubjectInfo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Flattens the person and group graph of a DataONE SubjectInfo into the set of subjects a
+ * customer acts as: the customer subject, its equivalent identities, the groups any of
+ * them belong to directly or through nested groups, and the DataONE "public",
+ * "authenticatedUser" and, for verified customers, "verifiedUser" subjects. The customer
+ * subject and its equivalent identities are also kept apart, as the subjects that
+ * identify the customer rather than ones it shares with other customers.
+ */
+final class Memberships {
+
+    /* The memberships of a customer without a subject */
+    private static final Memberships NONE =
+        new Memberships(Collections.<String>emptySet(), Collections.<String>emptySet());
+
+    /* The subject every request acts as */
+    static final String PUBLIC = "public";
+
+    /* The subject every authenticated request acts as */
+    static final String AUTHENTICATED_USER = "authenticatedUser";
+
+    /* The subject every request with a verified identity acts as */
+    static final String VERIFIED_USER = "verifiedUser";
+
+    /* The customer subject and its equivalent identities */
+    private final Set<String> identities;
+
+    /* The identities, their groups and the shared DataONE subjects */
+    private final Set<String> subjects;
+
+    private Memberships(Set<String> identities, Set<String> subjects) {
+        this.identities = identities;
+        this.subjects = subjects;
+    }
+
+    /**
+     * Get the subjects that identify the customer
+     * @return identities the immutable set of the customer subject and equivalent identities
+     */
+    Set<String> identities() {
+        return identities;
+    }
+
+    /**
+     * Get the subjects the customer acts as
+     * @return subjects the immutable set of identities, groups and shared subjects
+     */
+    Set<String> subjects() {
+        return subjects;
+    }
+
+    /**
+     * Get the memberships of a customer
+     * @param subject the customer subject
+     * @param subjectInfo the customer subject info, or null
+     * @return memberships the customer memberships
+     */
+    static Memberships of(String subject, SubjectInfo subjectInfo) {
+        if ( subject == null ) {
+            return NONE;
+        }
+        Set<String> memberships = new HashSet<>();
+        memberships.add(PUBLIC);
+        memberships.add(AUTHENTICATED_USER);
+        if ( subjectInfo == null ) {
+            memberships.add(subject);
+            return new Memberships(Collections.singleton(subject),
+                Collections.unmodifiableSet(memberships));
+        }
+
+        // Index the people, the equivalences in both directions, and the groups of each member
+        Map<String, Person> people = new HashMap<>();
+        Map<String, List<String>> equivalents = new HashMap<>();
+        Map<String, List<String>> groupsByMember = new HashMap<>();
+        for (Person person : nonNull(subjectInfo.getPersonList())) {
+            String value = value(person.getSubject());
+            if ( value == null ) {
+                continue;
+            }
+            people.put(value, person);
+            for (Subject equivalent : nonNull(person.getEquivalentIdentityList())) {
+                link(equivalents, value, value(equivalent));
+                link(equivalents, value(equivalent), value);
+            }
+            for (Subject group : nonNull(person.getIsMemberOfList())) {
+                link(groupsByMember, value, value(group));
+            }
+        }
+        for (Group group : nonNull(subjectInfo.getGroupList())) {
+            String value = value(group.getSubject());
+            for (Subject member : nonNull(group.getHasMemberList())) {
+                link(groupsByMember, value(member), value);
+            }
+        }
+
+        // Walk the equivalent identities, then the groups of every identity and group found
+        Set<String> identities = new HashSet<>();
+        walk(subject, equivalents, identities);
+        boolean verified = false;
+        for (String identity : identities) {
+            Person person = people.get(identity);
+            verified |= person != null && Boolean.TRUE.equals(person.getVerified());
+        }
+        memberships.addAll(identities);
+        Set<String> groups = new HashSet<>();
+        for (String identity : identities) {
+            walk(identity, groupsByMember, groups);
+        }
+        memberships.addAll(groups);
+        if ( verified ) {
+            memberships.add(VERIFIED_USER);
+        }
+        return new Memberships(Collections.unmodifiableSet(identities),
+            Collections.unmodifiableSet(memberships));
+    }
+
+    /*
+     * Add the subjects reachable from a start subject through the edges to a set, including
+     * the start subject
+     */
+    private static void walk(String start, Map<String, List<String>> edges, Set<String> reached) {
+        Deque<String> pending = new ArrayDeque<>();
+        pending.push(start);
+        while ( ! pending.isEmpty() ) {
+            String value = pending.pop();
+            if ( reached.add(value) ) {
+                for (String next : edges.getOrDefault(value, Collections.<String>emptyList())) {
+                    pending.push(next);
+                }
+            }
+        }
+    }
+
+    private static void link(Map<String, List<String>> edges, String from, String to) {
+        if ( from != null && to != null ) {
+            edges.computeIfAbsent(from, key -> new ArrayList<>(2)).add(to);
+        }
+    }
+
+    private static String value(Subject subject) {
+        return subject == null ? null : subject.getValue();
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        return list == null ? Collections.<T>emptyList() : list;
+    }
+}
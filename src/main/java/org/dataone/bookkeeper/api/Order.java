@@ -21,29 +21,52 @@
 
 package org.dataone.bookkeeper.api;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.core.io.SegmentedStringWriter;
+import com.fasterxml.jackson.core.util.BufferRecyclers;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.dataone.bookkeeper.codec.CanonicalStringDeserializer;
+import org.dataone.bookkeeper.codec.Timestamps;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * Orders represent a list of purchased products by customers
  */
-@JsonIgnoreProperties({"chargeJSON", "metadataJSON", "itemsJSON", "statusTransitionsJSON"})
+@JsonIgnoreProperties({"chargeJSON", "metadataJSON", "itemsJSON", "statusTransitionsJSON", "totals",
+    "createdTimestamp", "updatedTimestamp", "startDateTimestamp", "endDateTimestamp"})
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Order {
 
+    /* The object @Pattern check */
+    private static final Constraints.Regexp OBJECT_PATTERN =
+        Constraints.choices("order");
+
+    /* The status @Pattern check */
+    private static final Constraints.Regexp STATUS_PATTERN =
+        Constraints.choices("active|created|paid|past_due|refunded|trialing|unpaid");
+
+    /* The order item writer, flushing once per array rather than once per item */
+    private static final ObjectWriter ITEM_WRITER =
+        BookkeeperCodecs.writer(OrderItem.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
     /* The order unique id */
     private Integer id;
 
@@ -51,6 +74,7 @@ public class Order {
     @NotEmpty
     @NotNull
     @Pattern(regexp = "order")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String object;
 
     /* The order amount (in the smallest unit of the currency) */
@@ -66,6 +90,7 @@ public class Order {
     private Integer created;
 
     /* The order currency id */
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String currency;
 
     /* The order subject identifier, likely an ORCID or DataONE group DN */
@@ -90,12 +115,14 @@ public class Order {
     /* The name of the order, set by the customer */
     private String name;
 
-    /* The order status */
-    @Pattern(regexp = "active|created|paid|past_due|refunded|trialing|unpaid")
-    private String status;
+    /* The order status, or null when it is not set or not a known status */
+    private OrderStatus status;
+
+    /* The order status value when it is not a known status, kept for the wire format */
+    private String unknownStatus;
 
     /* The order status transitions (history of status/timestamp key/value pairs*/
-    private ObjectNode statusTransitions;
+    private StatusHistory statusTransitions;
 
     /* The order update date (seconds since the epoch) */
     private Integer updated;
@@ -112,6 +139,9 @@ public class Order {
     /* The quotas associated with the product, if any */
     private List<Quota> quotas;
 
+    /* The cached item totals, or null when they must be computed */
+    private volatile OrderTotals totals;
+
     /**
      * Construct an empty order
      */
@@ -176,8 +206,8 @@ public class Order {
         this.items = items;
         this.metadata = metadata;
         this.name = name;
-        this.status = status;
-        this.statusTransitions = statusTransitions;
+        setStatus(status);
+        setStatusTransitions(statusTransitions);
         this.updated = updated;
         this.seriesId = seriesId;
         this.startDate = startDate;
@@ -239,19 +269,31 @@ public class Order {
         this.amount = amount;
     }
 
+    /**
+     * Get the order total amount, computed from the order items. The total is
+     * serialized, but ignored when an order is read.
+     * @return total the sum of the order item amounts
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public long getTotalAmount() {
+        return getTotals().getTotal();
+    }
 
-    @JsonProperty
-    public Integer getTotalAmount() {
-        Integer total = 0;
-
-        // If we have an item list, total the items
-        if ( ! getItems().isEmpty() ) {
-            for (OrderItem item : getItems() ) {
-                total = total + item.getAmount();
-            }
+    /**
+     * Get the order totals by item type and currency. The totals are computed once and
+     * cached until the items or currency are set again. After adding, removing or
+     * replacing an item, or changing an item in place, set the items again.
+     * @return totals the order totals
+     */
+    public OrderTotals getTotals() {
+        OrderTotals current = totals;
+        if ( current == null ) {
+            current = OrderTotals.of(items, currency);
+            totals = current;
         }
-        return total;
+        return current;
     }
+
     /**
      * Get the order amount returned
      * @return the order amount returned
@@ -306,6 +348,14 @@ public class Order {
         this.created = created;
     }
 
+    /**
+     * Get the order creation date as an ISO 8601 timestamp string
+     * @return createdTimestamp the order creation date as an ISO 8601 timestamp string, or null
+     */
+    public String getCreatedTimestamp() {
+        return Timestamps.format(getCreated());
+    }
+
     /**
      * Get the order currency code
      * @return currency the order currency code
@@ -322,6 +372,7 @@ public class Order {
     @JsonProperty
     public void setCurrency(String currency) {
         this.currency = currency;
+        this.totals = null;
     }
 
     /**
@@ -394,6 +445,7 @@ public class Order {
     @JsonProperty
     public void setItems(List<OrderItem> items) {
         this.items = items;
+        this.totals = null;
     }
 
     /**
@@ -434,10 +486,10 @@ public class Order {
 
     /**
      * Get the order status
-     * @return status the status of the order
+     * @return status the status of the order, or null if it is not set or not a known status
      */
-    @JsonProperty
-    public String getStatus() {
+    @JsonIgnore
+    public OrderStatus getOrderStatus() {
         return status;
     }
 
@@ -445,27 +497,92 @@ public class Order {
      * Set the order status
      * @param status the status of the order
      */
-    @JsonProperty
-    public void setStatus(String status) {
+    @JsonIgnore
+    public void setOrderStatus(OrderStatus status) {
         this.status = status;
+        this.unknownStatus = null;
+    }
+
+    /**
+     * Get the order status value
+     * @return status the status of the order, one of
+     * active|created|paid|past_due|refunded|trialing|unpaid
+     */
+    @JsonProperty("status")
+    @Pattern(regexp = "active|created|paid|past_due|refunded|trialing|unpaid")
+    public String getStatus() {
+        return status == null ? unknownStatus : status.getValue();
+    }
+
+    /**
+     * Set the order status value. A value that is not an order status is kept, and
+     * reported by validate().
+     * @param status the status of the order, one of
+     * active|created|paid|past_due|refunded|trialing|unpaid
+     */
+    @JsonProperty("status")
+    public void setStatus(String status) {
+        this.status = OrderStatus.find(status);
+        this.unknownStatus = this.status == null ? status : null;
     }
 
     /**
-     * Get the order status transitions
+     * Get the times the order entered each status
+     * @return statusTransitions the order status history
+     */
+    @JsonProperty("statusTransitions")
+    public StatusHistory getStatusHistory() {
+        return statusTransitions;
+    }
+
+    /**
+     * Set the times the order entered each status
+     * @param statusTransitions the order status history
+     */
+    @JsonProperty("statusTransitions")
+    public void setStatusHistory(StatusHistory statusTransitions) {
+        this.statusTransitions = statusTransitions;
+    }
+
+    /**
+     * Get the order status transitions as a JSON object. The object is a copy of the
+     * status history, so changes to it do not affect the order.
      * @return statusTransitions the JSON object of status transitions
      */
-    @JsonProperty
+    @JsonIgnore
     public ObjectNode getStatusTransitions() {
-        return statusTransitions;
+        return statusTransitions == null ? null :
+            statusTransitions.toObjectNode(BookkeeperCodecs.nodeFactory());
     }
 
     /**
-     * Set the order status transitions
+     * Set the order status transitions from a JSON object
      * @param statusTransitions the JSON object of status transitions
+     * @throws IllegalArgumentException when a status value is not an integer timestamp
      */
-    @JsonProperty
+    @JsonIgnore
     public void setStatusTransitions(ObjectNode statusTransitions) {
-        this.statusTransitions = statusTransitions;
+        this.statusTransitions = statusTransitions == null ? null :
+            StatusHistory.fromObjectNode(statusTransitions);
+    }
+
+    /**
+     * Move the order to a new status and record the time it did so
+     * @param next the new order status
+     * @param timestamp the time of the transition in seconds since the epoch
+     * @throws IllegalStateException when the current status cannot move to the new status
+     */
+    public void transition(OrderStatus next, int timestamp) {
+        if ( status != null && ! status.canTransitionTo(next) ) {
+            throw new IllegalStateException("An order cannot move from " + status.getValue() +
+                " to " + next.getValue());
+        }
+        if ( statusTransitions == null ) {
+            statusTransitions = new StatusHistory();
+        }
+        statusTransitions.record(next, timestamp);
+        status = next;
+        unknownStatus = null;
     }
 
     /**
@@ -486,6 +603,14 @@ public class Order {
         this.updated = updated;
     }
 
+    /**
+     * Get the order updated date as an ISO 8601 timestamp string
+     * @return updatedTimestamp the order updated date as an ISO 8601 timestamp string, or null
+     */
+    public String getUpdatedTimestamp() {
+        return Timestamps.format(getUpdated());
+    }
+
     /**
      * Get the order series identifier
      * @return the order series identifier
@@ -522,6 +647,14 @@ public class Order {
         this.startDate = startDate;
     }
 
+    /**
+     * Get the order start date as an ISO 8601 timestamp string
+     * @return startDateTimestamp the order start date as an ISO 8601 timestamp string, or null
+     */
+    public String getStartDateTimestamp() {
+        return Timestamps.format(getStartDate());
+    }
+
     /**
      * Get the order end date
      * @return the order end date
@@ -540,6 +673,14 @@ public class Order {
         this.endDate = endDate;
     }
 
+    /**
+     * Get the order end date as an ISO 8601 timestamp string
+     * @return endDateTimestamp the order end date as an ISO 8601 timestamp string, or null
+     */
+    public String getEndDateTimestamp() {
+        return Timestamps.format(getEndDate());
+    }
+
     /**
      * Get the order quotas
      * @return quotas the order quotas
@@ -565,7 +706,7 @@ public class Order {
      */
     public String getChargeJSON() throws JsonProcessingException {
         if ( charge != null ) {
-            return new ObjectMapper().writeValueAsString(getCharge());
+            return BookkeeperCodecs.toJSON(getCharge());
         } else {
             return "{}";
         }
@@ -579,16 +720,51 @@ public class Order {
      */
     public String getItemsJSON() throws IOException {
         if ( items != null ) {
-            ObjectMapper mapper = new ObjectMapper();
-            ArrayNode itemsArray = mapper.createArrayNode();
+            // Write into Jackson's per-thread recycled buffers rather than a fresh StringWriter
+            SegmentedStringWriter writer =
+                new SegmentedStringWriter(BufferRecyclers.getBufferRecycler());
+            writeItemsJSON(writer);
+            return writer.getAndClear();
+        } else {
+            return "[]";
+        }
+    }
 
+    /**
+     * Write the items list as a JSON array to the given writer. The writer is flushed but not closed.
+     * @param writer the writer to receive the JSON array
+     * @throws IOException an I/O exception
+     */
+    public void writeItemsJSON(Writer writer) throws IOException {
+        try (JsonGenerator generator = BookkeeperCodecs.factory().createGenerator(writer)) {
+            writeItems(generator);
+        }
+    }
+
+    /**
+     * Write the items list as a UTF-8 encoded JSON array to the given stream.
+     * The stream is flushed but not closed.
+     * @param outputStream the stream to receive the JSON array
+     * @throws IOException an I/O exception
+     */
+    public void writeItemsJSON(OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = BookkeeperCodecs.factory().createGenerator(outputStream)) {
+            writeItems(generator);
+        }
+    }
+
+    /*
+     * Stream the items array through the generator in a single pass
+     */
+    private void writeItems(JsonGenerator generator) throws IOException {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartArray();
+        if ( items != null ) {
             for (OrderItem item : items) {
-                itemsArray.add(mapper.readTree(mapper.writeValueAsString(item)));
+                ITEM_WRITER.writeValue(generator, item);
             }
-            return itemsArray.toString();
-        } else {
-            return "[]";
         }
+        generator.writeEndArray();
     }
 
     /**
@@ -598,7 +774,7 @@ public class Order {
      */
     public String getMetadataJSON() throws JsonProcessingException {
         if ( metadata != null ) {
-            return new ObjectMapper().writeValueAsString(getMetadata());
+            return BookkeeperCodecs.toJSON(getMetadata());
         } else {
             return "{}";
         }
@@ -611,12 +787,39 @@ public class Order {
      */
     public String getStatusTransitionsJSON() throws JsonProcessingException {
         if ( statusTransitions != null ) {
-            return new ObjectMapper().writeValueAsString(getStatusTransitions());
+            return BookkeeperCodecs.toJSON(statusTransitions);
         } else {
             return "{}";
         }
     }
 
+    /**
+     * Take an immutable snapshot of the order, including its items and quotas, which
+     * caches its hash code
+     * @return snapshot the order snapshot
+     */
+    public ImmutableOrder freeze() {
+        return new ImmutableOrder(this);
+    }
+
+    /**
+     * Check the bean validation constraints of the order and its items without reflection, reporting
+     * the same violations as a Validator would
+     * @return violations the constraint violations, empty if the order is valid
+     */
+    public List<Violation> validate() {
+        Constraints constraints = new Constraints();
+        constraints.notEmpty("object", object);
+        constraints.notNull("object", object);
+        constraints.pattern("object", object, OBJECT_PATTERN);
+        constraints.notNull("customer", customer);
+        constraints.pattern("status", getStatus(), STATUS_PATTERN);
+        constraints.notEmpty("items", items);
+        constraints.notNull("items", items);
+        constraints.valid("items", items, OrderItem::validate);
+        return constraints.violations();
+    }
+
     /**
      * Determine equality of another order
      * @param o the object to compare
@@ -640,8 +843,8 @@ public class Order {
             getItems().equals(order.getItems()) &&
             Objects.equals(getMetadata(), order.getMetadata()) &&
             Objects.equals(getName(), order.getName()) &&
-            getStatus().equals(order.getStatus()) &&
-            Objects.equals(getStatusTransitions(), order.getStatusTransitions()) &&
+            Objects.equals(getStatus(), order.getStatus()) &&
+            Objects.equals(getStatusHistory(), order.getStatusHistory()) &&
             Objects.equals(getUpdated(), order.getUpdated()) &&
             getSeriesId().equals(order.getSeriesId()) &&
             Objects.equals(getStartDate(), order.getStartDate()) &&
@@ -657,7 +860,7 @@ public class Order {
     public int hashCode() {
         return Objects.hash(getId(), getObject(), getAmount(), getAmountReturned(),
             getCharge(), getCreated(), getCurrency(), getSubject(), getCustomer(),
-            getEmail(), getItems(), getMetadata(), getName(), getStatus(), getStatusTransitions(),
+            getEmail(), getItems(), getMetadata(), getName(), getStatus(), getStatusHistory(),
             getUpdated(), getSeriesId(), getStartDate(), getEndDate(), getQuotas());
     }
 }
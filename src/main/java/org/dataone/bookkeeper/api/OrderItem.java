@@ -22,12 +22,17 @@
 package org.dataone.bookkeeper.api;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.dataone.bookkeeper.codec.CanonicalStringDeserializer;
 
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -36,9 +41,14 @@ import java.util.Objects;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class OrderItem {
 
+    /* The type @Pattern check */
+    private static final Constraints.Regexp TYPE_PATTERN =
+        Constraints.choices("sku|tax|shipping|discount");
+
     /* The order item object type */
     @NotNull
     @NotEmpty
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String object;
 
     /* The order item amount */
@@ -46,6 +56,7 @@ public class OrderItem {
     private Integer amount;
 
     /* The order item currency */
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String currency;
 
     /* The order item description */
@@ -63,6 +74,7 @@ public class OrderItem {
     @NotNull
     @NotEmpty
     @Pattern(regexp = "sku|tax|shipping|discount")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String type;
 
     /**
@@ -80,18 +92,41 @@ public class OrderItem {
         // Return an empty Feature instance when the JSON object is empty
         if ( ! json.equals("{}") ) {
 
-            // Otherwise try to build the Feature
-            OrderItem orderItem = new ObjectMapper().readValue(json, OrderItem.class);
-            this.object = orderItem.getObject();
-            this.amount = orderItem.getAmount();
-            this.currency = orderItem.getCurrency();
-            this.description = orderItem.getDescription();
-            this.parent = orderItem.getParent();
-            this.quantity = orderItem.getQuantity();
-            this.type = orderItem.getType();
+            // Otherwise read the JSON directly into this OrderItem
+            BookkeeperCodecs.readInto(this, json);
         }
     }
 
+    /**
+     * Read an order item from UTF-8 encoded JSON bytes
+     * @param json the JSON bytes
+     * @return orderItem the order item
+     * @throws IOException when an I/O exception occurs
+     */
+    public static OrderItem fromJson(byte[] json) throws IOException {
+        return BookkeeperCodecs.read(OrderItem.class, json);
+    }
+
+    /**
+     * Read an order item from the remaining UTF-8 encoded JSON bytes of a buffer
+     * @param json the JSON buffer, its position is left unchanged
+     * @return orderItem the order item
+     * @throws IOException when an I/O exception occurs
+     */
+    public static OrderItem fromJson(ByteBuffer json) throws IOException {
+        return BookkeeperCodecs.read(OrderItem.class, json);
+    }
+
+    /**
+     * Read an order item from a JSON stream
+     * @param json the JSON stream, closed when read
+     * @return orderItem the order item
+     * @throws IOException when an I/O exception occurs
+     */
+    public static OrderItem fromJson(InputStream json) throws IOException {
+        return BookkeeperCodecs.read(OrderItem.class, json);
+    }
+
     /**
      * Construct an order item
      * @param object the order item object type
@@ -232,6 +267,32 @@ public class OrderItem {
         this.type = type;
     }
 
+    /**
+     * Take an immutable snapshot of the order item, which caches its hash code
+     * @return snapshot the order item snapshot
+     */
+    public ImmutableOrderItem freeze() {
+        return new ImmutableOrderItem(this);
+    }
+
+    /**
+     * Check the bean validation constraints of the order item without reflection, reporting
+     * the same violations as a Validator would
+     * @return violations the constraint violations, empty if the order item is valid
+     */
+    public List<Violation> validate() {
+        Constraints constraints = new Constraints();
+        constraints.notNull("object", object);
+        constraints.notEmpty("object", object);
+        constraints.notNull("amount", amount);
+        constraints.notNull("parent", parent);
+        constraints.notNull("quantity", quantity);
+        constraints.notNull("type", type);
+        constraints.notEmpty("type", type);
+        constraints.pattern("type", type, TYPE_PATTERN);
+        return constraints.violations();
+    }
+
     /**
      * Determine order item equality
      * @param o the object to compare
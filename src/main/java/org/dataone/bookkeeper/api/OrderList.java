@@ -24,6 +24,8 @@ package org.dataone.bookkeeper.api;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -65,4 +67,14 @@ public class OrderList extends BaseList {
     public void setOrders(List<Order> orders) {
         this.orders = orders;
     }
+
+    /**
+     * Read an order list response incrementally, one Order at a time
+     * @param inputStream the JSON order list response
+     * @return reader the reader over the orders in the response
+     * @throws IOException when the response cannot be read
+     */
+    public static StreamingListReader<Order> stream(InputStream inputStream) throws IOException {
+        return new StreamingListReader<>(inputStream, "orders", Order.class);
+    }
 }
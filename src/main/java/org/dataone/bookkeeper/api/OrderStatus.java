@@ -0,0 +1,143 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * The status of an order, in lifecycle order. Each status serializes as its lowercase
+ * value, and knows the statuses an order may move to from it.
+ */
+public enum OrderStatus {
+
+    CREATED("created"),
+    TRIALING("trialing"),
+    ACTIVE("active"),
+    PAID("paid"),
+    PAST_DUE("past_due"),
+    UNPAID("unpaid"),
+    REFUNDED("refunded");
+
+    /* The statuses, indexed by ordinal */
+    private static final OrderStatus[] VALUES = values();
+
+    /* The number of statuses */
+    public static final int COUNT = VALUES.length;
+
+    static {
+        CREATED.allow(TRIALING, ACTIVE, PAID, PAST_DUE, UNPAID);
+        TRIALING.allow(ACTIVE, PAID, PAST_DUE, UNPAID);
+        ACTIVE.allow(PAID, PAST_DUE, UNPAID, REFUNDED);
+        PAID.allow(ACTIVE, PAST_DUE, REFUNDED);
+        PAST_DUE.allow(ACTIVE, PAID, UNPAID);
+        UNPAID.allow(ACTIVE, PAID);
+    }
+
+    /* The serialized status value */
+    private final String value;
+
+    /* The bitmask of statuses reachable from this status, by ordinal */
+    private int transitions;
+
+    OrderStatus(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Get the serialized status value
+     * @return value the status value
+     */
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Determine if an order in this status may move to another status
+     * @param next the next status
+     * @return true if the transition is allowed
+     */
+    public boolean canTransitionTo(OrderStatus next) {
+        return (transitions & (1 << next.ordinal())) != 0;
+    }
+
+    /**
+     * Get the status of a serialized value
+     * @param value the status value
+     * @return status the order status
+     * @throws IllegalArgumentException when the value is not an order status
+     */
+    @JsonCreator
+    public static OrderStatus fromValue(String value) {
+        OrderStatus status = find(value);
+        if ( status == null ) {
+            throw new IllegalArgumentException("Unknown order status: " + value);
+        }
+        return status;
+    }
+
+    /**
+     * Get the status of a serialized value, if it is one
+     * @param value the status value
+     * @return status the order status, or null if the value is not an order status
+     */
+    public static OrderStatus find(String value) {
+        if ( value == null ) {
+            return null;
+        }
+        switch (value) {
+            case "created":
+                return CREATED;
+            case "trialing":
+                return TRIALING;
+            case "active":
+                return ACTIVE;
+            case "paid":
+                return PAID;
+            case "past_due":
+                return PAST_DUE;
+            case "unpaid":
+                return UNPAID;
+            case "refunded":
+                return REFUNDED;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Get a status by ordinal without copying the values array
+     * @param ordinal the status ordinal
+     * @return status the order status
+     */
+    static OrderStatus of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /* Allow transitions to the given statuses */
+    private void allow(OrderStatus... next) {
+        for (OrderStatus status : next) {
+            transitions |= 1 << status.ordinal();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The totals of an order's items, summed as longs so that large multi-year orders do
+ * not overflow. Totals are kept per item type (sku, tax, shipping and discount) and per
+ * currency, so invoices can be rendered without summing the items again.
+ *
+ * Totals are immutable. Order caches them until its items or currency are set again.
+ */
+public final class OrderTotals {
+
+    /* The item types with their own totals */
+    private static final String[] TYPES = {"sku", "tax", "shipping", "discount"};
+
+    /* The totals of an order without items */
+    private static final OrderTotals EMPTY = new OrderTotals(0L, new long[TYPES.length + 1],
+        Collections.<String, Long>emptyMap());
+
+    /* The total of all item amounts */
+    private final long total;
+
+    /* The totals by item type, in TYPES order, then items of any other type */
+    private final long[] typeTotals;
+
+    /* The totals by currency */
+    private final Map<String, Long> currencyTotals;
+
+    private OrderTotals(long total, long[] typeTotals, Map<String, Long> currencyTotals) {
+        this.total = total;
+        this.typeTotals = typeTotals;
+        this.currencyTotals = currencyTotals;
+    }
+
+    /**
+     * Compute the totals of order items. Null items and items without an amount are skipped.
+     * @param items the order items, or null
+     * @param orderCurrency the currency of items that do not name their own, or null
+     * @return totals the order totals
+     */
+    public static OrderTotals of(List<OrderItem> items, String orderCurrency) {
+        if ( items == null || items.isEmpty() ) {
+            return EMPTY;
+        }
+        long total = 0L;
+        long[] typeTotals = new long[TYPES.length + 1];
+        Map<String, Long> currencyTotals = new LinkedHashMap<>(2);
+        for (OrderItem item : items) {
+            Integer amount = item == null ? null : item.getAmount();
+            if ( amount == null ) {
+                continue;
+            }
+            total += amount;
+            typeTotals[typeIndex(item.getType())] += amount;
+            String currency = item.getCurrency() == null ? orderCurrency : item.getCurrency();
+            if ( currency != null ) {
+                currencyTotals.merge(currency, (long) amount, Long::sum);
+            }
+        }
+        return new OrderTotals(total, typeTotals, Collections.unmodifiableMap(currencyTotals));
+    }
+
+    /**
+     * Get the total of all item amounts, in any currency
+     * @return total the total amount
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Get the total of the items of a type
+     * @param type the item type, one of sku|tax|shipping|discount
+     * @return total the total amount of the items of the type, or of items of any other
+     * type when the type is not one of these
+     */
+    public long getTypeTotal(String type) {
+        return typeTotals[typeIndex(type)];
+    }
+
+    /**
+     * Get the total of the sku items
+     * @return total the total amount of the sku items
+     */
+    public long getSkuTotal() {
+        return typeTotals[0];
+    }
+
+    /**
+     * Get the total of the tax items
+     * @return total the total amount of the tax items
+     */
+    public long getTaxTotal() {
+        return typeTotals[1];
+    }
+
+    /**
+     * Get the total of the shipping items
+     * @return total the total amount of the shipping items
+     */
+    public long getShippingTotal() {
+        return typeTotals[2];
+    }
+
+    /**
+     * Get the total of the discount items
+     * @return total the total amount of the discount items
+     */
+    public long getDiscountTotal() {
+        return typeTotals[3];
+    }
+
+    /**
+     * Get the total of the items in a currency
+     * @param currency the currency code
+     * @return total the total amount in the currency, 0 if no item uses it
+     */
+    public long getCurrencyTotal(String currency) {
+        Long currencyTotal = currencyTotals.get(currency);
+        return currencyTotal == null ? 0L : currencyTotal;
+    }
+
+    /**
+     * Get the currencies of the items
+     * @return currencies the item currencies, in item order
+     */
+    public Set<String> getCurrencies() {
+        return currencyTotals.keySet();
+    }
+
+    /*
+     * Get the total index of an item type
+     */
+    private static int typeIndex(String type) {
+        if ( type != null ) {
+            for (int i = 0; i < TYPES.length; i++) {
+                if ( TYPES[i].equals(type) ) {
+                    return i;
+                }
+            }
+        }
+        return TYPES.length;
+    }
+}
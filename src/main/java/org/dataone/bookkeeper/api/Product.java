@@ -25,17 +25,19 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.dataone.bookkeeper.codec.CanonicalStringDeserializer;
+import org.dataone.bookkeeper.codec.Timestamps;
 import org.hibernate.validator.constraints.Length;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -45,6 +47,22 @@ import java.util.Objects;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Product {
 
+    /* The object @Pattern check */
+    private static final Constraints.Regexp OBJECT_PATTERN =
+        Constraints.choices("product");
+
+    /* The interval @Pattern check */
+    private static final Constraints.Regexp INTERVAL_PATTERN =
+        Constraints.choices("day|week|month|year");
+
+    /* The type @Pattern check */
+    private static final Constraints.Regexp TYPE_PATTERN =
+        Constraints.choices("good|service");
+
+    /* The url @Pattern check */
+    private static final Constraints.Regexp URL_PATTERN =
+        Constraints.regexp("http.*");
+
     /* The product id */
     private Integer id;
 
@@ -52,6 +70,7 @@ public class Product {
     @NotEmpty
     @NotNull
     @Pattern(regexp = "product")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String object;
 
     /* The product visibility status (true or false) */
@@ -73,6 +92,7 @@ public class Product {
     @NotEmpty
     @NotNull
     @Length(max = 3)
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String currency;
 
     /* The product creation timestamp (from the unix epoch in seconds)*/
@@ -88,6 +108,7 @@ public class Product {
     @NotEmpty
     @NotNull
     @Pattern(regexp = "day|week|month|year")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String interval;
 
     /* The product name */
@@ -104,6 +125,7 @@ public class Product {
     @NotEmpty
     @NotNull
     @Pattern(regexp = "good|service")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String type;
 
     /* The product unit label used on invoices and charge receipts for type=service*/
@@ -293,12 +315,10 @@ public class Product {
 
     /**
      * Get the creation date as an ISO 8601 timestamp string
-     * @return creationDate the creation date as an ISO 8601 timestamp string
+     * @return creationDate the creation date as an ISO 8601 timestamp string, or null
      */
     public String getCreatedTimestamp() {
-
-        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
-            return formatter.format(new Date((long) getCreated().intValue() * 1000));
+        return Timestamps.format(getCreated());
     }
 
     /**
@@ -398,7 +418,7 @@ public class Product {
      */
     public String getMetadataJSON() throws JsonProcessingException {
         if ( metadata != null ) {
-            return new ObjectMapper().writeValueAsString(getMetadata());
+            return BookkeeperCodecs.toJSON(getMetadata());
         } else {
             return "{}";
         }
@@ -452,6 +472,41 @@ public class Product {
         this.interval = interval;
     }
 
+    /**
+     * Check the bean validation constraints of the product without reflection, reporting
+     * the same violations as a Validator would
+     * @return violations the constraint violations, empty if the product is valid
+     */
+    public List<Violation> validate() {
+        Constraints constraints = new Constraints();
+        constraints.notEmpty("object", object);
+        constraints.notNull("object", object);
+        constraints.pattern("object", object, OBJECT_PATTERN);
+        constraints.notNull("amount", amount);
+        constraints.min("amount", amount, 0);
+        constraints.notEmpty("caption", caption);
+        constraints.notNull("caption", caption);
+        constraints.maxLength("caption", caption, 500);
+        constraints.notEmpty("currency", currency);
+        constraints.notNull("currency", currency);
+        constraints.maxLength("currency", currency, 3);
+        constraints.notEmpty("description", description);
+        constraints.notNull("description", description);
+        constraints.maxLength("description", description, 1000);
+        constraints.notEmpty("interval", interval);
+        constraints.notNull("interval", interval);
+        constraints.pattern("interval", interval, INTERVAL_PATTERN);
+        constraints.notEmpty("name", name);
+        constraints.notNull("name", name);
+        constraints.maxLength("name", name, 250);
+        constraints.maxLength("statementDescriptor", statementDescriptor, 100);
+        constraints.notEmpty("type", type);
+        constraints.notNull("type", type);
+        constraints.pattern("type", type, TYPE_PATTERN);
+        constraints.pattern("url", url, URL_PATTERN);
+        return constraints.violations();
+    }
+
     /**
      * Determine object equality based on the equality of all fields
      * @param o the object to be compared
@@ -24,12 +24,17 @@ package org.dataone.bookkeeper.api;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.dataone.bookkeeper.codec.CanonicalStringDeserializer;
 
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -38,6 +43,18 @@ import java.util.Objects;
 @JsonIgnoreProperties(ignoreUnknown=true)
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Quota {
+
+    /* The object @Pattern check */
+    private static final Constraints.Regexp OBJECT_PATTERN =
+        Constraints.choices("quota");
+
+    /* The quota type @Pattern check */
+    private static final Constraints.Regexp QUOTA_TYPE_PATTERN =
+        Constraints.choices("portal|storage|repository_storage");
+
+    /* The total usage reported when none has been set */
+    private static final Double NO_USAGE = 0.0;
+
     /* The quota id (assigned by db layer) */
     private Integer id;
 
@@ -45,12 +62,14 @@ public class Quota {
     @NotEmpty
     @NotNull
     @Pattern(regexp = "quota")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String object;
 
     /* The quota type */
     @NotEmpty
     @Pattern(regexp = "portal|storage|repository_storage")
     @NotNull
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String quotaType;
 
     /* The quota soft limit */
@@ -65,6 +84,7 @@ public class Quota {
     /* The quota unit */
     @NotEmpty
     @NotNull
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String unit;
 
     /* The quota order id */
@@ -94,21 +114,41 @@ public class Quota {
         // Return an empty Quota instance when the JSON object is empty
         if ( ! json.equals("{}") ) {
 
-            // Otherwise try to build the Quota
-            Quota quota = new ObjectMapper().readValue(json, Quota.class);
-            this.id = quota.id;
-            this.object = quota.object;
-            this.quotaType = quota.quotaType;
-            this.softLimit = quota.softLimit;
-            this.hardLimit = quota.hardLimit;
-            this.totalUsage = quota.totalUsage;
-            this.unit = quota.unit;
-            this.orderId = quota.orderId;
-            this.subject = quota.subject;
-            this.name = quota.name;
+            // Otherwise read the JSON directly into this Quota
+            BookkeeperCodecs.readInto(this, json);
         }
     }
 
+    /**
+     * Read a quota from UTF-8 encoded JSON bytes
+     * @param json the JSON bytes
+     * @return quota the quota
+     * @throws IOException when an I/O exception occurs
+     */
+    public static Quota fromJson(byte[] json) throws IOException {
+        return BookkeeperCodecs.read(Quota.class, json);
+    }
+
+    /**
+     * Read a quota from the remaining UTF-8 encoded JSON bytes of a buffer
+     * @param json the JSON buffer, its position is left unchanged
+     * @return quota the quota
+     * @throws IOException when an I/O exception occurs
+     */
+    public static Quota fromJson(ByteBuffer json) throws IOException {
+        return BookkeeperCodecs.read(Quota.class, json);
+    }
+
+    /**
+     * Read a quota from a JSON stream
+     * @param json the JSON stream, closed when read
+     * @return quota the quota
+     * @throws IOException when an I/O exception occurs
+     */
+    public static Quota fromJson(InputStream json) throws IOException {
+        return BookkeeperCodecs.read(Quota.class, json);
+    }
+
     /**
      * Construct a quota
      * @param id the quota identifier
@@ -240,14 +280,19 @@ public class Quota {
 
     /**
      * Get the quota total usage
-     * @return totalUsage  the quota total usage
+     * @return totalUsage  the quota total usage, zero when it has not been set
      */
     @JsonProperty
     public Double getTotalUsage() {
-        if (totalUsage == null) {
-            totalUsage = 0.0;
-        }
-        return totalUsage;
+        return totalUsage == null ? NO_USAGE : totalUsage;
+    }
+
+    /**
+     * Determine if the quota total usage has been set
+     * @return true if the total usage is set
+     */
+    public boolean hasTotalUsage() {
+        return totalUsage != null;
     }
 
     /**
@@ -329,6 +374,38 @@ public class Quota {
         this.name = name;
     }
 
+    /**
+     * Take an immutable snapshot of the quota, which caches its hash code
+     * @return snapshot the quota snapshot
+     */
+    public ImmutableQuota freeze() {
+        return new ImmutableQuota(this);
+    }
+
+    /**
+     * Check the bean validation constraints of the quota without reflection, reporting
+     * the same violations as a Validator would
+     * @return violations the constraint violations, empty if the quota is valid
+     */
+    public List<Violation> validate() {
+        Constraints constraints = new Constraints();
+        constraints.notEmpty("object", object);
+        constraints.notNull("object", object);
+        constraints.pattern("object", object, OBJECT_PATTERN);
+        constraints.notEmpty("quotaType", quotaType);
+        constraints.pattern("quotaType", quotaType, QUOTA_TYPE_PATTERN);
+        constraints.notNull("quotaType", quotaType);
+        constraints.notNull("softLimit", softLimit);
+        constraints.notNull("hardLimit", hardLimit);
+        constraints.notNull("totalUsage", totalUsage);
+        constraints.notEmpty("unit", unit);
+        constraints.notNull("unit", unit);
+        // The getters repeat @NotNull, which the Validator reports separately
+        constraints.notNull("softLimit", getSoftLimit());
+        constraints.notNull("hardLimit", getHardLimit());
+        return constraints.violations();
+    }
+
     /**
      * Determine object equality based on the equality of all fields
      * @param o the object to be compared
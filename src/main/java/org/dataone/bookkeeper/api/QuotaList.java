@@ -24,6 +24,8 @@ package org.dataone.bookkeeper.api;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -65,4 +67,14 @@ public class QuotaList extends BaseList {
     public void setQuotas(List<Quota> quotas) {
         this.quotas = quotas;
     }
+
+    /**
+     * Read a quota list response incrementally, one Quota at a time
+     * @param inputStream the JSON quota list response
+     * @return reader the reader over the quotas in the response
+     * @throws IOException when the response cannot be read
+     */
+    public static StreamingListReader<Quota> stream(InputStream inputStream) throws IOException {
+        return new StreamingListReader<>(inputStream, "quotas", Quota.class);
+    }
 }
@@ -0,0 +1,268 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The times an order entered each status, in seconds since the epoch. Timestamps are
+ * held in an int array indexed by status ordinal, with a bitmask of the recorded
+ * statuses, so looking up when an order became paid is an array read.
+ *
+ * A history serializes as a JSON object of status value to timestamp, such as
+ * {"created": 1559768309, "paid": 1559768309}, with statuses in lifecycle order. Keys
+ * that are not order statuses, from stored orders or newer servers, are kept as they
+ * were read and written back after the statuses.
+ */
+@JsonSerialize(using = StatusHistorySerializer.class)
+@JsonDeserialize(using = StatusHistoryDeserializer.class)
+public class StatusHistory {
+
+    /* The timestamps by status ordinal */
+    private final int[] timestamps = new int[OrderStatus.COUNT];
+
+    /* The bitmask of recorded statuses, by ordinal */
+    private int recorded;
+
+    /* The entries whose keys are not order statuses, or null when there are none */
+    private ObjectNode unknown;
+
+    /**
+     * Construct an empty status history
+     */
+    public StatusHistory() {
+    }
+
+    /**
+     * Record the time an order entered a status, replacing any earlier time
+     * @param status the order status
+     * @param timestamp the time in seconds since the epoch
+     */
+    public void record(OrderStatus status, int timestamp) {
+        timestamps[status.ordinal()] = timestamp;
+        recorded |= 1 << status.ordinal();
+    }
+
+    /**
+     * Remove the time an order entered a status
+     * @param status the order status
+     */
+    public void remove(OrderStatus status) {
+        timestamps[status.ordinal()] = 0;
+        recorded &= ~(1 << status.ordinal());
+    }
+
+    /**
+     * Determine if the history records a status
+     * @param status the order status
+     * @return true if the status is recorded
+     */
+    public boolean contains(OrderStatus status) {
+        return (recorded & (1 << status.ordinal())) != 0;
+    }
+
+    /**
+     * Get the time an order entered a status
+     * @param status the order status
+     * @return timestamp the time in seconds since the epoch, or 0 if it is not recorded
+     */
+    public int getTimestamp(OrderStatus status) {
+        return timestamps[status.ordinal()];
+    }
+
+    /**
+     * Keep an entry whose key is not an order status, replacing any with the same key
+     * @param key the entry key
+     * @param value the entry value
+     */
+    void putUnknown(String key, JsonNode value) {
+        if ( unknown == null ) {
+            unknown = JsonNodeFactory.instance.objectNode();
+        }
+        unknown.set(key, value);
+    }
+
+    /**
+     * Get the entries whose keys are not order statuses
+     * @return unknown the entries, or null when there are none
+     */
+    ObjectNode getUnknown() {
+        return unknown;
+    }
+
+    /**
+     * Get the number of recorded statuses
+     * @return size the number of statuses
+     */
+    public int size() {
+        return Integer.bitCount(recorded);
+    }
+
+    /**
+     * Determine if no status is recorded
+     * @return true if the history is empty
+     */
+    public boolean isEmpty() {
+        return recorded == 0;
+    }
+
+    /**
+     * Get the recorded status with the latest timestamp, preferring the later status in
+     * lifecycle order on ties
+     * @return status the latest status, or null if the history is empty
+     */
+    public OrderStatus getLatest() {
+        OrderStatus latest = null;
+        for (int bits = recorded; bits != 0; bits &= bits - 1) {
+            int ordinal = Integer.numberOfTrailingZeros(bits);
+            if ( latest == null || timestamps[ordinal] >= timestamps[latest.ordinal()] ) {
+                latest = OrderStatus.of(ordinal);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Copy the history
+     * @return copy an independent copy of the history
+     */
+    public StatusHistory copy() {
+        StatusHistory copy = new StatusHistory();
+        System.arraycopy(timestamps, 0, copy.timestamps, 0, timestamps.length);
+        copy.recorded = recorded;
+        copy.unknown = unknown == null ? null : unknown.deepCopy();
+        return copy;
+    }
+
+    /**
+     * Get the recorded statuses as a bitmask of ordinals
+     * @return recorded the recorded statuses
+     */
+    int getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Convert the history to a JSON object of status value to timestamp
+     * @param nodeFactory the node factory
+     * @return statusTransitions the JSON object
+     */
+    public ObjectNode toObjectNode(JsonNodeFactory nodeFactory) {
+        ObjectNode node = nodeFactory.objectNode();
+        for (int bits = recorded; bits != 0; bits &= bits - 1) {
+            int ordinal = Integer.numberOfTrailingZeros(bits);
+            node.put(OrderStatus.of(ordinal).getValue(), timestamps[ordinal]);
+        }
+        if ( unknown != null ) {
+            node.setAll(unknown.deepCopy());
+        }
+        return node;
+    }
+
+    /**
+     * Build a history from a JSON object of status value to timestamp. Null timestamps are
+     * skipped, and keys that are not order statuses are kept as they are.
+     * @param node the JSON object
+     * @return history the status history
+     * @throws IllegalArgumentException when a status value is not an integer timestamp
+     */
+    public static StatusHistory fromObjectNode(ObjectNode node) {
+        StatusHistory history = new StatusHistory();
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while ( fields.hasNext() ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            OrderStatus status = OrderStatus.find(field.getKey());
+            if ( status == null ) {
+                history.putUnknown(field.getKey(), field.getValue().deepCopy());
+                continue;
+            }
+            if ( field.getValue().isNull() ) {
+                continue;
+            }
+            if ( ! field.getValue().canConvertToInt() || ! field.getValue().isIntegralNumber() ) {
+                throw new IllegalArgumentException("The " + field.getKey() +
+                    " status timestamp is not an integer: " + field.getValue());
+            }
+            history.record(status, field.getValue().intValue());
+        }
+        return history;
+    }
+
+    /**
+     * Determine equality of another status history
+     * @param o the object to compare
+     * @return true if they are equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StatusHistory that = (StatusHistory) o;
+        return recorded == that.recorded && Arrays.equals(timestamps, that.timestamps) &&
+            Objects.equals(unknown, that.unknown);
+    }
+
+    /**
+     * Generate a status history hash code
+     * @return hash the status history hash
+     */
+    @Override
+    public int hashCode() {
+        return 31 * (31 * recorded + Arrays.hashCode(timestamps)) + Objects.hashCode(unknown);
+    }
+
+    /**
+     * Get the history as a JSON-like string
+     * @return string the history string
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int bits = recorded; bits != 0; bits &= bits - 1) {
+            int ordinal = Integer.numberOfTrailingZeros(bits);
+            if ( builder.length() > 1 ) {
+                builder.append(", ");
+            }
+            builder.append(OrderStatus.of(ordinal).getValue()).append('=').append(timestamps[ordinal]);
+        }
+        if ( unknown != null ) {
+            Iterator<Map.Entry<String, JsonNode>> fields = unknown.fields();
+            while ( fields.hasNext() ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if ( builder.length() > 1 ) {
+                    builder.append(", ");
+                }
+                builder.append(field.getKey()).append('=').append(field.getValue());
+            }
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Deserialize a StatusHistory from a JSON object of status value to timestamp, reading
+ * the tokens directly rather than through an ObjectNode. Entries whose keys are not order
+ * statuses are read as trees and kept.
+ */
+public class StatusHistoryDeserializer extends StdDeserializer<StatusHistory> {
+
+    /**
+     * Construct a status history deserializer
+     */
+    public StatusHistoryDeserializer() {
+        super(StatusHistory.class);
+    }
+
+    /**
+     * Deserialize the history
+     * @param parser the JSON parser, positioned at the start of the object
+     * @param context the deserialization context
+     * @return history the status history
+     * @throws IOException an I/O exception, or a mapping exception for a status timestamp
+     * that is not an integer
+     */
+    @Override
+    public StatusHistory deserialize(JsonParser parser, DeserializationContext context)
+        throws IOException {
+        JsonToken token = parser.currentToken();
+        if ( token == JsonToken.START_OBJECT ) {
+            token = parser.nextToken();
+        } else if ( token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT ) {
+            throw context.wrongTokenException(parser, StatusHistory.class, JsonToken.START_OBJECT,
+                "Status transitions must be an object");
+        }
+        StatusHistory history = new StatusHistory();
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String name = parser.getCurrentName();
+            OrderStatus status = OrderStatus.find(name);
+            token = parser.nextToken();
+            if ( status == null ) {
+                history.putUnknown(name, context.readTree(parser));
+                continue;
+            }
+            if ( token == JsonToken.VALUE_NUMBER_INT ) {
+                history.record(status, parser.getIntValue());
+            } else if ( token != JsonToken.VALUE_NULL ) {
+                return context.reportInputMismatch(this,
+                    "The %s status timestamp must be an integer", name);
+            }
+        }
+        return history;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Serialize a StatusHistory as a JSON object of status value to timestamp, without
+ * building an intermediate ObjectNode. Entries whose keys are not order statuses follow
+ * the statuses.
+ */
+public class StatusHistorySerializer extends StdSerializer<StatusHistory> {
+
+    /**
+     * Construct a status history serializer
+     */
+    public StatusHistorySerializer() {
+        super(StatusHistory.class);
+    }
+
+    /**
+     * Serialize the history
+     * @param history the status history
+     * @param generator the JSON generator
+     * @param provider the serializer provider
+     * @throws IOException an I/O exception
+     */
+    @Override
+    public void serialize(StatusHistory history, JsonGenerator generator,
+                          SerializerProvider provider) throws IOException {
+        generator.writeStartObject(history);
+        for (int bits = history.getRecorded(); bits != 0; bits &= bits - 1) {
+            OrderStatus status = OrderStatus.of(Integer.numberOfTrailingZeros(bits));
+            generator.writeNumberField(status.getValue(), history.getTimestamp(status));
+        }
+        if ( history.getUnknown() != null ) {
+            Iterator<Map.Entry<String, JsonNode>> fields = history.getUnknown().fields();
+            while ( fields.hasNext() ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                provider.defaultSerializeField(field.getKey(), field.getValue(), generator);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Determine if the history is empty, as an empty ObjectNode would be
+     * @param provider the serializer provider
+     * @param history the status history
+     * @return true if the history records no status and has no other entries
+     */
+    @Override
+    public boolean isEmpty(SerializerProvider provider, StatusHistory history) {
+        return history.isEmpty() && history.getUnknown() == null;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * A base list type whose elements are produced on demand while the list is serialized,
+ * rather than being held in memory. The start, count, and total properties are written
+ * first, followed by the elements as they are pulled from the source. The elements can
+ * only be consumed once, and the source is closed after serialization.
+ * @param <T> the list element type
+ */
+@JsonSerialize(using = StreamingListSerializer.class)
+public abstract class StreamingList<T> extends BaseList implements Closeable {
+
+    /* The source of the list elements */
+    private final Iterator<? extends T> elements;
+
+    /* The resource to release once the elements are consumed, if any */
+    private final AutoCloseable source;
+
+    /**
+     * Construct a streaming list from an iterator
+     * @param elements the iterator producing the list elements
+     */
+    protected StreamingList(Iterator<? extends T> elements) {
+        this.elements = Objects.requireNonNull(elements, "elements");
+        this.source = null;
+    }
+
+    /**
+     * Construct a streaming list from a stream, such as one backed by a database cursor.
+     * The stream is closed when the list is closed.
+     * @param elements the stream producing the list elements
+     */
+    protected StreamingList(Stream<? extends T> elements) {
+        this.elements = elements.iterator();
+        this.source = elements;
+    }
+
+    /**
+     * Get the JSON property name of the elements array
+     * @return name the elements property name
+     */
+    @JsonIgnore
+    public abstract String getElementsName();
+
+    /**
+     * Get the type of the list elements
+     * @return type the element type
+     */
+    @JsonIgnore
+    public abstract Class<T> getElementType();
+
+    /**
+     * Get the iterator producing the list elements
+     * @return elements the list elements
+     */
+    @JsonIgnore
+    public Iterator<? extends T> getElements() {
+        return elements;
+    }
+
+    /**
+     * Close the source of the list elements
+     * @throws IOException when the source cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if ( source != null ) {
+            try {
+                source.close();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Read a list response one element at a time rather than binding the whole list in memory.
+ * The start, count, and total properties are available as soon as the reader is created
+ * when they precede the elements array, as they do in Bookkeeper responses; otherwise
+ * they become available once the elements have been consumed. The reader is closed,
+ * along with its input stream, when the elements are exhausted or when closed explicitly.
+ * @param <T> the list element type
+ */
+public class StreamingListReader<T> implements Iterator<T>, Closeable {
+
+    /* The parser positioned within the list response */
+    private final JsonParser parser;
+
+    /* The reader for the list elements */
+    private final ObjectReader elementReader;
+
+    /* The JSON property name of the elements array */
+    private final String elementsName;
+
+    /* The start index in the list */
+    private Integer start;
+
+    /* The subset count of the list */
+    private Integer count;
+
+    /* The total elements in the list */
+    private Integer total;
+
+    /* True while the parser is within the elements array */
+    private boolean inElements;
+
+    /* True when an element has been read but not yet returned */
+    private boolean hasPending;
+
+    /* The element read ahead by hasNext() */
+    private T pending;
+
+    /**
+     * Construct a reader over a JSON list response
+     * @param inputStream the JSON list response
+     * @param elementsName the JSON property name of the elements array
+     * @param elementType the type of the list elements
+     * @throws IOException when the response cannot be read
+     */
+    public StreamingListReader(InputStream inputStream, String elementsName,
+                               Class<T> elementType) throws IOException {
+        this.parser = BookkeeperCodecs.factory().createParser(inputStream);
+        this.elementReader = BookkeeperCodecs.reader(elementType);
+        this.elementsName = elementsName;
+        try {
+            if ( parser.nextToken() != JsonToken.START_OBJECT ) {
+                throw new JsonParseException(parser, "Expected a JSON list object");
+            }
+            readFields();
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the start index
+     * @return start the start paging index
+     */
+    public Integer getStart() {
+        return start;
+    }
+
+    /**
+     * Get the return count
+     * @return count the count of items returned
+     */
+    public Integer getCount() {
+        return count;
+    }
+
+    /**
+     * Get the total
+     * @return total the total items in the list
+     */
+    public Integer getTotal() {
+        return total;
+    }
+
+    /**
+     * Determine if there is another element, reading it from the response if needed
+     * @return true if there is another element
+     * @throws UncheckedIOException when the response cannot be read
+     */
+    @Override
+    public boolean hasNext() {
+        if ( hasPending ) {
+            return true;
+        }
+        if ( ! inElements ) {
+            return false;
+        }
+        try {
+            JsonToken token = parser.nextToken();
+            if ( token == JsonToken.END_ARRAY ) {
+                inElements = false;
+                readFields();
+                return false;
+            }
+            pending = token == JsonToken.VALUE_NULL ? null : elementReader.readValue(parser);
+            hasPending = true;
+            return true;
+        } catch (IOException e) {
+            closeQuietly();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Get the next element
+     * @return element the next list element
+     * @throws NoSuchElementException when there are no more elements
+     */
+    @Override
+    public T next() {
+        if ( ! hasNext() ) {
+            throw new NoSuchElementException();
+        }
+        T element = pending;
+        pending = null;
+        hasPending = false;
+        return element;
+    }
+
+    /**
+     * Get the remaining elements as a sequential stream, which closes this reader when closed
+     * @return elements the stream of list elements
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+            .onClose(this::closeQuietly);
+    }
+
+    /**
+     * Close the reader and its input stream
+     * @throws IOException when the input stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        inElements = false;
+        parser.close();
+    }
+
+    /*
+     * Read the list properties up to the start of the elements array, or to the end of the
+     * list object, skipping any properties that are not part of a list response
+     */
+    private void readFields() throws IOException {
+        JsonToken token;
+        while ( (token = parser.nextToken()) == JsonToken.FIELD_NAME ) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ( name.equals(elementsName) && value == JsonToken.START_ARRAY ) {
+                inElements = true;
+                return;
+            }
+            switch (name) {
+                case "start":
+                    start = readInteger(value);
+                    break;
+                case "count":
+                    count = readInteger(value);
+                    break;
+                case "total":
+                    total = readInteger(value);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if ( token != JsonToken.END_OBJECT ) {
+            throw new JsonParseException(parser, "Unexpected token in JSON list object: " + token);
+        }
+        // The whole list has been read
+        parser.close();
+    }
+
+    /* Read an optional integer property value */
+    private Integer readInteger(JsonToken value) throws IOException {
+        return value == JsonToken.VALUE_NULL ? null : parser.getIntValue();
+    }
+
+    /* Close the reader, ignoring any exception */
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            // Nothing more can be done with the response
+        }
+    }
+}
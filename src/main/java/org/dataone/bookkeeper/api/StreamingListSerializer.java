@@ -0,0 +1,86 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Serialize a StreamingList by writing its paging properties and then each element as it
+ * is produced, so memory use does not grow with the size of the list
+ */
+public class StreamingListSerializer extends StdSerializer<StreamingList<?>> {
+
+    /**
+     * Construct a streaming list serializer
+     */
+    @SuppressWarnings("unchecked")
+    public StreamingListSerializer() {
+        super((Class<StreamingList<?>>) (Class<?>) StreamingList.class);
+    }
+
+    /**
+     * Serialize the list
+     * @param list the streaming list
+     * @param generator the JSON generator
+     * @param provider the serializer provider
+     * @throws IOException an I/O exception
+     */
+    @Override
+    public void serialize(StreamingList<?> list, JsonGenerator generator,
+                          SerializerProvider provider) throws IOException {
+        try {
+            generator.writeStartObject(list);
+            if ( list.getStart() != null ) {
+                generator.writeNumberField("start", list.getStart());
+            }
+            if ( list.getCount() != null ) {
+                generator.writeNumberField("count", list.getCount());
+            }
+            if ( list.getTotal() != null ) {
+                generator.writeNumberField("total", list.getTotal());
+            }
+            generator.writeArrayFieldStart(list.getElementsName());
+
+            // Look up the element serializer once rather than per element
+            JsonSerializer<Object> serializer = provider.findValueSerializer(list.getElementType());
+            Iterator<?> elements = list.getElements();
+            while ( elements.hasNext() ) {
+                Object element = elements.next();
+                if ( element == null ) {
+                    provider.defaultSerializeNull(generator);
+                } else {
+                    serializer.serialize(element, generator, provider);
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } finally {
+            list.close();
+        }
+    }
+}
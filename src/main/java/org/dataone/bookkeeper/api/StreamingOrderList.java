@@ -0,0 +1,66 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * A list of orders streamed as a representation response, with the same JSON
+ * form as an OrderList. Use it for pages too large to hold in memory.
+ */
+public class StreamingOrderList extends StreamingList<Order> {
+
+    /**
+     * Construct a streaming order list from an iterator
+     * @param orders the iterator producing the orders
+     */
+    public StreamingOrderList(Iterator<? extends Order> orders) {
+        super(orders);
+    }
+
+    /**
+     * Construct a streaming order list from a stream, which is closed after serialization
+     * @param orders the stream producing the orders
+     */
+    public StreamingOrderList(Stream<? extends Order> orders) {
+        super(orders);
+    }
+
+    /**
+     * Get the JSON property name of the orders array
+     * @return name the orders property name
+     */
+    @Override
+    public String getElementsName() {
+        return "orders";
+    }
+
+    /**
+     * Get the element type
+     * @return type the Order type
+     */
+    @Override
+    public Class<Order> getElementType() {
+        return Order.class;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * A list of quotas streamed as a representation response, with the same JSON
+ * form as a QuotaList. Use it for pages too large to hold in memory.
+ */
+public class StreamingQuotaList extends StreamingList<Quota> {
+
+    /**
+     * Construct a streaming quota list from an iterator
+     * @param quotas the iterator producing the quotas
+     */
+    public StreamingQuotaList(Iterator<? extends Quota> quotas) {
+        super(quotas);
+    }
+
+    /**
+     * Construct a streaming quota list from a stream, which is closed after serialization
+     * @param quotas the stream producing the quotas
+     */
+    public StreamingQuotaList(Stream<? extends Quota> quotas) {
+        super(quotas);
+    }
+
+    /**
+     * Get the JSON property name of the quotas array
+     * @return name the quotas property name
+     */
+    @Override
+    public String getElementsName() {
+        return "quotas";
+    }
+
+    /**
+     * Get the element type
+     * @return type the Quota type
+     */
+    @Override
+    public Class<Quota> getElementType() {
+        return Quota.class;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * A list of quota usage instances streamed as a representation response, with the same JSON
+ * form as a UsageList. Use it for pages too large to hold in memory.
+ */
+public class StreamingUsageList extends StreamingList<Usage> {
+
+    /**
+     * Construct a streaming usage list from an iterator
+     * @param usages the iterator producing the usages
+     */
+    public StreamingUsageList(Iterator<? extends Usage> usages) {
+        super(usages);
+    }
+
+    /**
+     * Construct a streaming usage list from a stream, which is closed after serialization
+     * @param usages the stream producing the usages
+     */
+    public StreamingUsageList(Stream<? extends Usage> usages) {
+        super(usages);
+    }
+
+    /**
+     * Get the JSON property name of the usages array
+     * @return name the usages property name
+     */
+    @Override
+    public String getElementsName() {
+        return "usages";
+    }
+
+    /**
+     * Get the element type
+     * @return type the Usage type
+     */
+    @Override
+    public Class<Usage> getElementType() {
+        return Usage.class;
+    }
+}
@@ -21,13 +21,25 @@
 
 package org.dataone.bookkeeper.api;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.dataone.bookkeeper.codec.CanonicalStringDeserializer;
+
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
+import java.util.List;
 import java.util.Objects;
 
 public class Usage {
 
+    /* The object @Pattern check */
+    private static final Constraints.Regexp OBJECT_PATTERN =
+        Constraints.choices("usage");
+
+    /* The status @Pattern check */
+    private static final Constraints.Regexp STATUS_PATTERN =
+        Constraints.choices("active|inactive");
+
     /* The identifier of the quota usage */
     private Integer id;
 
@@ -35,6 +47,7 @@ public class Usage {
     @NotEmpty
     @NotNull
     @Pattern(regexp = "usage")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String object;
 
     /* The identifier of the associated quota */
@@ -51,9 +64,11 @@ public class Usage {
 
     /*  The status of the quota usage, either active or inactive */
     @Pattern(regexp = "active|inactive")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String status;
 
     /*  The identifier of the node the quota usage occurred on. */
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String nodeId;
     /**
      * Construct an empty usage instance
@@ -195,6 +210,25 @@ public class Usage {
      */
     public void setNodeId(String nodeId) { this.nodeId = nodeId; }
 
+    /**
+     * Check the bean validation constraints of the usage without reflection, reporting
+     * the same violations as a Validator would
+     * @return violations the constraint violations, empty if the usage is valid
+     */
+    public List<Violation> validate() {
+        Constraints constraints = new Constraints();
+        constraints.notEmpty("object", object);
+        constraints.notNull("object", object);
+        constraints.pattern("object", object, OBJECT_PATTERN);
+        constraints.notNull("quotaId", quotaId);
+        constraints.notNull("instanceId", instanceId);
+        constraints.notNull("quantity", quantity);
+        constraints.pattern("status", status, STATUS_PATTERN);
+        // The getter repeats @NotNull, which the Validator reports separately
+        constraints.notNull("quantity", getQuantity());
+        return constraints.violations();
+    }
+
     /**
      * Determine equality with the given object
      * @param o  the object to compare
@@ -24,6 +24,8 @@ package org.dataone.bookkeeper.api;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -65,4 +67,14 @@ public class UsageList extends BaseList {
     public void setUsages(List<Usage> usages) {
         this.usages = usages;
     }
+
+    /**
+     * Read a usage list response incrementally, one Usage at a time
+     * @param inputStream the JSON usage list response
+     * @return reader the reader over the usages in the response
+     * @throws IOException when the response cannot be read
+     */
+    public static StreamingListReader<Usage> stream(InputStream inputStream) throws IOException {
+        return new StreamingListReader<>(inputStream, "usages", Usage.class);
+    }
 }
@@ -23,12 +23,17 @@ package org.dataone.bookkeeper.api;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.dataone.bookkeeper.codec.CanonicalStringDeserializer;
 
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Objects;
 
 
@@ -39,16 +44,26 @@ import java.util.Objects;
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class UsageStatus {
 
+    /* The object @Pattern check */
+    private static final Constraints.Regexp OBJECT_PATTERN =
+        Constraints.choices("usagestatus");
+
+    /* The status @Pattern check */
+    private static final Constraints.Regexp STATUS_PATTERN =
+        Constraints.choices("active|inactive");
+
     /* The usagestatus object type */
     @NotEmpty
     @NotNull
     @Pattern(regexp = "usagestatus")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String object;
 
     /*  The status of the quota usage, either active or inactive */
     @NotEmpty
     @NotNull
     @Pattern(regexp = "active|inactive")
+    @JsonDeserialize(using = CanonicalStringDeserializer.class)
     private String status;
 
     /**
@@ -66,13 +81,41 @@ public class UsageStatus {
         // Return an empty Quota instance when the JSON object is empty
         if ( ! json.equals("{}") ) {
 
-            // Otherwise try to build the UsageStatus
-            UsageStatus usagestatus = new ObjectMapper().readValue(json, UsageStatus.class);
-            this.object = usagestatus.object;
-            this.status = usagestatus.status;
+            // Otherwise read the JSON directly into this UsageStatus
+            BookkeeperCodecs.readInto(this, json);
         }
     }
 
+    /**
+     * Read a usage status from UTF-8 encoded JSON bytes
+     * @param json the JSON bytes
+     * @return usageStatus the usage status
+     * @throws IOException when an I/O exception occurs
+     */
+    public static UsageStatus fromJson(byte[] json) throws IOException {
+        return BookkeeperCodecs.read(UsageStatus.class, json);
+    }
+
+    /**
+     * Read a usage status from the remaining UTF-8 encoded JSON bytes of a buffer
+     * @param json the JSON buffer, its position is left unchanged
+     * @return usageStatus the usage status
+     * @throws IOException when an I/O exception occurs
+     */
+    public static UsageStatus fromJson(ByteBuffer json) throws IOException {
+        return BookkeeperCodecs.read(UsageStatus.class, json);
+    }
+
+    /**
+     * Read a usage status from a JSON stream
+     * @param json the JSON stream, closed when read
+     * @return usageStatus the usage status
+     * @throws IOException when an I/O exception occurs
+     */
+    public static UsageStatus fromJson(InputStream json) throws IOException {
+        return BookkeeperCodecs.read(UsageStatus.class, json);
+    }
+
     /**
      * Construct a Usage instance
      * @param status  the usage status, either active or inactive
@@ -111,6 +154,22 @@ public class UsageStatus {
         this.status = status;
     }
 
+    /**
+     * Check the bean validation constraints of the usage status without reflection, reporting
+     * the same violations as a Validator would
+     * @return violations the constraint violations, empty if the usage status is valid
+     */
+    public List<Violation> validate() {
+        Constraints constraints = new Constraints();
+        constraints.notEmpty("object", object);
+        constraints.notNull("object", object);
+        constraints.pattern("object", object, OBJECT_PATTERN);
+        constraints.notEmpty("status", status);
+        constraints.notNull("status", status);
+        constraints.pattern("status", status, STATUS_PATTERN);
+        return constraints.violations();
+    }
+
     /**
      * Determine object equality based on the equality of all fields
      * @param o the object to be compared
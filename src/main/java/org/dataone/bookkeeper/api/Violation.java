@@ -0,0 +1,114 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import java.util.Objects;
+
+/**
+ * A constraint violation found by a model validate() method, with the same property
+ * path and message Hibernate Validator reports for the constraint.
+ */
+public final class Violation {
+
+    /* The path of the invalid property, such as "items[0].type" */
+    private final String propertyPath;
+
+    /* The violation message */
+    private final String message;
+
+    /* The invalid value */
+    private final Object invalidValue;
+
+    /**
+     * Construct a violation
+     * @param propertyPath the path of the invalid property
+     * @param message the violation message
+     * @param invalidValue the invalid value
+     */
+    public Violation(String propertyPath, String message, Object invalidValue) {
+        this.propertyPath = propertyPath;
+        this.message = message;
+        this.invalidValue = invalidValue;
+    }
+
+    /**
+     * Get the path of the invalid property
+     * @return propertyPath the property path
+     */
+    public String getPropertyPath() {
+        return propertyPath;
+    }
+
+    /**
+     * Get the violation message
+     * @return message the message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Get the invalid value
+     * @return invalidValue the invalid value, possibly null
+     */
+    public Object getInvalidValue() {
+        return invalidValue;
+    }
+
+    /**
+     * Get the violation relative to a parent property, for cascaded validation
+     * @param parentPath the parent property path
+     * @return violation the violation with the parent path prepended
+     */
+    Violation under(String parentPath) {
+        return new Violation(parentPath + "." + propertyPath, message, invalidValue);
+    }
+
+    /**
+     * Determine object equality based on the property path, message and invalid value
+     * @param o the object to be compared
+     * @return true if the objects are equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Violation violation = (Violation) o;
+        return Objects.equals(propertyPath, violation.propertyPath) &&
+            Objects.equals(message, violation.message) &&
+            Objects.equals(invalidValue, violation.invalidValue);
+    }
+
+    /**
+     * Calculate a hash based on the property path, message and invalid value
+     * @return hash the hash code
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(propertyPath, message, invalidValue);
+    }
+
+    @Override
+    public String toString() {
+        return propertyPath + " " + message;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.client;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.dataone.bookkeeper.api.UsageList;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A usage sink that POSTs each batch as a JSON UsageList to a bookkeeper endpoint
+ */
+public class HttpUsageSink implements UsageSink {
+
+    /* The writer for usage list payloads */
+    private static final ObjectWriter WRITER = BookkeeperCodecs.writer(UsageList.class);
+
+    /* The usages endpoint */
+    private final URL endpoint;
+
+    /* The extra request headers, such as Authorization */
+    private final Map<String, String> headers;
+
+    /* The connect and read timeout in milliseconds */
+    private final int timeoutMillis;
+
+    /**
+     * Construct an HTTP usage sink
+     * @param endpoint the usages endpoint
+     * @param headers the extra request headers to send with each batch
+     * @param timeoutMillis the connect and read timeout in milliseconds
+     */
+    public HttpUsageSink(URL endpoint, Map<String, String> headers, int timeoutMillis) {
+        this.endpoint = Objects.requireNonNull(endpoint, "The endpoint is required");
+        this.headers = headers == null ? Collections.<String, String>emptyMap() :
+            Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Send a batch of usages in a single POST request
+     * @param usages the usages to send
+     * @throws IOException when the request fails or the response status is not 2xx
+     */
+    @Override
+    public void send(UsageList usages) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setRequestProperty("Accept", "application/json");
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            WRITER.writeValue(outputStream, usages);
+        }
+        int status = connection.getResponseCode();
+        // Drain the response so the connection can be reused by the keep-alive cache
+        try (InputStream inputStream = status < 400 ?
+            connection.getInputStream() : connection.getErrorStream()) {
+            if ( inputStream != null ) {
+                byte[] buffer = new byte[4096];
+                while ( inputStream.read(buffer) != -1 ) {
+                    // discard
+                }
+            }
+        }
+        if ( status / 100 != 2 ) {
+            throw new IOException("Usage batch was rejected by " + endpoint +
+                " with status " + status);
+        }
+    }
+
+    /**
+     * Get the usages endpoint
+     * @return endpoint the usages endpoint
+     */
+    public URL getEndpoint() {
+        return endpoint;
+    }
+}
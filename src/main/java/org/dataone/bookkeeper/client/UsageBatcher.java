@@ -0,0 +1,368 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.client;
+
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.api.UsageList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers usages and sends them to a UsageSink in batches, rather than as one request per
+ * usage. A usage for the same quota id and instance id as a buffered usage replaces it,
+ * keeping its place in the batch, so repeated updates to one instance are sent once.
+ *
+ * A batch is flushed when the buffer holds the maximum batch size, and otherwise every
+ * flush interval. The buffer is bounded: once it holds the maximum pending usages, add()
+ * blocks and offer() waits up to its timeout until a flush makes room. Batches are sent
+ * one at a time on a background thread; a batch that fails to send is returned to the
+ * buffer, behind any newer updates to the same instances, and retried by the next flush.
+ */
+public class UsageBatcher implements Closeable {
+
+    /* The destination of the flushed batches */
+    private final UsageSink sink;
+
+    /* The maximum number of usages in a batch */
+    private final int maxBatchSize;
+
+    /* The maximum number of buffered usages */
+    private final int maxPending;
+
+    /* The buffered usages by quota and instance key, in arrival order */
+    private final LinkedHashMap<Object, Usage> pending = new LinkedHashMap<>();
+
+    /* The lock guarding the buffer */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /* Signalled when a flush makes room in the buffer */
+    private final Condition notFull = lock.newCondition();
+
+    /* The lock serializing sends, so batches arrive in order */
+    private final Object sendLock = new Object();
+
+    /* The background flush thread */
+    private final ScheduledExecutorService scheduler;
+
+    /* Whether a size-triggered flush is queued on the scheduler */
+    private boolean flushQueued;
+
+    /* Whether the batcher has been closed, set while holding the lock */
+    private boolean closed;
+
+    /* The number of batches sent */
+    private final AtomicLong sentBatches = new AtomicLong();
+
+    /* The number of usages sent */
+    private final AtomicLong sentUsages = new AtomicLong();
+
+    /* The number of usages replaced by a newer update before being sent */
+    private final AtomicLong coalescedUsages = new AtomicLong();
+
+    /* The number of batches that failed to send */
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    /* The most recent send failure */
+    private volatile IOException lastFailure;
+
+    /**
+     * Construct a usage batcher
+     * @param sink the destination of the flushed batches
+     * @param maxBatchSize the maximum number of usages in a batch
+     * @param maxPending the maximum number of buffered usages, at least the batch size
+     * @param flushInterval the longest time a usage is buffered before a flush
+     * @param unit the flush interval unit
+     */
+    public UsageBatcher(UsageSink sink, int maxBatchSize, int maxPending,
+                        long flushInterval, TimeUnit unit) {
+        if ( maxBatchSize < 1 ) {
+            throw new IllegalArgumentException("The batch size must be positive");
+        }
+        if ( maxPending < maxBatchSize ) {
+            throw new IllegalArgumentException("The pending limit must be at least the batch size");
+        }
+        this.sink = Objects.requireNonNull(sink, "The sink is required");
+        this.maxBatchSize = maxBatchSize;
+        this.maxPending = maxPending;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "usage-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly,
+            flushInterval, flushInterval, unit);
+    }
+
+    /**
+     * Add a usage, waiting for room in the buffer if it is full
+     * @param usage the usage to add
+     * @throws InterruptedException when interrupted while waiting
+     * @throws IllegalStateException when the batcher is closed, including while waiting
+     */
+    public void add(Usage usage) throws InterruptedException {
+        offer(usage, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Add a usage, waiting up to a timeout for room in the buffer if it is full. A usage
+     * that replaces a buffered update to the same instance never waits.
+     * @param usage the usage to add
+     * @param timeout the longest time to wait
+     * @param unit the timeout unit
+     * @return true if the usage was added, false if the buffer stayed full
+     * @throws InterruptedException when interrupted while waiting
+     * @throws IllegalStateException when the batcher is closed, including while waiting
+     */
+    public boolean offer(Usage usage, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(usage, "The usage is required");
+        Object key = key(usage);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            // Checked under the lock, as close() sets it, so no usage is added after the last flush
+            checkOpen();
+            if ( pending.containsKey(key) ) {
+                pending.put(key, usage);
+                coalescedUsages.incrementAndGet();
+                return true;
+            }
+            while ( pending.size() >= maxPending ) {
+                if ( nanos <= 0L ) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+                checkOpen();
+            }
+            pending.put(key, usage);
+            if ( pending.size() >= maxBatchSize && ! flushQueued ) {
+                flushQueued = true;
+                scheduler.execute(this::flushQuietly);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Send all buffered usages on the calling thread
+     * @throws IOException when a batch fails to send; it stays buffered for a later flush
+     */
+    public void flush() throws IOException {
+        synchronized (sendLock) {
+            List<Usage> batch;
+            while ( ! (batch = drain()).isEmpty() ) {
+                try {
+                    sink.send(new UsageList(batch));
+                } catch (IOException | RuntimeException e) {
+                    requeue(batch);
+                    failedBatches.incrementAndGet();
+                    throw e;
+                }
+                sentBatches.incrementAndGet();
+                sentUsages.addAndGet(batch.size());
+            }
+        }
+    }
+
+    /**
+     * Stop the background flushes and send all buffered usages
+     * @throws IOException when the remaining usages fail to send
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if ( closed ) {
+                return;
+            }
+            closed = true;
+            // Wake waiting offers, which fail rather than add after the final flush
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        scheduler.shutdown();
+        flush();
+    }
+
+    /**
+     * Get the number of buffered usages
+     * @return pending the number of buffered usages
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of batches sent
+     * @return sentBatches the number of batches sent
+     */
+    public long getSentBatches() {
+        return sentBatches.get();
+    }
+
+    /**
+     * Get the number of usages sent
+     * @return sentUsages the number of usages sent
+     */
+    public long getSentUsages() {
+        return sentUsages.get();
+    }
+
+    /**
+     * Get the number of usages replaced by a newer update before being sent
+     * @return coalescedUsages the number of coalesced usages
+     */
+    public long getCoalescedUsages() {
+        return coalescedUsages.get();
+    }
+
+    /**
+     * Get the number of batches that failed to send
+     * @return failedBatches the number of failed batches
+     */
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    /**
+     * Get the most recent send failure
+     * @return lastFailure the most recent failure, or null
+     */
+    public IOException getLastFailure() {
+        return lastFailure;
+    }
+
+    /*
+     * Fail when the batcher has been closed, holding the lock
+     */
+    private void checkOpen() {
+        if ( closed ) {
+            throw new IllegalStateException("The usage batcher is closed");
+        }
+    }
+
+    /*
+     * Flush from the background thread, keeping the failure for the caller to inspect
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            lastFailure = e;
+        } catch (RuntimeException e) {
+            lastFailure = new IOException(e);
+        }
+    }
+
+    /*
+     * Remove up to a batch of usages from the buffer
+     */
+    private List<Usage> drain() {
+        lock.lock();
+        try {
+            flushQueued = false;
+            List<Usage> batch = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+            Iterator<Usage> usages = pending.values().iterator();
+            while ( usages.hasNext() && batch.size() < maxBatchSize ) {
+                batch.add(usages.next());
+                usages.remove();
+            }
+            if ( ! batch.isEmpty() ) {
+                notFull.signalAll();
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Return a failed batch to the buffer without replacing newer updates. The buffer may
+     * briefly exceed its limit by one batch.
+     */
+    private void requeue(List<Usage> batch) {
+        lock.lock();
+        try {
+            for (Usage usage : batch) {
+                pending.putIfAbsent(key(usage), usage);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Get the coalescing key of a usage. Usages missing a quota id or instance id are
+     * never coalesced.
+     */
+    private static Object key(Usage usage) {
+        if ( usage.getQuotaId() == null || usage.getInstanceId() == null ) {
+            return new Object();
+        }
+        return new UsageKey(usage.getQuotaId(), usage.getInstanceId());
+    }
+
+    /**
+     * The quota id and instance id of a usage
+     */
+    private static final class UsageKey {
+        private final int quotaId;
+        private final String instanceId;
+
+        UsageKey(int quotaId, String instanceId) {
+            this.quotaId = quotaId;
+            this.instanceId = instanceId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            UsageKey other = (UsageKey) o;
+            return quotaId == other.quotaId && instanceId.equals(other.instanceId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * quotaId + instanceId.hashCode();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.client;
+
+import org.dataone.bookkeeper.api.UsageList;
+
+import java.io.IOException;
+
+/**
+ * A destination for batches of usages flushed by a UsageBatcher
+ */
+public interface UsageSink {
+
+    /**
+     * Send a batch of usages
+     * @param usages the usages to send
+     * @throws IOException when the batch could not be delivered
+     */
+    void send(UsageList usages) throws IOException;
+}
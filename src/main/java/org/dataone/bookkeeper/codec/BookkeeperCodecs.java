@@ -0,0 +1,210 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.dataone.bookkeeper.api.Address;
+import org.dataone.bookkeeper.api.Customer;
+import org.dataone.bookkeeper.api.CustomerList;
+import org.dataone.bookkeeper.api.Feature;
+import org.dataone.bookkeeper.api.Order;
+import org.dataone.bookkeeper.api.OrderItem;
+import org.dataone.bookkeeper.api.OrderList;
+import org.dataone.bookkeeper.api.Product;
+import org.dataone.bookkeeper.api.ProductList;
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.api.QuotaList;
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.api.UsageList;
+import org.dataone.bookkeeper.api.UsageStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A shared registry of Jackson codecs for the Bookkeeper models.
+ *
+ * Building an ObjectMapper introspects each model class and builds its serializer
+ * and deserializer caches, so the models share a single mapper configured once here.
+ * ObjectReader and ObjectWriter instances are immutable and thread-safe, and are cached
+ * per type so that the root (de)serializer lookup also happens only once.
+ */
+public final class BookkeeperCodecs {
+
+    /* The model types whose codecs are built when the registry loads */
+    private static final Class<?>[] MODEL_TYPES = {
+        Address.class, Customer.class, CustomerList.class, Feature.class, Order.class,
+        OrderItem.class, OrderList.class, Product.class, ProductList.class, Quota.class,
+        QuotaList.class, Usage.class, UsageList.class, UsageStatus.class
+    };
+
+    /* The shared mapper. It is never handed out, so its configuration cannot change */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /* The untyped writer, used for JSON trees and other values */
+    private static final ObjectWriter WRITER = MAPPER.writer();
+
+    /* The per-type readers */
+    private static final ConcurrentMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    /* The per-type writers */
+    private static final ConcurrentMap<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    static {
+        // Warm the caches for the model types up front
+        for (Class<?> type : MODEL_TYPES) {
+            reader(type);
+            writer(type);
+        }
+    }
+
+    /**
+     * The registry is not instantiable
+     */
+    private BookkeeperCodecs() {
+    }
+
+    /**
+     * Get the cached reader for the given type
+     * @param type the type to be read
+     * @return reader the reader for the type
+     */
+    public static ObjectReader reader(Class<?> type) {
+        ObjectReader reader = READERS.get(type);
+        if ( reader == null ) {
+            reader = READERS.computeIfAbsent(type, MAPPER::readerFor);
+        }
+        return reader;
+    }
+
+    /**
+     * Get the cached writer for the given type
+     * @param type the type to be written
+     * @return writer the writer for the type
+     */
+    public static ObjectWriter writer(Class<?> type) {
+        ObjectWriter writer = WRITERS.get(type);
+        if ( writer == null ) {
+            writer = WRITERS.computeIfAbsent(type, MAPPER::writerFor);
+        }
+        return writer;
+    }
+
+    /**
+     * Get the untyped writer, suitable for JSON trees and values of mixed types
+     * @return writer the untyped writer
+     */
+    public static ObjectWriter writer() {
+        return WRITER;
+    }
+
+    /**
+     * Get the JSON factory of the shared mapper, used to create streaming parsers and generators
+     * @return factory the JSON factory
+     */
+    public static JsonFactory factory() {
+        return MAPPER.getFactory();
+    }
+
+    /**
+     * Get the node factory of the shared mapper
+     * @return nodeFactory the JSON node factory
+     */
+    public static JsonNodeFactory nodeFactory() {
+        return MAPPER.getNodeFactory();
+    }
+
+    /**
+     * Read a value of the given type from UTF-8 encoded JSON bytes
+     * @param type the type to be read
+     * @param json the JSON bytes
+     * @param <T> the value type
+     * @return value the value read from the JSON
+     * @throws IOException an I/O exception
+     */
+    public static <T> T read(Class<T> type, byte[] json) throws IOException {
+        return reader(type).readValue(json);
+    }
+
+    /**
+     * Read a value of the given type from the remaining UTF-8 encoded JSON bytes in a buffer.
+     * The buffer position is not changed.
+     * @param type the type to be read
+     * @param json the JSON buffer
+     * @param <T> the value type
+     * @return value the value read from the JSON
+     * @throws IOException an I/O exception
+     */
+    public static <T> T read(Class<T> type, ByteBuffer json) throws IOException {
+        if ( json.hasArray() ) {
+            return reader(type).readValue(json.array(),
+                json.arrayOffset() + json.position(), json.remaining());
+        }
+        return reader(type).readValue(new ByteBufferBackedInputStream(json.duplicate()));
+    }
+
+    /**
+     * Read a value of the given type from a JSON stream. The stream is closed when read.
+     * @param type the type to be read
+     * @param json the JSON stream
+     * @param <T> the value type
+     * @return value the value read from the JSON
+     * @throws IOException an I/O exception
+     */
+    public static <T> T read(Class<T> type, InputStream json) throws IOException {
+        return reader(type).readValue(json);
+    }
+
+    /**
+     * Read JSON directly into an existing instance, setting the properties present in the JSON
+     * @param target the instance to be updated
+     * @param json the JSON string
+     * @param <T> the value type
+     * @return target the updated instance
+     * @throws IOException an I/O exception
+     */
+    public static <T> T readInto(T target, String json) throws IOException {
+        return reader(target.getClass()).withValueToUpdate(target).readValue(json);
+    }
+
+    /**
+     * Serialize a value as a JSON string
+     * @param value the value to serialize
+     * @return json the value as a JSON string
+     * @throws JsonProcessingException a JSON processing exception
+     */
+    public static String toJSON(Object value) throws JsonProcessingException {
+        if ( value == null ) {
+            return WRITER.writeValueAsString(null);
+        }
+        return writer(value.getClass()).writeValueAsString(value);
+    }
+}
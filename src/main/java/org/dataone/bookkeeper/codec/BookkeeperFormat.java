@@ -0,0 +1,260 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The wire formats the Bookkeeper models can be encoded in: JSON, and the binary Jackson
+ * Smile and CBOR formats for traffic between Bookkeeper instances and internal caches.
+ *
+ * The binary formats use the same model annotations and inclusion rules as JSON, since
+ * they are read and written by ObjectMappers configured like the shared JSON mapper. Their
+ * dependencies, jackson-dataformat-smile and jackson-dataformat-cbor, are optional: a
+ * binary format is only usable when its library is on the classpath, as reported by
+ * isAvailable(), and its mapper is only built on first use.
+ */
+public enum BookkeeperFormat {
+
+    JSON("application/json", null),
+    SMILE("application/x-jackson-smile", "com.fasterxml.jackson.dataformat.smile.SmileFactory"),
+    CBOR("application/cbor", "com.fasterxml.jackson.dataformat.cbor.CBORFactory");
+
+    /* The format media type */
+    private final String mediaType;
+
+    /* Whether the format library is on the classpath */
+    private final boolean available;
+
+    /* The per-type readers */
+    private final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    /* The per-type writers */
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    BookkeeperFormat(String mediaType, String factoryClassName) {
+        this.mediaType = mediaType;
+        this.available = factoryClassName == null || isPresent(factoryClassName);
+    }
+
+    /**
+     * Get the format media type
+     * @return mediaType the media type
+     */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Determine if the format library is on the classpath
+     * @return true if the format can be used
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Get the cached reader of a type in this format
+     * @param type the type to be read
+     * @return reader the reader for the type
+     * @throws IllegalStateException when the format library is not on the classpath
+     */
+    public ObjectReader reader(Class<?> type) {
+        if ( this == JSON ) {
+            return BookkeeperCodecs.reader(type);
+        }
+        ObjectReader reader = readers.get(type);
+        if ( reader == null ) {
+            reader = readers.computeIfAbsent(type, key -> mapper().readerFor(key));
+        }
+        return reader;
+    }
+
+    /**
+     * Get the cached writer of a type in this format
+     * @param type the type to be written
+     * @return writer the writer for the type
+     * @throws IllegalStateException when the format library is not on the classpath
+     */
+    public ObjectWriter writer(Class<?> type) {
+        if ( this == JSON ) {
+            return BookkeeperCodecs.writer(type);
+        }
+        ObjectWriter writer = writers.get(type);
+        if ( writer == null ) {
+            writer = writers.computeIfAbsent(type, key -> mapper().writerFor(key));
+        }
+        return writer;
+    }
+
+    /**
+     * Read a value of the given type from encoded bytes
+     * @param type the type to be read
+     * @param content the encoded bytes
+     * @param <T> the value type
+     * @return value the value read
+     * @throws IOException an I/O exception
+     */
+    public <T> T read(Class<T> type, byte[] content) throws IOException {
+        return reader(type).readValue(content);
+    }
+
+    /**
+     * Read a value of the given type from an encoded stream. The stream is closed when read.
+     * @param type the type to be read
+     * @param content the encoded stream
+     * @param <T> the value type
+     * @return value the value read
+     * @throws IOException an I/O exception
+     */
+    public <T> T read(Class<T> type, InputStream content) throws IOException {
+        return reader(type).readValue(content);
+    }
+
+    /**
+     * Encode a value
+     * @param value the value to encode
+     * @return content the encoded bytes
+     * @throws IOException an I/O exception
+     */
+    public byte[] write(Object value) throws IOException {
+        return writer(value.getClass()).writeValueAsBytes(value);
+    }
+
+    /**
+     * Encode a value to a stream. The stream is closed when written.
+     * @param outputStream the stream to write to
+     * @param value the value to encode
+     * @throws IOException an I/O exception
+     */
+    public void write(OutputStream outputStream, Object value) throws IOException {
+        writer(value.getClass()).writeValue(outputStream, value);
+    }
+
+    /**
+     * Get the format of a Content-Type header value. Media type parameters such as charset
+     * are ignored.
+     * @param contentType the Content-Type value, or null
+     * @return format the format, JSON when the value is null, or null when the media type
+     * is not a Bookkeeper format
+     */
+    public static BookkeeperFormat forContentType(String contentType) {
+        if ( contentType == null ) {
+            return JSON;
+        }
+        int end = contentType.indexOf(';');
+        String mediaType = (end < 0 ? contentType : contentType.substring(0, end))
+            .trim().toLowerCase(Locale.ROOT);
+        for (BookkeeperFormat format : values()) {
+            if ( format.mediaType.equals(mediaType) ) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Choose the response format for an Accept header value: the available format with the
+     * highest quality value, preferring the earlier media range on ties. Wildcard ranges
+     * select JSON.
+     * @param accept the Accept value, or null
+     * @return format the format, JSON when the value is null or empty, or null when no
+     * available format is acceptable
+     */
+    public static BookkeeperFormat negotiate(String accept) {
+        if ( accept == null || accept.trim().isEmpty() ) {
+            return JSON;
+        }
+        BookkeeperFormat best = null;
+        double bestQuality = 0.0;
+        for (String range : accept.split(",")) {
+            String[] parts = range.split(";");
+            String mediaType = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if ( parameter.startsWith("q=") || parameter.startsWith("Q=") ) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0.0;
+                    }
+                }
+            }
+            BookkeeperFormat format = "*/*".equals(mediaType) || "application/*".equals(mediaType) ?
+                JSON : forContentType(mediaType);
+            if ( format != null && format.available && quality > bestQuality ) {
+                best = format;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * Get the mapper of a binary format
+     */
+    private ObjectMapper mapper() {
+        if ( ! available ) {
+            throw new IllegalStateException("The " + name() + " format library is not on the classpath");
+        }
+        // The holders keep the optional factory classes from loading until a format is used
+        return this == SMILE ? SmileMapper.MAPPER : CborMapper.MAPPER;
+    }
+
+    /*
+     * Determine if a class is on the classpath
+     */
+    private static boolean isPresent(String className) {
+        try {
+            Class.forName(className, false, BookkeeperFormat.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * The Smile mapper holder
+     */
+    private static final class SmileMapper {
+        private static final ObjectMapper MAPPER = new ObjectMapper(new SmileFactory());
+    }
+
+    /**
+     * The CBOR mapper holder
+     */
+    private static final class CborMapper {
+        private static final ObjectMapper MAPPER = new ObjectMapper(new CBORFactory());
+    }
+}
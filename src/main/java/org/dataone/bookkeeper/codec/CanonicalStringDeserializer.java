@@ -0,0 +1,64 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Deserialize a low-cardinality string property to its canonical instance in the shared
+ * StringPool, so that models read from JSON share their "usage", "active" or "USD" strings.
+ * String tokens are looked up from the parser's character buffer and only become a new
+ * string the first time a value is seen. Other scalar tokens are coerced as for any string.
+ */
+public class CanonicalStringDeserializer extends StdScalarDeserializer<String> {
+
+    /**
+     * Construct a canonical string deserializer
+     */
+    public CanonicalStringDeserializer() {
+        super(String.class);
+    }
+
+    /**
+     * Deserialize the string
+     * @param parser the JSON parser, positioned at the value
+     * @param context the deserialization context
+     * @return value the canonical string
+     * @throws IOException an I/O exception, or a mapping exception for a non-scalar value
+     */
+    @Override
+    public String deserialize(JsonParser parser, DeserializationContext context)
+        throws IOException {
+        StringPool pool = StringPool.shared();
+        if ( parser.hasToken(JsonToken.VALUE_STRING) ) {
+            return pool.canonicalize(parser.getTextCharacters(), parser.getTextOffset(),
+                parser.getTextLength());
+        }
+        return pool.canonicalize(StringDeserializer.instance.deserialize(parser, context));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.codec;
+
+/**
+ * A bounded pool of canonical strings for low-cardinality values, such as object types,
+ * statuses, currencies and node identifiers.
+ *
+ * Each deserialized model otherwise holds its own copy of values like "usage" and
+ * "active", so a cache of millions of models holds millions of duplicate strings. The pool
+ * is a fixed-size table indexed by the string hash: a value is replaced by the string in its
+ * slot when they are equal, and otherwise takes the slot. It never grows, never locks, and
+ * a collision only costs a duplicate. Slots are written without synchronization, which is
+ * safe because strings are immutable; a thread that misses another's write just stores an
+ * equal string. Values may be given as characters, so a parser's buffer can be looked up
+ * without first allocating a string.
+ */
+public final class StringPool {
+
+    /* The default number of slots */
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    /* The default length of the longest value pooled */
+    private static final int DEFAULT_MAX_LENGTH = 64;
+
+    /* The pool shared by the model deserializers */
+    private static final StringPool SHARED = new StringPool(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+
+    /* The slots, a power of two in number */
+    private final String[] slots;
+
+    /* The length of the longest value pooled; longer values are returned as given */
+    private final int maxLength;
+
+    /**
+     * Construct a pool
+     * @param capacity the number of slots, rounded up to a power of two
+     * @param maxLength the length of the longest value to pool
+     */
+    public StringPool(int capacity, int maxLength) {
+        if ( capacity < 1 || capacity > 1 << 30 ) {
+            throw new IllegalArgumentException("The capacity must be between 1 and 2^30");
+        }
+        this.slots = new String[Integer.highestOneBit(capacity * 2 - 1)];
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Get the pool shared by the model deserializers
+     * @return pool the shared pool
+     */
+    public static StringPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Get the canonical instance of a string
+     * @param value the string
+     * @return canonical the pooled string equal to the value, or the value itself
+     */
+    public String canonicalize(String value) {
+        if ( value == null || value.length() > maxLength ) {
+            return value;
+        }
+        int slot = value.hashCode() & (slots.length - 1);
+        String pooled = slots[slot];
+        if ( value.equals(pooled) ) {
+            return pooled;
+        }
+        slots[slot] = value;
+        return value;
+    }
+
+    /**
+     * Get the canonical string of a range of characters, only creating a string when the
+     * pool does not hold it
+     * @param chars the characters
+     * @param offset the offset of the first character
+     * @param length the number of characters
+     * @return canonical the pooled string, or a new string of the characters
+     */
+    public String canonicalize(char[] chars, int offset, int length) {
+        if ( length > maxLength ) {
+            return new String(chars, offset, length);
+        }
+        // The same hash as String.hashCode(), so both lookups use the same slot
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int slot = hash & (slots.length - 1);
+        String pooled = slots[slot];
+        if ( pooled != null && matches(pooled, chars, offset, length) ) {
+            return pooled;
+        }
+        String value = new String(chars, offset, length);
+        slots[slot] = value;
+        return value;
+    }
+
+    /**
+     * Get the number of slots
+     * @return capacity the number of slots
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    private static boolean matches(String pooled, char[] chars, int offset, int length) {
+        if ( pooled.length() != length ) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if ( pooled.charAt(i) != chars[offset + i] ) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
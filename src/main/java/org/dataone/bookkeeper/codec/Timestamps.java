@@ -0,0 +1,160 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.codec;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+
+/**
+ * Formats epoch-second timestamps as local ISO 8601 date-time strings
+ * (yyyy-MM-dd'T'HH:mm:ss) in the system default time zone, as read when this class is
+ * loaded. The model timestamp getters use this rather than building a SimpleDateFormat
+ * and a Date per call.
+ *
+ * Recently formatted values are kept in a small direct-mapped cache, since listings tend
+ * to repeat the same creation times. The appendTo variant writes digits directly into
+ * the caller's builder without allocating intermediate strings.
+ */
+public final class Timestamps {
+
+    /* The timestamp pattern */
+    public static final String PATTERN = "yyyy-MM-dd'T'HH:mm:ss";
+
+    /* The time zone of the formatted timestamps */
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    /* The zone rules, consulted when the zone has daylight saving or historic offsets */
+    private static final ZoneRules RULES = ZONE.getRules();
+
+    /* The zone offset in seconds when the zone offset never changes */
+    private static final int FIXED_OFFSET = RULES.isFixedOffset() ?
+        RULES.getOffset(Instant.EPOCH).getTotalSeconds() : Integer.MIN_VALUE;
+
+    /* The number of cache slots, a power of two */
+    private static final int CACHE_SIZE = 256;
+
+    /* The formatted timestamp cache. Entries are immutable, so racy slot updates are safe */
+    private static final Entry[] CACHE = new Entry[CACHE_SIZE];
+
+    /* The length of a formatted timestamp */
+    private static final int LENGTH = 19;
+
+    private Timestamps() {
+    }
+
+    /**
+     * Format an epoch-second timestamp
+     * @param epochSeconds the seconds since the epoch
+     * @return timestamp the formatted timestamp
+     */
+    public static String format(long epochSeconds) {
+        int slot = slot(epochSeconds);
+        Entry entry = CACHE[slot];
+        if ( entry != null && entry.epochSeconds == epochSeconds ) {
+            return entry.timestamp;
+        }
+        String timestamp = appendTo(new StringBuilder(LENGTH), epochSeconds).toString();
+        CACHE[slot] = new Entry(epochSeconds, timestamp);
+        return timestamp;
+    }
+
+    /**
+     * Format a nullable epoch-second timestamp
+     * @param epochSeconds the seconds since the epoch, or null
+     * @return timestamp the formatted timestamp, or null
+     */
+    public static String format(Integer epochSeconds) {
+        return epochSeconds == null ? null : format(epochSeconds.longValue());
+    }
+
+    /**
+     * Append a formatted epoch-second timestamp to a builder
+     * @param builder the builder to append to
+     * @param epochSeconds the seconds since the epoch
+     * @return builder the builder
+     */
+    public static StringBuilder appendTo(StringBuilder builder, long epochSeconds) {
+        long local = epochSeconds + offset(epochSeconds);
+        long days = Math.floorDiv(local, 86400L);
+        int secondOfDay = (int) Math.floorMod(local, 86400L);
+
+        // Convert days since the epoch to a proleptic Gregorian civil date
+        long shifted = days + 719468L;
+        long era = Math.floorDiv(shifted, 146097L);
+        int dayOfEra = (int) (shifted - era * 146097L);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if ( year >= 0 && year < 1000 ) {
+            builder.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        }
+        builder.append(year).append('-');
+        appendTwoDigits(builder, month).append('-');
+        appendTwoDigits(builder, day).append('T');
+        appendTwoDigits(builder, secondOfDay / 3600).append(':');
+        appendTwoDigits(builder, secondOfDay / 60 % 60).append(':');
+        return appendTwoDigits(builder, secondOfDay % 60);
+    }
+
+    /*
+     * Get the zone offset in seconds at an instant
+     */
+    private static int offset(long epochSeconds) {
+        if ( FIXED_OFFSET != Integer.MIN_VALUE ) {
+            return FIXED_OFFSET;
+        }
+        return RULES.getOffset(Instant.ofEpochSecond(epochSeconds)).getTotalSeconds();
+    }
+
+    /*
+     * Append a value between 0 and 99 as two digits
+     */
+    private static StringBuilder appendTwoDigits(StringBuilder builder, int value) {
+        return builder.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    /*
+     * Get the cache slot of a timestamp
+     */
+    private static int slot(long epochSeconds) {
+        long hash = epochSeconds * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 56) & (CACHE_SIZE - 1);
+    }
+
+    /**
+     * A cached formatted timestamp
+     */
+    private static final class Entry {
+        private final long epochSeconds;
+        private final String timestamp;
+
+        Entry(long epochSeconds, String timestamp) {
+            this.epochSeconds = epochSeconds;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.codec;
+
+import org.dataone.bookkeeper.api.Usage;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dense binary record format for Usage, for storing and shipping usages in bulk.
+ *
+ * A record is a flags byte saying which fields are present, followed by the present
+ * fields in order:
+ * <ul>
+ *     <li>id and quotaId as zigzag varints</li>
+ *     <li>instanceId as a varint byte length and UTF-8 bytes</li>
+ *     <li>quantity as a raw 8-byte IEEE 754 double</li>
+ *     <li>status as a dictionary code: a varint, where 0 is followed by the value as a
+ *     literal string and n refers to dictionary entry n - 1</li>
+ *     <li>object as a literal string, only when it is not the constant "usage"</li>
+ *     <li>nodeId as a dictionary code</li>
+ * </ul>
+ * The status dictionary is fixed to "active" and "inactive". The nodeId dictionary is given
+ * when the codec is constructed; codecs used by UsageRecordWriter and UsageRecordReader
+ * also learn each new nodeId from its first literal, so a stream spells out each node
+ * once. A codec with a fixed dictionary is immutable and thread-safe, and its records can
+ * be decoded by any codec constructed with the same dictionary.
+ */
+public final class UsageRecordCodec {
+
+    /* The flags of the present fields */
+    private static final int ID = 1;
+    private static final int QUOTA_ID = 1 << 1;
+    private static final int INSTANCE_ID = 1 << 2;
+    private static final int QUANTITY = 1 << 3;
+    private static final int STATUS = 1 << 4;
+    private static final int NODE_ID = 1 << 5;
+    private static final int OBJECT = 1 << 6;
+    private static final int NO_OBJECT = 1 << 7;
+
+    /* The usage object type, implied unless the OBJECT or NO_OBJECT flag is set */
+    private static final String USAGE = "usage";
+
+    /* The fixed status dictionary */
+    private static final List<String> STATUSES = Collections.unmodifiableList(
+        Arrays.asList("active", "inactive"));
+
+    /* The largest number of nodeIds a learning codec adds to its dictionary */
+    static final int MAX_LEARNED = 4096;
+
+    /* The status codes by value */
+    private static final Map<String, Integer> STATUS_CODES = codes(STATUSES);
+
+    /* The nodeId dictionary */
+    private final List<String> nodeIds;
+
+    /* The nodeId codes by value */
+    private final Map<String, Integer> nodeIdCodes;
+
+    /* Whether literal nodeIds are added to the dictionary */
+    private final boolean learning;
+
+    /**
+     * Construct a codec without a nodeId dictionary
+     */
+    public UsageRecordCodec() {
+        this(Collections.<String>emptyList());
+    }
+
+    /**
+     * Construct a codec with a fixed nodeId dictionary
+     * @param nodeIds the node identifiers to encode as dictionary codes
+     */
+    public UsageRecordCodec(Collection<String> nodeIds) {
+        this(nodeIds, false);
+    }
+
+    /*
+     * Construct a codec, optionally learning nodeIds as it encodes or decodes them
+     */
+    UsageRecordCodec(Collection<String> nodeIds, boolean learning) {
+        this.nodeIds = new ArrayList<>(nodeIds);
+        this.nodeIdCodes = codes(this.nodeIds);
+        this.learning = learning;
+    }
+
+    /**
+     * Encode a usage at the buffer position, advancing the position past the record
+     * @param usage the usage to encode
+     * @param buffer the buffer to write to
+     * @throws BufferOverflowException when the buffer has too little room; the buffer
+     * position is then unchanged
+     */
+    public void encode(Usage usage, ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            write(usage, buffer);
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            throw e;
+        }
+    }
+
+    /**
+     * Decode a usage at the buffer position, advancing the position past the record
+     * @param buffer the buffer to read from
+     * @return usage the decoded usage
+     * @throws IllegalArgumentException when the record is malformed
+     * @throws BufferUnderflowException when the buffer ends before the record
+     */
+    public Usage decode(ByteBuffer buffer) {
+        int flags = buffer.get() & 0xff;
+        Usage usage = new Usage();
+        usage.setObject(USAGE);
+        if ( (flags & ID) != 0 ) {
+            usage.setId(Varints.readZigZag(buffer));
+        }
+        if ( (flags & QUOTA_ID) != 0 ) {
+            usage.setQuotaId(Varints.readZigZag(buffer));
+        }
+        if ( (flags & INSTANCE_ID) != 0 ) {
+            usage.setInstanceId(readString(buffer));
+        }
+        if ( (flags & QUANTITY) != 0 ) {
+            usage.setQuantity(buffer.getDouble());
+        }
+        if ( (flags & STATUS) != 0 ) {
+            usage.setStatus(readCoded(buffer, STATUSES, false));
+        }
+        if ( (flags & OBJECT) != 0 ) {
+            usage.setObject(readString(buffer));
+        } else if ( (flags & NO_OBJECT) != 0 ) {
+            usage.setObject(null);
+        }
+        if ( (flags & NODE_ID) != 0 ) {
+            usage.setNodeId(readCoded(buffer, nodeIds, learning));
+        }
+        return usage;
+    }
+
+    /**
+     * Get the most bytes a usage can take when encoded
+     * @param usage the usage
+     * @return size the upper bound of the record size in bytes
+     */
+    public static int maxEncodedSize(Usage usage) {
+        int size = 1 + 5 + 5 + 8 + 5 + 5;
+        size += stringBound(usage.getInstanceId());
+        size += stringBound(usage.getStatus());
+        size += stringBound(usage.getNodeId());
+        if ( ! USAGE.equals(usage.getObject()) ) {
+            size += stringBound(usage.getObject());
+        }
+        return size;
+    }
+
+    /*
+     * Write the record fields
+     */
+    private void write(Usage usage, ByteBuffer buffer) {
+        int flags = 0;
+        flags |= usage.getId() == null ? 0 : ID;
+        flags |= usage.getQuotaId() == null ? 0 : QUOTA_ID;
+        flags |= usage.getInstanceId() == null ? 0 : INSTANCE_ID;
+        flags |= usage.getQuantity() == null ? 0 : QUANTITY;
+        flags |= usage.getStatus() == null ? 0 : STATUS;
+        flags |= usage.getNodeId() == null ? 0 : NODE_ID;
+        if ( usage.getObject() == null ) {
+            flags |= NO_OBJECT;
+        } else if ( ! USAGE.equals(usage.getObject()) ) {
+            flags |= OBJECT;
+        }
+        buffer.put((byte) flags);
+        if ( usage.getId() != null ) {
+            Varints.writeZigZag(buffer, usage.getId());
+        }
+        if ( usage.getQuotaId() != null ) {
+            Varints.writeZigZag(buffer, usage.getQuotaId());
+        }
+        if ( usage.getInstanceId() != null ) {
+            writeString(buffer, usage.getInstanceId());
+        }
+        if ( usage.getQuantity() != null ) {
+            buffer.putDouble(usage.getQuantity());
+        }
+        if ( usage.getStatus() != null ) {
+            writeCoded(buffer, usage.getStatus(), STATUS_CODES, null);
+        }
+        if ( (flags & OBJECT) != 0 ) {
+            writeString(buffer, usage.getObject());
+        }
+        // The nodeId is written last, so a record that overflows the buffer is never learned
+        if ( usage.getNodeId() != null ) {
+            writeCoded(buffer, usage.getNodeId(), nodeIdCodes, learning ? nodeIds : null);
+        }
+    }
+
+    /*
+     * Write a dictionary code, or 0 and a literal, learning the literal if asked
+     */
+    private static void writeCoded(ByteBuffer buffer, String value, Map<String, Integer> codes,
+                                   List<String> learned) {
+        Integer code = codes.get(value);
+        if ( code != null ) {
+            Varints.writeVarint(buffer, code + 1);
+            return;
+        }
+        Varints.writeVarint(buffer, 0);
+        writeString(buffer, value);
+        if ( learned != null && learned.size() < MAX_LEARNED ) {
+            codes.put(value, learned.size());
+            learned.add(value);
+        }
+    }
+
+    /*
+     * Read a dictionary code or a literal, learning the literal if asked
+     */
+    private String readCoded(ByteBuffer buffer, List<String> dictionary, boolean learn) {
+        int code = Varints.readVarint(buffer);
+        if ( code == 0 ) {
+            String value = readString(buffer);
+            if ( learn && dictionary.size() < MAX_LEARNED ) {
+                nodeIdCodes.put(value, dictionary.size());
+                dictionary.add(value);
+            }
+            return value;
+        }
+        if ( code < 0 || code > dictionary.size() ) {
+            throw new IllegalArgumentException("Unknown dictionary code " + code);
+        }
+        return dictionary.get(code - 1);
+    }
+
+    /*
+     * Write a varint byte length and UTF-8 bytes
+     */
+    private static void writeString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        Varints.writeVarint(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    /*
+     * Read a varint byte length and UTF-8 bytes
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = Varints.readVarint(buffer);
+        if ( length < 0 ) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        if ( length > buffer.remaining() ) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if ( buffer.hasArray() ) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    /*
+     * Get the most bytes a length-prefixed string can take
+     */
+    private static int stringBound(String value) {
+        return value == null ? 0 : 5 + value.length() * 3;
+    }
+
+    /*
+     * Map dictionary values to their positions
+     */
+    private static Map<String, Integer> codes(List<String> values) {
+        Map<String, Integer> codes = new HashMap<>(values.size() * 2 + 2);
+        for (int i = 0; i < values.size(); i++) {
+            codes.putIfAbsent(values.get(i), i);
+        }
+        return codes;
+    }
+}
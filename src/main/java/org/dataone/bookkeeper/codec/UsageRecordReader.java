@@ -0,0 +1,116 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.codec;
+
+import org.dataone.bookkeeper.api.Usage;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+/**
+ * Reads usages from a stream in the framed usage record format written by
+ * UsageRecordWriter. A reader is not thread-safe.
+ */
+public class UsageRecordReader implements Closeable {
+
+    /* The largest accepted record, guarding against corrupt lengths */
+    private static final int MAX_RECORD = 1 << 20;
+
+    /* The source stream */
+    private final DataInputStream inputStream;
+
+    /* The record codec, learning nodeIds as they are read */
+    private final UsageRecordCodec codec = new UsageRecordCodec(Collections.<String>emptyList(), true);
+
+    /* The record buffer, grown for large records */
+    private byte[] record = new byte[256];
+
+    /**
+     * Construct a reader and check the stream header
+     * @param inputStream the source stream
+     * @throws IOException when the header is missing or names another format or version
+     */
+    public UsageRecordReader(InputStream inputStream) throws IOException {
+        this.inputStream = new DataInputStream(inputStream instanceof BufferedInputStream ?
+            inputStream : new BufferedInputStream(inputStream, 65536));
+        int magic = this.inputStream.readInt();
+        if ( magic != UsageRecordWriter.MAGIC ) {
+            throw new IOException("Not a usage record stream");
+        }
+        byte version = this.inputStream.readByte();
+        if ( version != UsageRecordWriter.VERSION ) {
+            throw new IOException("Unsupported usage record stream version " + version);
+        }
+    }
+
+    /**
+     * Read the next usage frame
+     * @return usage the next usage, or null at the end of the stream
+     * @throws IOException when the stream ends inside a frame or a record is malformed
+     */
+    public Usage read() throws IOException {
+        int first = inputStream.read();
+        if ( first < 0 ) {
+            return null;
+        }
+        int length = first & 0x7f;
+        for (int shift = 7; (first & 0x80) != 0; shift += 7) {
+            if ( shift > 28 ) {
+                throw new IOException("Malformed usage record length");
+            }
+            first = inputStream.readUnsignedByte();
+            length |= (first & 0x7f) << shift;
+        }
+        if ( length < 1 || length > MAX_RECORD ) {
+            throw new IOException("Invalid usage record length " + length);
+        }
+        if ( record.length < length ) {
+            record = new byte[Math.max(length, record.length * 2)];
+        }
+        inputStream.readFully(record, 0, length);
+        ByteBuffer buffer = ByteBuffer.wrap(record, 0, length);
+        try {
+            Usage usage = codec.decode(buffer);
+            if ( buffer.hasRemaining() ) {
+                throw new IOException("Usage record has " + buffer.remaining() + " trailing bytes");
+            }
+            return usage;
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            throw new IOException("Malformed usage record", e);
+        }
+    }
+
+    /**
+     * Close the source stream
+     * @throws IOException an I/O exception
+     */
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.codec;
+
+import org.dataone.bookkeeper.api.Usage;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+/**
+ * Writes usages to a stream in the framed usage record format, for bulk export.
+ *
+ * A stream starts with the magic bytes "BKUR" and a format version byte, followed by one
+ * frame per usage: the record length as a varint, then the record as written by
+ * UsageRecordCodec. The first record from each node spells out its nodeId, and later
+ * records refer to it by dictionary code. A writer is not thread-safe.
+ */
+public class UsageRecordWriter implements Closeable, Flushable {
+
+    /* The stream magic bytes, "BKUR" */
+    static final int MAGIC = 0x424b5552;
+
+    /* The stream format version */
+    static final byte VERSION = 1;
+
+    /* The destination stream */
+    private final OutputStream outputStream;
+
+    /* The record codec, learning nodeIds as they are written */
+    private final UsageRecordCodec codec = new UsageRecordCodec(Collections.<String>emptyList(), true);
+
+    /* The record buffer, grown for large records */
+    private ByteBuffer record = ByteBuffer.allocate(256);
+
+    /* The frame length buffer */
+    private final ByteBuffer length = ByteBuffer.allocate(5);
+
+    /* The number of records written */
+    private long count;
+
+    /**
+     * Construct a writer and write the stream header
+     * @param outputStream the destination stream
+     * @throws IOException when the header cannot be written
+     */
+    public UsageRecordWriter(OutputStream outputStream) throws IOException {
+        this.outputStream = outputStream instanceof BufferedOutputStream ?
+            outputStream : new BufferedOutputStream(outputStream, 65536);
+        ByteBuffer header = ByteBuffer.allocate(5).putInt(MAGIC).put(VERSION);
+        this.outputStream.write(header.array());
+    }
+
+    /**
+     * Write a usage frame
+     * @param usage the usage to write
+     * @throws IOException when the frame cannot be written
+     */
+    public void write(Usage usage) throws IOException {
+        int bound = UsageRecordCodec.maxEncodedSize(usage);
+        if ( record.capacity() < bound ) {
+            record = ByteBuffer.allocate(Math.max(bound, record.capacity() * 2));
+        }
+        record.clear();
+        codec.encode(usage, record);
+        length.clear();
+        Varints.writeVarint(length, record.position());
+        outputStream.write(length.array(), 0, length.position());
+        outputStream.write(record.array(), 0, record.position());
+        count++;
+    }
+
+    /**
+     * Write usage frames
+     * @param usages the usages to write
+     * @throws IOException when a frame cannot be written
+     */
+    public void writeAll(Iterable<Usage> usages) throws IOException {
+        for (Usage usage : usages) {
+            write(usage);
+        }
+    }
+
+    /**
+     * Get the number of usages written
+     * @return count the number of usages
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Flush the buffered frames to the destination stream
+     * @throws IOException an I/O exception
+     */
+    @Override
+    public void flush() throws IOException {
+        outputStream.flush();
+    }
+
+    /**
+     * Flush the buffered frames and close the destination stream
+     * @throws IOException an I/O exception
+     */
+    @Override
+    public void close() throws IOException {
+        outputStream.close();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Variable-length integers for the binary formats: seven bits per byte, low bits first,
+ * with the high bit set on every byte but the last. Zigzag varints map small negative
+ * values to small unsigned ones, so they stay short too.
+ */
+public final class Varints {
+
+    private Varints() {
+    }
+
+    /**
+     * Write an unsigned varint
+     * @param buffer the buffer to write to
+     * @param value the value, treated as unsigned, so negative values take five bytes
+     */
+    public static void writeVarint(ByteBuffer buffer, int value) {
+        while ( (value & ~0x7f) != 0 ) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Read an unsigned varint
+     * @param buffer the buffer to read from
+     * @return value the value, negative when a five byte varint sets the sign bit
+     * @throws IllegalArgumentException when the varint is longer than five bytes
+     * @throws java.nio.BufferUnderflowException when the buffer ends within the varint
+     */
+    public static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if ( b >= 0 ) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Write a signed int as a zigzag varint
+     * @param buffer the buffer to write to
+     * @param value the value
+     */
+    public static void writeZigZag(ByteBuffer buffer, int value) {
+        writeVarint(buffer, (value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Read a zigzag varint
+     * @param buffer the buffer to read from
+     * @return value the value
+     * @throws IllegalArgumentException when the varint is longer than five bytes
+     */
+    public static int readZigZag(ByteBuffer buffer) {
+        int value = readVarint(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.entitlement;
+
+import org.dataone.bookkeeper.api.Order;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Resolves and caches the features each subject is entitled to, so feature checks do not
+ * load orders or parse product metadata.
+ *
+ * On a miss the resolver loads the subject's orders and joins their items with the
+ * feature catalog. Cached entitlements are reused until they expire, at the next order
+ * start or end date, or until they are invalidated: call orderChanged() when an order is
+ * created or updated, and setCatalog() when products change. A load that overlaps an
+ * invalidation is not cached, so invalidations are never lost.
+ *
+ * The cache holds one entry per subject looked up; invalidate subjects that are no
+ * longer active customers.
+ */
+public class EntitlementResolver {
+
+    /* The features of each product */
+    private volatile FeatureCatalog catalog;
+
+    /* Loads the orders of a subject */
+    private final Function<String, ? extends Collection<Order>> orderLoader;
+
+    /* The entitlements by subject */
+    private final ConcurrentMap<String, Entitlements> entitlementsBySubject = new ConcurrentHashMap<>();
+
+    /* Incremented by every invalidation, to detect loads that overlap one */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Construct a resolver
+     * @param catalog the features of each product
+     * @param orderLoader the function loading the orders of a subject
+     */
+    public EntitlementResolver(FeatureCatalog catalog,
+                               Function<String, ? extends Collection<Order>> orderLoader) {
+        this.catalog = Objects.requireNonNull(catalog, "The feature catalog is required");
+        this.orderLoader = Objects.requireNonNull(orderLoader, "The order loader is required");
+    }
+
+    /**
+     * Get the features a subject is entitled to now
+     * @param subject the subject
+     * @return entitlements the subject entitlements
+     */
+    public Entitlements getEntitlements(String subject) {
+        return getEntitlements(subject, TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+    }
+
+    /**
+     * Get the features a subject is entitled to at a time
+     * @param subject the subject
+     * @param now the time, in seconds since the epoch
+     * @return entitlements the subject entitlements
+     */
+    Entitlements getEntitlements(String subject, long now) {
+        Entitlements cached = entitlementsBySubject.get(subject);
+        if ( cached != null && now < cached.getValidUntil() ) {
+            return cached;
+        }
+        long loadGeneration = generation.get();
+        Collection<Order> orders = orderLoader.apply(subject);
+        Entitlements entitlements = Entitlements.of(catalog,
+            orders == null ? Collections.<Order>emptyList() : orders, now);
+        entitlementsBySubject.put(subject, entitlements);
+        if ( generation.get() != loadGeneration ) {
+            // Invalidated while loading, so the orders or catalog may be stale
+            entitlementsBySubject.remove(subject, entitlements);
+        }
+        return entitlements;
+    }
+
+    /**
+     * Determine if a subject is entitled to a feature now
+     * @param subject the subject
+     * @param featureName the feature name
+     * @return true if one of the subject's current orders grants the feature
+     */
+    public boolean hasFeature(String subject, String featureName) {
+        return getEntitlements(subject).hasFeature(featureName);
+    }
+
+    /**
+     * Invalidate the entitlements of an order's subject, after the order is created,
+     * updated or removed
+     * @param order the order
+     */
+    public void orderChanged(Order order) {
+        if ( order.getSubject() != null ) {
+            invalidate(order.getSubject());
+        }
+    }
+
+    /**
+     * Invalidate the entitlements of a subject
+     * @param subject the subject
+     */
+    public void invalidate(String subject) {
+        generation.incrementAndGet();
+        entitlementsBySubject.remove(subject);
+    }
+
+    /**
+     * Invalidate the entitlements of all subjects
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entitlementsBySubject.clear();
+    }
+
+    /**
+     * Get the feature catalog
+     * @return catalog the features of each product
+     */
+    public FeatureCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Replace the feature catalog, after products change, and invalidate all entitlements
+     * @param catalog the features of each product
+     */
+    public void setCatalog(FeatureCatalog catalog) {
+        this.catalog = Objects.requireNonNull(catalog, "The feature catalog is required");
+        invalidateAll();
+    }
+
+    /**
+     * Get the number of subjects with cached entitlements
+     * @return size the number of subjects
+     */
+    public int size() {
+        return entitlementsBySubject.size();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.entitlement;
+
+import org.dataone.bookkeeper.api.Feature;
+import org.dataone.bookkeeper.api.Order;
+import org.dataone.bookkeeper.api.OrderItem;
+import org.dataone.bookkeeper.api.OrderStatus;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The features a subject is entitled to through its orders at a point in time, and how
+ * long that stays true.
+ *
+ * An order entitles its subject to the catalog features of the products its items refer
+ * to, by item parent, while the order is trialing, active or paid and the time is between
+ * its start date and end date. The entitlements are valid until the earliest end date of
+ * those orders, or the earliest start date of an order yet to start.
+ */
+public final class Entitlements {
+
+    /* The order statuses that grant features */
+    private static final Set<OrderStatus> ENTITLED =
+        Collections.unmodifiableSet(EnumSet.of(OrderStatus.TRIALING, OrderStatus.ACTIVE, OrderStatus.PAID));
+
+    /* The features by name */
+    private final Map<String, Feature> features;
+
+    /* The ids of the orders granting features */
+    private final Set<Integer> orderIds;
+
+    /* The time the entitlements may change, in seconds since the epoch */
+    private final long validUntil;
+
+    private Entitlements(Map<String, Feature> features, Set<Integer> orderIds, long validUntil) {
+        this.features = Collections.unmodifiableMap(features);
+        this.orderIds = Collections.unmodifiableSet(orderIds);
+        this.validUntil = validUntil;
+    }
+
+    /**
+     * Resolve the features granted by orders
+     * @param catalog the features of each product
+     * @param orders the orders of a subject
+     * @param now the time, in seconds since the epoch
+     * @return entitlements the features granted at that time
+     */
+    public static Entitlements of(FeatureCatalog catalog, Collection<Order> orders, long now) {
+        Map<String, Feature> features = new LinkedHashMap<>();
+        Set<Integer> orderIds = new LinkedHashSet<>();
+        long validUntil = Long.MAX_VALUE;
+        for (Order order : orders) {
+            if ( ! ENTITLED.contains(order.getOrderStatus()) || order.getItems() == null ) {
+                continue;
+            }
+            Integer startDate = order.getStartDate();
+            Integer endDate = order.getEndDate();
+            if ( startDate != null && now < startDate ) {
+                validUntil = Math.min(validUntil, startDate);
+                continue;
+            }
+            if ( endDate != null ) {
+                if ( now >= endDate ) {
+                    continue;
+                }
+                validUntil = Math.min(validUntil, endDate);
+            }
+            for (OrderItem item : order.getItems()) {
+                if ( item.getParent() == null ) {
+                    continue;
+                }
+                for (Feature feature : catalog.getFeatures(item.getParent())) {
+                    features.putIfAbsent(feature.getName(), feature);
+                    if ( order.getId() != null ) {
+                        orderIds.add(order.getId());
+                    }
+                }
+            }
+        }
+        return new Entitlements(features, orderIds, validUntil);
+    }
+
+    /**
+     * Determine if a feature is granted
+     * @param name the feature name
+     * @return true if the feature is granted
+     */
+    public boolean hasFeature(String name) {
+        return features.containsKey(name);
+    }
+
+    /**
+     * Get a granted feature. When several products grant a feature, the first granting
+     * order item wins.
+     * @param name the feature name
+     * @return feature the catalog feature, or null if it is not granted
+     */
+    public Feature getFeature(String name) {
+        return features.get(name);
+    }
+
+    /**
+     * Get the names of the granted features
+     * @return names the feature names
+     */
+    public Set<String> getFeatureNames() {
+        return features.keySet();
+    }
+
+    /**
+     * Get the ids of the orders granting features
+     * @return orderIds the order identifiers
+     */
+    public Set<Integer> getOrderIds() {
+        return orderIds;
+    }
+
+    /**
+     * Get the time the entitlements may change
+     * @return validUntil the time in seconds since the epoch, Long.MAX_VALUE if never
+     */
+    public long getValidUntil() {
+        return validUntil;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.entitlement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.dataone.bookkeeper.api.Feature;
+import org.dataone.bookkeeper.api.Product;
+import org.dataone.bookkeeper.api.ProductList;
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The features of each product, parsed once from the "features" array of the product
+ * metadata.
+ *
+ * The catalog is immutable. It holds the parsed Feature instances, which are shared by
+ * every lookup and must not be modified; quota templates are handed out as copies.
+ */
+public final class FeatureCatalog {
+
+    /* An empty catalog */
+    public static final FeatureCatalog EMPTY = new FeatureCatalog(Collections.emptyMap());
+
+    /* The metadata field holding the features */
+    private static final String FEATURES = "features";
+
+    /* The reader of feature metadata */
+    private static final ObjectReader READER = BookkeeperCodecs.reader(Feature.class);
+
+    /* The features by name, in metadata order, by product id */
+    private final Map<Integer, Map<String, Feature>> featuresByProduct;
+
+    private FeatureCatalog(Map<Integer, Map<String, Feature>> featuresByProduct) {
+        this.featuresByProduct = featuresByProduct;
+    }
+
+    /**
+     * Build a catalog of the products in a list
+     * @param products the product list
+     * @return catalog the feature catalog
+     * @throws IOException when the features of a product cannot be parsed
+     */
+    public static FeatureCatalog of(ProductList products) throws IOException {
+        return products.getProducts() == null ? EMPTY : of(products.getProducts());
+    }
+
+    /**
+     * Build a catalog of products. Products without an id or without features are skipped.
+     * @param products the products
+     * @return catalog the feature catalog
+     * @throws IOException when the features of a product cannot be parsed
+     */
+    public static FeatureCatalog of(Collection<Product> products) throws IOException {
+        Map<Integer, Map<String, Feature>> featuresByProduct = new HashMap<>();
+        for (Product product : products) {
+            JsonNode features = product.getMetadata() == null ? null : product.getMetadata().get(FEATURES);
+            if ( product.getId() == null || features == null || ! features.isArray() ) {
+                continue;
+            }
+            Map<String, Feature> featuresByName = new LinkedHashMap<>();
+            for (JsonNode node : features) {
+                Feature feature;
+                try {
+                    feature = READER.readValue(node);
+                } catch (IOException e) {
+                    throw new IOException("Invalid feature in the metadata of product " +
+                        product.getId() + ": " + e.getMessage(), e);
+                }
+                if ( feature.getName() != null ) {
+                    featuresByName.put(feature.getName(), feature);
+                }
+            }
+            featuresByProduct.put(product.getId(), Collections.unmodifiableMap(featuresByName));
+        }
+        return new FeatureCatalog(Collections.unmodifiableMap(featuresByProduct));
+    }
+
+    /**
+     * Get the features of a product
+     * @param productId the product identifier
+     * @return features the features in metadata order, empty if the product has none
+     */
+    public Collection<Feature> getFeatures(int productId) {
+        return features(productId).values();
+    }
+
+    /**
+     * Get a feature of a product
+     * @param productId the product identifier
+     * @param name the feature name
+     * @return feature the feature, or null if the product does not have it
+     */
+    public Feature getFeature(int productId, String name) {
+        return features(productId).get(name);
+    }
+
+    /**
+     * Determine if a product has a feature
+     * @param productId the product identifier
+     * @param name the feature name
+     * @return true if the product has the feature
+     */
+    public boolean hasFeature(int productId, String name) {
+        return features(productId).containsKey(name);
+    }
+
+    /**
+     * Get a copy of the quota of a product feature, to create a quota for an order
+     * @param productId the product identifier
+     * @param name the feature name
+     * @return quota a new quota with the feature limits, or null if the feature has no quota
+     */
+    public Quota getQuotaTemplate(int productId, String name) {
+        Feature feature = getFeature(productId, name);
+        Quota quota = feature == null ? null : feature.getQuota();
+        return quota == null ? null : new Quota(null, quota.getObject(), quota.getQuotaType(),
+            quota.getSoftLimit(), quota.getHardLimit(), quota.getTotalUsage(), quota.getUnit(),
+            null, null, quota.getName());
+    }
+
+    /**
+     * Get the ids of the products with features
+     * @return productIds the product identifiers
+     */
+    public Set<Integer> getProductIds() {
+        return featuresByProduct.keySet();
+    }
+
+    /**
+     * Get the features by name of a product
+     */
+    private Map<String, Feature> features(int productId) {
+        Map<String, Feature> features = featuresByProduct.get(productId);
+        return features == null ? Collections.<String, Feature>emptyMap() : features;
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.index;
+
+import org.dataone.bookkeeper.api.Customer;
+import org.dataone.bookkeeper.api.CustomerList;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded in-memory cache of customers by subject, email and id, so authenticated
+ * requests can resolve their subject without a database query.
+ *
+ * Lookups are lock-free reads of concurrent maps. Emails are matched case-insensitively.
+ * Entries expire a fixed time after they are cached, and when the directory is full the
+ * entry to evict is chosen by the CLOCK policy, an approximation of LRU: each entry has a
+ * referenced bit set on every hit, and a hand sweeping the entries evicts the first one
+ * whose bit is clear, clearing the bits it passes. Hits therefore never take a lock;
+ * only puts, removals and expirations do.
+ *
+ * The directory holds the customers themselves: after changing a cached customer, put it
+ * again, or invalidate it.
+ */
+public class CustomerDirectory {
+
+    /* The number of entries the directory holds */
+    private final int maxSize;
+
+    /* The time an entry stays valid, in nanoseconds */
+    private final long ttlNanos;
+
+    /* The time source, in nanoseconds */
+    private final LongSupplier ticker;
+
+    /* The entries by subject */
+    private final ConcurrentMap<String, Entry> bySubject = new ConcurrentHashMap<>();
+
+    /* The entries by case-folded email */
+    private final ConcurrentMap<String, Entry> byEmail = new ConcurrentHashMap<>();
+
+    /* The entries by customer id */
+    private final ConcurrentMap<Integer, Entry> byId = new ConcurrentHashMap<>();
+
+    /* Guards the slots, the free list and the clock hand */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /* The entries in clock order, null for free slots */
+    private final Entry[] slots;
+
+    /* The free slot stack */
+    private final int[] free;
+
+    /* The number of free slots */
+    private int freeCount;
+
+    /* The slot the clock hand points at */
+    private int hand;
+
+    /* The lookup metrics */
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Construct an empty customer directory
+     * @param maxSize the number of customers to hold
+     * @param ttl the time a customer stays cached
+     * @param unit the time unit of the ttl
+     */
+    public CustomerDirectory(int maxSize, long ttl, TimeUnit unit) {
+        this(maxSize, ttl, unit, System::nanoTime);
+    }
+
+    /**
+     * Construct an empty customer directory with a time source
+     */
+    CustomerDirectory(int maxSize, long ttl, TimeUnit unit, LongSupplier ticker) {
+        if ( maxSize <= 0 ) {
+            throw new IllegalArgumentException("The maximum size must be positive: " + maxSize);
+        }
+        if ( ttl <= 0 ) {
+            throw new IllegalArgumentException("The ttl must be positive: " + ttl);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.ticker = ticker;
+        this.slots = new Entry[maxSize];
+        this.free = new int[maxSize];
+        for (int slot = 0; slot < maxSize; slot++) {
+            free[slot] = maxSize - 1 - slot;
+        }
+        this.freeCount = maxSize;
+    }
+
+    /**
+     * Get a customer by subject
+     * @param subject the customer subject
+     * @return customer the customer, or null if it is not cached
+     */
+    public Customer getBySubject(String subject) {
+        return subject == null ? miss() : hit(bySubject.get(subject));
+    }
+
+    /**
+     * Get a customer by subject, loading and caching it when it is not cached
+     * @param subject the customer subject
+     * @param loader the function loading a customer by subject, returning null if there is none
+     * @return customer the customer, or null if the loader has none
+     */
+    public Customer getBySubject(String subject, Function<String, Customer> loader) {
+        Customer customer = getBySubject(subject);
+        if ( customer == null && subject != null ) {
+            customer = loader.apply(subject);
+            if ( customer != null ) {
+                put(customer);
+            }
+        }
+        return customer;
+    }
+
+    /**
+     * Get the customer of an authenticated principal, by its name
+     * @param principal the principal, whose name is the customer subject
+     * @return customer the customer, or null if it is not cached
+     */
+    public Customer get(Principal principal) {
+        return getBySubject(principal.getName());
+    }
+
+    /**
+     * Get a customer by email, ignoring case
+     * @param email the customer email
+     * @return customer the customer, or null if it is not cached
+     */
+    public Customer getByEmail(String email) {
+        return email == null ? miss() : hit(byEmail.get(fold(email)));
+    }
+
+    /**
+     * Get a customer by id
+     * @param id the customer identifier
+     * @return customer the customer, or null if it is not cached
+     */
+    public Customer getById(int id) {
+        return hit(byId.get(id));
+    }
+
+    /**
+     * Cache a customer, replacing any cached customer with the same subject, email or id
+     * @param customer the customer, which must have a subject
+     */
+    public void put(Customer customer) {
+        String subject = Objects.requireNonNull(customer.getSubject(), "The customer subject is required");
+        Entry entry = new Entry(customer, subject, customer.getEmail() == null ? null :
+            fold(customer.getEmail()), customer.getId(), ticker.getAsLong());
+        lock.lock();
+        try {
+            remove(bySubject.get(subject));
+            if ( entry.email != null ) {
+                remove(byEmail.get(entry.email));
+            }
+            if ( entry.id != null ) {
+                remove(byId.get(entry.id));
+            }
+            if ( freeCount == 0 ) {
+                evict();
+            }
+            entry.slot = free[--freeCount];
+            slots[entry.slot] = entry;
+            bySubject.put(subject, entry);
+            if ( entry.email != null ) {
+                byEmail.put(entry.email, entry);
+            }
+            if ( entry.id != null ) {
+                byId.put(entry.id, entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cache the customers of a list, for instance to warm up the directory at startup.
+     * Customers without a subject are skipped.
+     * @param customers the customer list
+     * @return count the number of customers cached
+     */
+    public int putAll(CustomerList customers) {
+        return customers.getCustomers() == null ? 0 : putAll(customers.getCustomers());
+    }
+
+    /**
+     * Cache customers, skipping customers without a subject
+     * @param customers the customers
+     * @return count the number of customers cached
+     */
+    public int putAll(Collection<Customer> customers) {
+        int count = 0;
+        for (Customer customer : customers) {
+            if ( customer.getSubject() != null ) {
+                put(customer);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Remove a customer from the directory
+     * @param subject the customer subject
+     * @return true if the customer was cached
+     */
+    public boolean invalidate(String subject) {
+        lock.lock();
+        try {
+            return remove(bySubject.get(subject));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove all customers from the directory
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            for (Entry entry : slots) {
+                remove(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of cached customers, including expired ones not yet removed
+     * @return size the number of customers
+     */
+    public int size() {
+        return bySubject.size();
+    }
+
+    /**
+     * Get the number of lookups that found a cached customer
+     * @return hitCount the number of hits
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups that found no cached customer, or an expired one
+     * @return missCount the number of misses
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of customers evicted to make room for others
+     * @return evictionCount the number of evictions
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the number of customers removed because their ttl passed
+     * @return expirationCount the number of expirations
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * Get the fraction of lookups that were hits
+     * @return hitRate the hit rate, or 0 before the first lookup
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /*
+     * Count a lookup of an entry, removing it if it has expired
+     */
+    private Customer hit(Entry entry) {
+        if ( entry == null ) {
+            return miss();
+        }
+        if ( ticker.getAsLong() - entry.cachedAt >= ttlNanos ) {
+            lock.lock();
+            try {
+                if ( remove(entry) ) {
+                    expirations.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+            return miss();
+        }
+        // Only write the bit when it changes, so hot entries do not dirty their cache line
+        if ( ! entry.referenced ) {
+            entry.referenced = true;
+        }
+        hits.increment();
+        return entry.customer;
+    }
+
+    private Customer miss() {
+        misses.increment();
+        return null;
+    }
+
+    /*
+     * Free a slot by sweeping the clock hand to the first expired or unreferenced entry.
+     * Called with the lock held and no free slots.
+     */
+    private void evict() {
+        long now = ticker.getAsLong();
+        while ( true ) {
+            Entry entry = slots[hand];
+            hand = hand + 1 == maxSize ? 0 : hand + 1;
+            if ( now - entry.cachedAt >= ttlNanos ) {
+                remove(entry);
+                expirations.increment();
+                return;
+            }
+            if ( entry.referenced ) {
+                entry.referenced = false;
+            } else {
+                remove(entry);
+                evictions.increment();
+                return;
+            }
+        }
+    }
+
+    /*
+     * Remove an entry from the maps and free its slot. Called with the lock held.
+     */
+    private boolean remove(Entry entry) {
+        if ( entry == null || slots[entry.slot] != entry ) {
+            return false;
+        }
+        bySubject.remove(entry.subject, entry);
+        if ( entry.email != null ) {
+            byEmail.remove(entry.email, entry);
+        }
+        if ( entry.id != null ) {
+            byId.remove(entry.id, entry);
+        }
+        slots[entry.slot] = null;
+        free[freeCount++] = entry.slot;
+        return true;
+    }
+
+    private static String fold(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A cached customer and its keys
+     */
+    private static final class Entry {
+        private final Customer customer;
+        private final String subject;
+        private final String email;
+        private final Integer id;
+
+        /* The time the customer was cached, in nanoseconds */
+        private final long cachedAt;
+
+        /* The slot of the entry, assigned under the lock */
+        private int slot;
+
+        /* Whether the entry was hit since the clock hand last passed it */
+        private volatile boolean referenced;
+
+        Entry(Customer customer, String subject, String email, Integer id, long cachedAt) {
+            this.customer = customer;
+            this.subject = subject;
+            this.email = email;
+            this.id = id;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
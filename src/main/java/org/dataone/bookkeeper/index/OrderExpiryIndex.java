@@ -0,0 +1,256 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.index;
+
+import org.dataone.bookkeeper.api.Order;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * An in-memory index of orders by end date, for finding expiring orders without scanning
+ * every order.
+ *
+ * Orders are held in a concurrent skip list keyed by a single long packing the end date
+ * (seconds since the epoch) into the high 32 bits and the order id into the low 32 bits,
+ * so range queries take O(log n) to locate and orders with the same end date are kept in
+ * id order. A second map from order id to key supports updates and removals. Orders
+ * without an id or an end date are not indexed.
+ *
+ * The index holds the orders themselves: after changing an indexed order's end date,
+ * put the order again to move it.
+ */
+public class OrderExpiryIndex {
+
+    /* The orders by packed end date and id */
+    private final ConcurrentNavigableMap<Long, Order> ordersByExpiry = new ConcurrentSkipListMap<>();
+
+    /* The packed keys by order id */
+    private final ConcurrentMap<Integer, Long> keysById = new ConcurrentHashMap<>();
+
+    /**
+     * Construct an empty order expiry index
+     */
+    public OrderExpiryIndex() {
+    }
+
+    /**
+     * Construct an order expiry index of the given orders
+     * @param orders the orders to index
+     */
+    public OrderExpiryIndex(Collection<Order> orders) {
+        putAll(orders);
+    }
+
+    /**
+     * Index an order, replacing any indexed order with the same id. An order without an
+     * end date is removed from the index.
+     * @param order the order, which must have an id
+     * @return true if the order is indexed
+     */
+    public boolean put(Order order) {
+        Integer orderId = Objects.requireNonNull(order.getId(), "The order id is required");
+        Integer endDate = order.getEndDate();
+        if ( endDate == null ) {
+            remove(orderId);
+            return false;
+        }
+        long key = key(endDate, orderId);
+        // Updating under the id map's per-key lock keeps the two maps consistent
+        keysById.compute(orderId, (id, previousKey) -> {
+            if ( previousKey != null && previousKey != key ) {
+                ordersByExpiry.remove(previousKey);
+            }
+            ordersByExpiry.put(key, order);
+            return key;
+        });
+        return true;
+    }
+
+    /**
+     * Index orders, replacing any indexed orders with the same ids. Orders without an id
+     * are skipped.
+     * @param orders the orders to index
+     */
+    public void putAll(Collection<Order> orders) {
+        for (Order order : orders) {
+            if ( order.getId() != null ) {
+                put(order);
+            }
+        }
+    }
+
+    /**
+     * Remove an order from the index
+     * @param orderId the order identifier
+     * @return order the removed order, or null if it was not indexed
+     */
+    public Order remove(int orderId) {
+        Order[] removed = new Order[1];
+        keysById.computeIfPresent(orderId, (id, key) -> {
+            removed[0] = ordersByExpiry.remove(key);
+            return null;
+        });
+        return removed[0];
+    }
+
+    /**
+     * Get an indexed order
+     * @param orderId the order identifier
+     * @return order the order, or null if it is not indexed
+     */
+    public Order get(int orderId) {
+        Long key = keysById.get(orderId);
+        return key == null ? null : ordersByExpiry.get(key);
+    }
+
+    /**
+     * Get the number of indexed orders
+     * @return size the number of orders
+     */
+    public int size() {
+        return keysById.size();
+    }
+
+    /**
+     * Get the orders ending in a time range, in end date order. The collection is a live
+     * view of the index.
+     * @param fromEndDate the earliest end date, inclusive, in seconds since the epoch
+     * @param toEndDate the latest end date, exclusive, in seconds since the epoch
+     * @return orders the orders ending in the range
+     */
+    public Collection<Order> getExpiring(long fromEndDate, long toEndDate) {
+        if ( fromEndDate >= toEndDate ) {
+            return ordersByExpiry.subMap(0L, 0L).values();
+        }
+        return ordersByExpiry.subMap(lowerBound(fromEndDate), lowerBound(toEndDate)).values();
+    }
+
+    /**
+     * Get an iterator over the orders due at a time, those ending at or before it, in end
+     * date order. The iterator reflects concurrent changes to the index, and its remove()
+     * removes the order from the index.
+     * @param now the current time in seconds since the epoch
+     * @return due the iterator over the due orders
+     */
+    public Iterator<Order> due(long now) {
+        Iterator<Order> orders = ordersByExpiry.headMap(lowerBound(now + 1)).values().iterator();
+        return new Iterator<Order>() {
+            private Order current;
+
+            @Override
+            public boolean hasNext() {
+                return orders.hasNext();
+            }
+
+            @Override
+            public Order next() {
+                current = orders.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                if ( current == null ) {
+                    throw new IllegalStateException();
+                }
+                OrderExpiryIndex.this.remove(current.getId(), current);
+                current = null;
+            }
+        };
+    }
+
+    /**
+     * Remove and return the order due at a time with the earliest end date
+     * @param now the current time in seconds since the epoch
+     * @return order the earliest due order, or null if no order is due
+     */
+    public Order pollDue(long now) {
+        long bound = lowerBound(now + 1);
+        while ( true ) {
+            Map.Entry<Long, Order> first = ordersByExpiry.firstEntry();
+            if ( first == null || first.getKey() >= bound ) {
+                return null;
+            }
+            Order order = first.getValue();
+            if ( remove(order.getId(), order) ) {
+                return order;
+            }
+        }
+    }
+
+    /**
+     * Remove the orders due at a time, passing each to a consumer in end date order
+     * @param now the current time in seconds since the epoch
+     * @param consumer the consumer of the due orders
+     * @return count the number of due orders
+     */
+    public int drainDue(long now, Consumer<Order> consumer) {
+        int count = 0;
+        Order order;
+        while ( (order = pollDue(now)) != null ) {
+            consumer.accept(order);
+            count++;
+        }
+        return count;
+    }
+
+    /*
+     * Remove an order from the index if it is still indexed as the given instance
+     */
+    private boolean remove(int orderId, Order order) {
+        boolean[] removed = new boolean[1];
+        keysById.computeIfPresent(orderId, (id, key) -> {
+            if ( ordersByExpiry.get(key) != order ) {
+                return key;
+            }
+            ordersByExpiry.remove(key);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    /*
+     * Pack an end date and order id into an index key
+     */
+    private static long key(int endDate, int orderId) {
+        return ((long) endDate << 32) | (orderId & 0xffffffffL);
+    }
+
+    /*
+     * Get the smallest key for an end date, clamped to the Integer end date range
+     */
+    private static long lowerBound(long endDate) {
+        if ( endDate > Integer.MAX_VALUE ) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(endDate, Integer.MIN_VALUE) << 32;
+    }
+}
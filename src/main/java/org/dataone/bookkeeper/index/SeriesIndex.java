@@ -0,0 +1,334 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.index;
+
+import org.dataone.bookkeeper.api.Order;
+import org.dataone.bookkeeper.api.OrderList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory index of renewal chains: the orders sharing a series id, sorted by start
+ * date (and then by id).
+ *
+ * Each chain is an immutable pair of parallel arrays, replaced as a whole when an order
+ * in the series changes, so readers never lock and always see a consistent chain. A chain
+ * remembers the position of the most recent lookup, and because lookups move forward in
+ * time, finding the current and next pending order is O(1) amortized rather than a search.
+ * Orders without a series id or a start date are not indexed.
+ *
+ * Puts and removes run concurrently with each other. A rebuild builds its maps off to the
+ * side and publishes them at once, waiting for puts and removes in progress; those that
+ * start afterwards apply to the rebuilt index.
+ *
+ * The index holds the orders themselves: after changing an indexed order's series id or
+ * start date, put the order again to move it.
+ */
+public class SeriesIndex {
+
+    /* The order ordering within a chain */
+    private static final Comparator<Order> CHAIN_ORDER =
+        Comparator.comparingInt((Order order) -> order.getStartDate())
+            .thenComparingInt(order -> order.getId());
+
+    /* The chains and series ids, replaced as a whole by a rebuild */
+    private volatile State state = new State(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+
+    /* Shared by puts and removes, and held exclusively to publish a rebuild */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Construct an empty series index
+     */
+    public SeriesIndex() {
+    }
+
+    /**
+     * Construct a series index of the orders in a list
+     * @param orderList the orders to index
+     */
+    public SeriesIndex(OrderList orderList) {
+        rebuild(orderList.getOrders() == null ?
+            Collections.<Order>emptyList() : orderList.getOrders());
+    }
+
+    /**
+     * Index an order, replacing any indexed order with the same id. An order without a
+     * series id or start date is removed from the index.
+     * @param order the order, which must have an id
+     * @return true if the order is indexed
+     */
+    public boolean put(Order order) {
+        Integer orderId = Objects.requireNonNull(order.getId(), "The order id is required");
+        String seriesId = order.getSeriesId();
+        if ( seriesId == null || order.getStartDate() == null ) {
+            remove(orderId);
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            State current = state;
+            // Updating under the id map's per-key lock keeps the two maps consistent
+            current.seriesById.compute(orderId, (id, previousSeriesId) -> {
+                if ( previousSeriesId != null && ! previousSeriesId.equals(seriesId) ) {
+                    current.chains.computeIfPresent(previousSeriesId,
+                        (key, chain) -> chain.without(id));
+                }
+                current.chains.compute(seriesId, (key, chain) ->
+                    chain == null ? new Chain(new Order[] {order}) : chain.with(order));
+                return seriesId;
+            });
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Remove an order from the index
+     * @param orderId the order identifier
+     * @return true if the order was indexed
+     */
+    public boolean remove(int orderId) {
+        boolean[] removed = new boolean[1];
+        lock.readLock().lock();
+        try {
+            State current = state;
+            // Updating the chain under the id map's per-key lock keeps a concurrent put consistent
+            current.seriesById.computeIfPresent(orderId, (id, seriesId) -> {
+                current.chains.computeIfPresent(seriesId, (key, chain) -> chain.without(id));
+                removed[0] = true;
+                return null;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return removed[0];
+    }
+
+    /**
+     * Replace the contents of the index with the given orders. The chains are built with a
+     * single sort per series into new maps, which replace the index maps at once, so
+     * readers see either the old or the rebuilt index.
+     * @param orders the orders to index
+     */
+    public void rebuild(Collection<Order> orders) {
+        // Later orders replace earlier orders with the same id, as they would with put()
+        Map<Integer, Order> ordersById = new HashMap<>(orders.size() * 4 / 3 + 1);
+        for (Order order : orders) {
+            if ( order.getId() != null && order.getSeriesId() != null &&
+                order.getStartDate() != null ) {
+                ordersById.put(order.getId(), order);
+            }
+        }
+        Map<String, List<Order>> ordersBySeries = new HashMap<>();
+        ConcurrentMap<Integer, String> seriesById =
+            new ConcurrentHashMap<>(ordersById.size() * 4 / 3 + 1);
+        for (Order order : ordersById.values()) {
+            ordersBySeries.computeIfAbsent(order.getSeriesId(), key -> new ArrayList<>(2))
+                .add(order);
+            seriesById.put(order.getId(), order.getSeriesId());
+        }
+        ConcurrentMap<String, Chain> chains =
+            new ConcurrentHashMap<>(ordersBySeries.size() * 4 / 3 + 1);
+        for (Map.Entry<String, List<Order>> entry : ordersBySeries.entrySet()) {
+            Order[] chain = entry.getValue().toArray(new Order[0]);
+            Arrays.sort(chain, CHAIN_ORDER);
+            chains.put(entry.getKey(), new Chain(chain));
+        }
+        lock.writeLock().lock();
+        try {
+            state = new State(chains, seriesById);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the current order of a series at a time: the order with the latest start date
+     * at or before the time, if it has not ended. The order status is not considered, so
+     * the current order may be refunded or unpaid; check its status before granting it.
+     * @param seriesId the series identifier
+     * @param now the current time in seconds since the epoch
+     * @return order the current order, or null if no order in the series is active
+     */
+    public Order getCurrent(String seriesId, long now) {
+        Chain chain = state.chains.get(seriesId);
+        if ( chain == null ) {
+            return null;
+        }
+        int position = chain.seek(now);
+        if ( position < 0 ) {
+            return null;
+        }
+        Order order = chain.orders[position];
+        Integer endDate = order.getEndDate();
+        return endDate == null || endDate > now ? order : null;
+    }
+
+    /**
+     * Get the next pending order of a series at a time: the order with the earliest start
+     * date after the time
+     * @param seriesId the series identifier
+     * @param now the current time in seconds since the epoch
+     * @return order the next pending order, or null if there is none
+     */
+    public Order getNextPending(String seriesId, long now) {
+        Chain chain = state.chains.get(seriesId);
+        if ( chain == null ) {
+            return null;
+        }
+        int next = chain.seek(now) + 1;
+        return next < chain.orders.length ? chain.orders[next] : null;
+    }
+
+    /**
+     * Get the orders of a series in start date order
+     * @param seriesId the series identifier
+     * @return orders the orders of the series, empty if the series is not indexed
+     */
+    public List<Order> getOrders(String seriesId) {
+        Chain chain = state.chains.get(seriesId);
+        return chain == null ? Collections.<Order>emptyList() :
+            Collections.unmodifiableList(Arrays.asList(chain.orders));
+    }
+
+    /**
+     * Get the number of indexed series
+     * @return size the number of series
+     */
+    public int size() {
+        return state.chains.size();
+    }
+
+    /**
+     * The index maps, published together
+     */
+    private static final class State {
+
+        /* The chains by series id */
+        private final ConcurrentMap<String, Chain> chains;
+
+        /* The series ids by order id */
+        private final ConcurrentMap<Integer, String> seriesById;
+
+        State(ConcurrentMap<String, Chain> chains, ConcurrentMap<Integer, String> seriesById) {
+            this.chains = chains;
+            this.seriesById = seriesById;
+        }
+    }
+
+    /**
+     * An immutable renewal chain with a lookup position hint
+     */
+    private static final class Chain {
+
+        /* The orders, by start date and id */
+        private final Order[] orders;
+
+        /* The start dates of the orders */
+        private final int[] startDates;
+
+        /*
+         * The position of the last order starting at or before the most recent lookup time.
+         * Races between readers only cost a longer walk, as any position is a valid start.
+         */
+        private int hint = -1;
+
+        Chain(Order[] orders) {
+            this.orders = orders;
+            this.startDates = new int[orders.length];
+            for (int i = 0; i < orders.length; i++) {
+                startDates[i] = orders[i].getStartDate();
+            }
+        }
+
+        /* Find the position of the last order starting at or before a time, or -1 */
+        int seek(long now) {
+            int position = Math.min(hint, orders.length - 1);
+            while ( position + 1 < startDates.length && startDates[position + 1] <= now ) {
+                position++;
+            }
+            while ( position >= 0 && startDates[position] > now ) {
+                position--;
+            }
+            hint = position;
+            return position;
+        }
+
+        /* Copy the chain with an order inserted, replacing any order with the same id */
+        Chain with(Order order) {
+            Chain remaining = without(order.getId());
+            if ( remaining == null ) {
+                return new Chain(new Order[] {order});
+            }
+            int startDate = order.getStartDate();
+            int orderId = order.getId();
+            int insertion = 0;
+            int high = remaining.orders.length;
+            while ( insertion < high ) {
+                int middle = (insertion + high) >>> 1;
+                int middleStart = remaining.startDates[middle];
+                if ( middleStart < startDate || (middleStart == startDate &&
+                    remaining.orders[middle].getId() < orderId) ) {
+                    insertion = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            Order[] inserted = new Order[remaining.orders.length + 1];
+            System.arraycopy(remaining.orders, 0, inserted, 0, insertion);
+            inserted[insertion] = order;
+            System.arraycopy(remaining.orders, insertion, inserted, insertion + 1,
+                remaining.orders.length - insertion);
+            return new Chain(inserted);
+        }
+
+        /* Copy the chain without an order, or return null if the chain would be empty */
+        Chain without(int orderId) {
+            for (int i = 0; i < orders.length; i++) {
+                if ( orders[i].getId() == orderId ) {
+                    if ( orders.length == 1 ) {
+                        return null;
+                    }
+                    Order[] removed = new Order[orders.length - 1];
+                    System.arraycopy(orders, 0, removed, 0, i);
+                    System.arraycopy(orders, i + 1, removed, i, orders.length - i - 1);
+                    return new Chain(removed);
+                }
+            }
+            return this;
+        }
+    }
+}
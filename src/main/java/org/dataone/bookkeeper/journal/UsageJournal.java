@@ -0,0 +1,605 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.journal;
+
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.codec.UsageRecordCodec;
+import org.dataone.bookkeeper.quota.QuotaLedger;
+import org.dataone.bookkeeper.quota.UsageContributions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of usages in memory-mapped segment files, so a node can record
+ * usages durably before they reach the bookkeeper service.
+ *
+ * Each segment file starts with the magic bytes "BKUJ", a format version and the sequence
+ * number of its first record, followed by records of a payload length, a CRC-32 of the
+ * payload and the usage encoded by UsageRecordCodec. Records are numbered from zero across
+ * segments. A new segment is started when a record does not fit in the current one.
+ *
+ * Appending only writes to the mapped segment; sync() forces the appended records to disk.
+ * Concurrent callers of sync() share a single force: a caller whose record was written
+ * while another caller was forcing waits for it, and then forces everything appended so
+ * far on behalf of the callers queued behind it.
+ *
+ * When opened, the journal scans the last segment and resumes after its last record with a
+ * valid checksum, discarding a record torn by a crash and anything after it.
+ */
+public class UsageJournal implements Closeable {
+
+    /* The default segment size, 64 MB */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    /* The segment magic bytes, "BKUJ" */
+    static final int MAGIC = 0x424b554a;
+
+    /* The segment format version */
+    static final byte VERSION = 1;
+
+    /* The segment header size: magic, version, padding and first sequence number */
+    static final int HEADER_SIZE = 16;
+
+    /* The record header size: payload length and checksum */
+    static final int RECORD_HEADER_SIZE = 8;
+
+    /* The segment file name prefix and suffix, around the zero-padded first sequence number */
+    private static final String PREFIX = "usages-";
+    private static final String SUFFIX = ".journal";
+
+    /* The journal directory */
+    private final Path directory;
+
+    /* The size of new segment files */
+    private final int segmentSize;
+
+    /* The record codec, without a learned dictionary so each record stands alone */
+    private final UsageRecordCodec codec = new UsageRecordCodec();
+
+    /* The record checksum, used under the append lock */
+    private final CRC32 crc = new CRC32();
+
+    /* Guards the segments, the active segment and the sequence number */
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    /* Serializes forcing the active segment to disk */
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    /* The segment files by their first sequence number */
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+
+    /* The segment being appended to */
+    private Segment active;
+
+    /* The sequence number of the next record */
+    private long sequence;
+
+    /* The number of records known to be on disk */
+    private volatile long durableSequence;
+
+    /* The number of forces by sync() */
+    private volatile long syncCount;
+
+    /* Whether the journal is closed */
+    private boolean closed;
+
+    /**
+     * Open a journal with the default segment size, creating the directory if needed
+     * @param directory the journal directory
+     * @throws IOException when the journal cannot be opened or recovered
+     */
+    public UsageJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open a journal, creating the directory if needed
+     * @param directory the journal directory
+     * @param segmentSize the size of new segment files in bytes
+     * @throws IOException when the journal cannot be opened or recovered
+     */
+    public UsageJournal(Path directory, int segmentSize) throws IOException {
+        if ( segmentSize < HEADER_SIZE + RECORD_HEADER_SIZE + 64 ) {
+            throw new IllegalArgumentException("The segment size is too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Append a usage to the journal. The record is not durable until it is synced.
+     * @param usage the usage to append
+     * @return sequence the sequence number of the record
+     * @throws IOException when a new segment cannot be created
+     * @throws IllegalArgumentException when the usage does not fit in an empty segment
+     */
+    public long append(Usage usage) throws IOException {
+        appendLock.lock();
+        try {
+            ensureOpen();
+            if ( ! write(usage) ) {
+                if ( active.count == 0 ) {
+                    throw new IllegalArgumentException("The usage does not fit in a segment of " +
+                        segmentSize + " bytes");
+                }
+                roll();
+                if ( ! write(usage) ) {
+                    throw new IllegalArgumentException("The usage does not fit in a segment of " +
+                        segmentSize + " bytes");
+                }
+            }
+            return sequence++;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Append a usage and wait until it is on disk
+     * @param usage the usage to append
+     * @return sequence the sequence number of the record
+     * @throws IOException when the record cannot be written or forced
+     */
+    public long appendAndSync(Usage usage) throws IOException {
+        long recordSequence = append(usage);
+        sync(recordSequence);
+        return recordSequence;
+    }
+
+    /**
+     * Wait until a record is on disk, forcing the active segment unless a concurrent sync
+     * has already covered the record
+     * @param recordSequence the sequence number of the record
+     * @throws IOException when the segment cannot be forced
+     */
+    public void sync(long recordSequence) throws IOException {
+        if ( durableSequence > recordSequence ) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if ( durableSequence > recordSequence ) {
+                return;
+            }
+            Segment segment;
+            long target;
+            appendLock.lock();
+            try {
+                ensureOpen();
+                segment = active;
+                target = sequence;
+            } finally {
+                appendLock.unlock();
+            }
+            // Records in earlier segments were forced when the segment was rolled
+            segment.buffer.force();
+            durableSequence = target;
+            syncCount++;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Wait until all appended records are on disk
+     * @throws IOException when the segment cannot be forced
+     */
+    public void sync() throws IOException {
+        long last;
+        appendLock.lock();
+        try {
+            last = sequence - 1;
+        } finally {
+            appendLock.unlock();
+        }
+        if ( last >= 0 ) {
+            sync(last);
+        }
+    }
+
+    /**
+     * Pass each usage in the journal, from a sequence number on, to a consumer
+     * @param fromSequence the sequence number of the first record to replay
+     * @param consumer the usage consumer
+     * @return count the number of usages replayed
+     * @throws IOException when a segment cannot be read or a record is malformed
+     */
+    public long replay(long fromSequence, Consumer<Usage> consumer) throws IOException {
+        List<Map.Entry<Long, Path>> files;
+        Path activePath;
+        int activeEnd;
+        appendLock.lock();
+        try {
+            ensureOpen();
+            files = new ArrayList<>(segments.entrySet());
+            activePath = active.path;
+            activeEnd = active.end;
+        } finally {
+            appendLock.unlock();
+        }
+        UsageRecordCodec decoder = new UsageRecordCodec();
+        long count = 0;
+        for (int i = 0; i < files.size(); i++) {
+            if ( i + 1 < files.size() && files.get(i + 1).getKey() <= fromSequence ) {
+                continue;
+            }
+            Path path = files.get(i).getValue();
+            ByteBuffer buffer = map(path, FileChannel.MapMode.READ_ONLY);
+            RecordCursor cursor = new RecordCursor(buffer,
+                path.equals(activePath) ? activeEnd : buffer.capacity());
+            long recordSequence = files.get(i).getKey();
+            while ( cursor.next() ) {
+                if ( recordSequence++ < fromSequence ) {
+                    continue;
+                }
+                try {
+                    consumer.accept(decoder.decode(cursor.payload));
+                } catch (IllegalArgumentException | BufferUnderflowException e) {
+                    throw new IOException("Malformed usage record " + (recordSequence - 1) +
+                        " in " + path, e);
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Rebuild quota totals from the journal. The last record for each quota id and instance
+     * id wins: the first is applied to the ledger, and later ones replace its contribution
+     * to the quota total. Usages without an instance id are each applied, and usages
+     * without a quantity count as 0.
+     * @param ledger the ledger with the quotas registered
+     * @return count the number of usages replayed
+     * @throws IOException when a segment cannot be read or a record is malformed
+     * @see UsageContributions#apply(QuotaLedger, Usage)
+     */
+    public long replayInto(QuotaLedger ledger) throws IOException {
+        return replayInto(ledger, 0, new UsageContributions());
+    }
+
+    /**
+     * Rebuild quota totals from the journal, from a sequence number on. After restoring a
+     * QuotaSnapshot, replay from its checkpoint with its contributions, so that records
+     * after the checkpoint replace those before it.
+     * @param ledger the ledger with the quotas registered
+     * @param fromSequence the sequence number of the first record to replay
+     * @param contributions the contributions of the records before the sequence number,
+     *                      updated with those replayed
+     * @return count the number of usages replayed
+     * @throws IOException when a segment cannot be read or a record is malformed
+     * @see #replayInto(QuotaLedger)
+     */
+    public long replayInto(QuotaLedger ledger, long fromSequence, UsageContributions contributions)
+        throws IOException {
+        return replay(fromSequence, usage -> {
+            if ( usage.getQuantity() == null ) {
+                usage.setQuantity(0.0);
+            }
+            contributions.apply(ledger, usage);
+        });
+    }
+
+    /**
+     * Delete the segments that only hold records before a sequence number, for instance
+     * once a snapshot covers them. The active segment is never deleted.
+     * @param beforeSequence the sequence number of the first record to keep
+     * @return count the number of segments deleted
+     * @throws IOException when a segment cannot be deleted
+     */
+    public int deleteBefore(long beforeSequence) throws IOException {
+        appendLock.lock();
+        try {
+            ensureOpen();
+            int count = 0;
+            Map.Entry<Long, Path> first = segments.firstEntry();
+            while ( first != null && ! first.getValue().equals(active.path) &&
+                segments.higherKey(first.getKey()) <= beforeSequence ) {
+                Files.delete(first.getValue());
+                segments.remove(first.getKey());
+                count++;
+                first = segments.firstEntry();
+            }
+            return count;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Get the sequence number of the next record, which is the number of records appended
+     * since the journal was created
+     * @return sequence the next sequence number
+     */
+    public long getSequence() {
+        appendLock.lock();
+        try {
+            return sequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of records known to be on disk
+     * @return durableSequence the sequence number after the last durable record
+     */
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * Get the number of times sync() forced the active segment
+     * @return syncCount the number of forces
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * Get the number of segment files
+     * @return count the number of segments
+     */
+    public int getSegmentCount() {
+        appendLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Force the appended records to disk and close the journal
+     * @throws IOException when the active segment cannot be forced or closed
+     */
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            if ( closed ) {
+                return;
+            }
+            closed = true;
+            active.buffer.force();
+            active.channel.close();
+            durableSequence = sequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Encode a usage at the end of the active segment
+     * @return true if the record fits in the segment
+     */
+    private boolean write(Usage usage) {
+        MappedByteBuffer buffer = active.buffer;
+        int start = active.end;
+        if ( start + RECORD_HEADER_SIZE >= buffer.capacity() ) {
+            return false;
+        }
+        buffer.position(start + RECORD_HEADER_SIZE);
+        try {
+            codec.encode(usage, buffer);
+        } catch (BufferOverflowException e) {
+            return false;
+        }
+        int end = buffer.position();
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start + RECORD_HEADER_SIZE);
+        payload.limit(end);
+        crc.reset();
+        crc.update(payload);
+        // The length goes last, so a reader never sees a length without its checksum
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.putInt(start, end - start - RECORD_HEADER_SIZE);
+        active.end = end;
+        active.count++;
+        return true;
+    }
+
+    /**
+     * Force and close the active segment, and start a new one at the current sequence
+     */
+    private void roll() throws IOException {
+        active.buffer.force();
+        active.channel.close();
+        active = create(sequence);
+    }
+
+    /**
+     * Open the segments in the directory, and resume after the last valid record
+     */
+    private void recover() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream =
+                 Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        // The zero-padded sequence numbers sort by name
+        paths.sort(null);
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            boolean tail = i == paths.size() - 1;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                while ( header.hasRemaining() && channel.read(header) >= 0 ) {
+                    // Read the whole header
+                }
+                int magic = header.getInt(0);
+                if ( magic == 0 && tail ) {
+                    // A segment created just before a crash, without its header
+                    channel.close();
+                    Files.delete(path);
+                    break;
+                }
+                if ( magic != MAGIC || header.get(4) != VERSION ) {
+                    throw new IOException("Not a version " + VERSION + " usage journal segment: " + path);
+                }
+                segments.put(header.getLong(8), path);
+            }
+        }
+        if ( segments.isEmpty() ) {
+            active = create(0);
+        } else {
+            Map.Entry<Long, Path> last = segments.lastEntry();
+            FileChannel channel = FileChannel.open(last.getValue(),
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            active = new Segment(last.getValue(), channel, buffer);
+            RecordCursor cursor = new RecordCursor(buffer, buffer.capacity());
+            while ( cursor.next() ) {
+                active.count++;
+            }
+            active.end = cursor.position;
+            // Clear a torn record and anything after it, so new records are not followed by stale ones
+            for (int i = active.end; i < buffer.capacity(); i++) {
+                if ( buffer.get(i) != 0 ) {
+                    buffer.put(i, (byte) 0);
+                }
+            }
+            buffer.force();
+            sequence = last.getKey() + active.count;
+        }
+        durableSequence = sequence;
+    }
+
+    /**
+     * Create a segment file with its header, and make it the newest segment
+     */
+    private Segment create(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        buffer.putInt(0, MAGIC);
+        buffer.put(4, VERSION);
+        buffer.putLong(8, firstSequence);
+        buffer.force();
+        channel.force(true);
+        Segment segment = new Segment(path, channel, buffer);
+        segment.end = HEADER_SIZE;
+        segments.put(firstSequence, path);
+        return segment;
+    }
+
+    /**
+     * Map a whole segment file
+     */
+    private static MappedByteBuffer map(Path path, FileChannel.MapMode mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(mode, 0, channel.size());
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if ( closed ) {
+            throw new IOException("The usage journal is closed");
+        }
+    }
+
+    /**
+     * A mapped segment file being appended to
+     */
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        /* The offset after the last record */
+        private int end;
+
+        /* The number of records */
+        private int count;
+
+        Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Iterates the records of a segment up to the first one that is incomplete or fails
+     * its checksum
+     */
+    private static final class RecordCursor {
+        private final ByteBuffer buffer;
+        private final int limit;
+        private final CRC32 crc = new CRC32();
+
+        /* The offset of the next record */
+        private int position = HEADER_SIZE;
+
+        /* The payload of the current record */
+        private ByteBuffer payload;
+
+        RecordCursor(ByteBuffer buffer, int limit) {
+            this.buffer = buffer;
+            this.limit = limit;
+        }
+
+        boolean next() {
+            if ( position + RECORD_HEADER_SIZE > limit ) {
+                return false;
+            }
+            int length = buffer.getInt(position);
+            if ( length <= 0 || length > limit - position - RECORD_HEADER_SIZE ) {
+                return false;
+            }
+            ByteBuffer record = buffer.duplicate();
+            record.limit(position + RECORD_HEADER_SIZE + length);
+            record.position(position + RECORD_HEADER_SIZE);
+            ByteBuffer candidate = record.slice();
+            crc.reset();
+            crc.update(record);
+            if ( (int) crc.getValue() != buffer.getInt(position + 4) ) {
+                return false;
+            }
+            payload = candidate;
+            position += RECORD_HEADER_SIZE + length;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.quota;
+
+/**
+ * The outcome of checking a requested quantity against a quota's limits
+ */
+public enum Admission {
+
+    /* The usage after the request stays within the soft limit */
+    WITHIN,
+
+    /* The usage after the request exceeds the soft limit, but not the hard limit */
+    OVER_SOFT,
+
+    /* The usage after the request exceeds the hard limit */
+    OVER_HARD;
+
+    /**
+     * Determine if the request may proceed, which it may unless it exceeds the hard limit
+     * @return true if the request is admitted
+     */
+    public boolean isAdmitted() {
+        return this != OVER_HARD;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.quota;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe Bloom filter over 64-bit hashes. It answers "definitely absent" or
+ * "possibly present", and bits are set with lock-free CAS updates.
+ */
+public class BloomFilter {
+
+    /* The filter bits */
+    private final AtomicLongArray bits;
+
+    /* The number of filter bits, a power of two */
+    private final long bitCount;
+
+    /* The number of bits set per hash */
+    private final int hashCount;
+
+    /**
+     * Construct a Bloom filter sized for the expected number of entries
+     * @param expectedEntries the expected number of entries
+     * @param falsePositiveRate the acceptable false positive rate, between 0 and 1
+     */
+    public BloomFilter(long expectedEntries, double falsePositiveRate) {
+        if ( expectedEntries < 1 ) {
+            throw new IllegalArgumentException("The expected entries must be positive");
+        }
+        if ( falsePositiveRate <= 0.0 || falsePositiveRate >= 1.0 ) {
+            throw new IllegalArgumentException("The false positive rate must be between 0 and 1");
+        }
+        double optimalBits = -expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long words = Math.max(1L, Long.highestOneBit((long) Math.ceil(optimalBits / 64) * 2 - 1));
+        if ( words > Integer.MAX_VALUE ) {
+            throw new IllegalArgumentException("The filter would be too large");
+        }
+        this.bits = new AtomicLongArray((int) words);
+        this.bitCount = words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * Math.log(2)));
+    }
+
+    /**
+     * Add a hash to the filter
+     * @param hash the 64-bit hash of the entry
+     */
+    public void put(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (h1 + (long) i * h2) & (bitCount - 1);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while ( ((current = bits.get(word)) & mask) == 0 ) {
+                if ( bits.compareAndSet(word, current, current | mask) ) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Determine if a hash may have been added to the filter
+     * @param hash the 64-bit hash of the entry
+     * @return false if the hash was definitely not added, true if it may have been
+     */
+    public boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (h1 + (long) i * h2) & (bitCount - 1);
+            if ( (bits.get((int) (bit >>> 6)) & (1L << bit)) == 0 ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of filter bits
+     * @return bitCount the number of bits
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * Get the number of bits set per entry
+     * @return hashCount the number of hashes per entry
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.quota;
+
+import org.dataone.bookkeeper.api.Quota;
+
+/**
+ * Check requested quantities against quota limits. The checks work on primitive doubles
+ * and neither allocate nor modify the quota, so they are suitable for per-object hot paths.
+ * A missing limit is treated as unlimited, and a missing total usage as zero.
+ */
+public final class QuotaCheck {
+
+    /**
+     * The checks are static
+     */
+    private QuotaCheck() {
+    }
+
+    /**
+     * Check a requested quantity against a quota
+     * @param quota the quota
+     * @param requestedQuantity the quantity to be used
+     * @return admission the outcome of the check
+     */
+    public static Admission admit(Quota quota, double requestedQuantity) {
+        return admit(limit(quota.getSoftLimit()), limit(quota.getHardLimit()),
+            quota.getTotalUsage(), requestedQuantity);
+    }
+
+    /**
+     * Check a requested quantity against quota limits
+     * @param softLimit the quota soft limit
+     * @param hardLimit the quota hard limit
+     * @param totalUsage the quota total usage
+     * @param requestedQuantity the quantity to be used
+     * @return admission the outcome of the check
+     */
+    public static Admission admit(double softLimit, double hardLimit,
+                                  double totalUsage, double requestedQuantity) {
+        double projectedUsage = totalUsage + requestedQuantity;
+        if ( projectedUsage > hardLimit ) {
+            return Admission.OVER_HARD;
+        }
+        if ( projectedUsage > softLimit ) {
+            return Admission.OVER_SOFT;
+        }
+        return Admission.WITHIN;
+    }
+
+    /**
+     * Convert a quota limit to a primitive, treating a missing limit as unlimited
+     * @param limit the quota limit
+     * @return limit the limit as a primitive double
+     */
+    static double limit(Double limit) {
+        return limit == null ? Double.POSITIVE_INFINITY : limit;
+    }
+}
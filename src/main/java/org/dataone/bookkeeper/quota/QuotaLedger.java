@@ -0,0 +1,366 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.quota;
+
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.api.UsageStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * An in-memory ledger of quota usage. Quotas are indexed by id and by subject, and usage
+ * is accumulated per quota in striped DoubleAdder counters, so concurrent updates to the
+ * same quota do not contend on a single lock or CAS target. Totals read while updates
+ * are in flight are a consistent-enough snapshot, not a linearizable one.
+ */
+public class QuotaLedger {
+
+    /* The status of a usage counted against its quota */
+    private static final String ACTIVE = "active";
+
+    /* The status of a usage no longer counted against its quota */
+    private static final String INACTIVE = "inactive";
+
+    /* The quota accounts by quota id */
+    private final ConcurrentMap<Integer, Account> accounts = new ConcurrentHashMap<>();
+
+    /* The quota ids by subject */
+    private final ConcurrentMap<String, Set<Integer>> quotasBySubject = new ConcurrentHashMap<>();
+
+    /* The index of applied usages, or null when usages are not deduplicated */
+    private final UsageDedupeIndex dedupeIndex;
+
+    /**
+     * Construct an empty quota ledger
+     */
+    public QuotaLedger() {
+        this(null);
+    }
+
+    /**
+     * Construct an empty quota ledger that ignores usages already applied
+     * @param dedupeIndex the index of applied usages, or null to apply every usage
+     */
+    public QuotaLedger(UsageDedupeIndex dedupeIndex) {
+        this.dedupeIndex = dedupeIndex;
+    }
+
+    /**
+     * Register a quota with the ledger, replacing any quota with the same id. The quota's
+     * total usage, if any, is the starting balance for the usage applied afterwards.
+     * @param quota the quota to register, which must have an id
+     */
+    public void register(Quota quota) {
+        Integer quotaId = Objects.requireNonNull(quota.getId(), "The quota id is required");
+        Account account = new Account(quota);
+        Account previous = accounts.put(quotaId, account);
+        if ( previous != null ) {
+            unindex(previous);
+        }
+        if ( account.subject != null ) {
+            // Add inside the compute, so a concurrent unindex cannot drop the set first
+            quotasBySubject.compute(account.subject, (subject, quotaIds) -> {
+                Set<Integer> ids = quotaIds == null ? ConcurrentHashMap.newKeySet() : quotaIds;
+                ids.add(quotaId);
+                return ids;
+            });
+        }
+    }
+
+    /**
+     * Remove a quota from the ledger
+     * @param quotaId the quota identifier
+     * @return quota a snapshot of the removed quota, or null if it was not registered
+     */
+    public Quota remove(int quotaId) {
+        Account account = accounts.remove(quotaId);
+        if ( account == null ) {
+            return null;
+        }
+        unindex(account);
+        return account.snapshot();
+    }
+
+    /**
+     * Determine if a quota is registered
+     * @param quotaId the quota identifier
+     * @return true if the quota is registered
+     */
+    public boolean contains(int quotaId) {
+        return accounts.containsKey(quotaId);
+    }
+
+    /**
+     * Get the number of registered quotas
+     * @return size the number of quotas
+     */
+    public int size() {
+        return accounts.size();
+    }
+
+    /**
+     * Apply a usage to its quota. Active usages, and usages without a status, add their
+     * quantity to the quota total; inactive usages are not counted. When the ledger has a
+     * dedupe index, a usage with the same quota id and instance id as one already applied
+     * is ignored.
+     * @param usage the usage to apply
+     * @return true if the usage quota is registered and the usage is not a duplicate
+     * @throws IllegalArgumentException when the usage has no quantity
+     */
+    public boolean apply(Usage usage) {
+        Double quantity = requireQuantity(usage);
+        Account account = account(usage.getQuotaId());
+        if ( account == null ) {
+            return false;
+        }
+        if ( dedupeIndex != null && ! dedupeIndex.add(usage) ) {
+            return false;
+        }
+        if ( ! INACTIVE.equals(usage.getStatus()) ) {
+            account.usage.add(quantity);
+        }
+        return true;
+    }
+
+    /**
+     * Transition a usage to a new status, subtracting its quantity from the quota total when
+     * it becomes inactive and adding it back when it becomes active again. The usage status
+     * is updated to the new status. The check and update of the status hold the usage's
+     * monitor, so concurrent transitions of the same Usage instance are counted once;
+     * transitions of distinct instances for the same usage need external synchronization.
+     * @param usage the usage, with its current status
+     * @param status the new usage status
+     * @return true if the usage quota is registered
+     * @throws IllegalArgumentException when the usage has no quantity
+     */
+    public boolean transition(Usage usage, UsageStatus status) {
+        Account account = account(usage.getQuotaId());
+        if ( account == null ) {
+            return false;
+        }
+        boolean isActive = ACTIVE.equals(status.getStatus());
+        synchronized (usage) {
+            double quantity = requireQuantity(usage);
+            boolean wasActive = ! INACTIVE.equals(usage.getStatus());
+            if ( wasActive && ! isActive ) {
+                account.usage.add(-quantity);
+            } else if ( ! wasActive && isActive ) {
+                account.usage.add(quantity);
+            }
+            usage.setStatus(status.getStatus());
+        }
+        return true;
+    }
+
+    /**
+     * Add a quantity to a quota total without a Usage instance
+     * @param quotaId the quota identifier
+     * @param quantity the quantity to add, negative to release usage
+     * @return true if the quota is registered
+     */
+    public boolean record(int quotaId, double quantity) {
+        Account account = accounts.get(quotaId);
+        if ( account == null ) {
+            return false;
+        }
+        account.usage.add(quantity);
+        return true;
+    }
+
+    /**
+     * Get the total usage of a quota
+     * @param quotaId the quota identifier
+     * @return totalUsage the total usage of the quota
+     * @throws IllegalArgumentException when the quota is not registered
+     */
+    public double getTotalUsage(int quotaId) {
+        return requireAccount(quotaId).total();
+    }
+
+    /**
+     * Check a requested quantity against a quota's limits and current total usage
+     * @param quotaId the quota identifier
+     * @param requestedQuantity the quantity to be used
+     * @return admission the outcome of the check
+     * @throws IllegalArgumentException when the quota is not registered
+     */
+    public Admission admit(int quotaId, double requestedQuantity) {
+        Account account = requireAccount(quotaId);
+        return QuotaCheck.admit(account.softLimit, account.hardLimit,
+            account.total(), requestedQuantity);
+    }
+
+    /**
+     * Get a primitive view of a quota's limits and current total usage
+     * @param quotaId the quota identifier
+     * @return view the quota view, or null if the quota is not registered
+     */
+    public QuotaView view(int quotaId) {
+        Account account = accounts.get(quotaId);
+        return account == null ? null :
+            new QuotaView(quotaId, account.softLimit, account.hardLimit, account.total());
+    }
+
+    /**
+     * Get a snapshot of a quota with its current total usage
+     * @param quotaId the quota identifier
+     * @return quota the quota snapshot, or null if the quota is not registered
+     */
+    public Quota getQuota(int quotaId) {
+        Account account = accounts.get(quotaId);
+        return account == null ? null : account.snapshot();
+    }
+
+    /**
+     * Get snapshots of the quotas of a subject with their current total usage
+     * @param subject the quota subject
+     * @return quotas the subject's quota snapshots, empty if there are none
+     */
+    public List<Quota> getQuotas(String subject) {
+        Set<Integer> quotaIds = quotasBySubject.get(subject);
+        if ( quotaIds == null ) {
+            return Collections.emptyList();
+        }
+        List<Quota> quotas = new ArrayList<>(quotaIds.size());
+        for (Integer quotaId : quotaIds) {
+            Quota quota = getQuota(quotaId);
+            if ( quota != null ) {
+                quotas.add(quota);
+            }
+        }
+        return quotas;
+    }
+
+    /**
+     * Get snapshots of all registered quotas with their current total usage
+     * @return quotas the quota snapshots
+     */
+    public List<Quota> getQuotas() {
+        List<Quota> quotas = new ArrayList<>(accounts.size());
+        for (Account account : accounts.values()) {
+            quotas.add(account.snapshot());
+        }
+        return quotas;
+    }
+
+    /*
+     * Get the quantity of a usage, failing if it has none
+     */
+    private static Double requireQuantity(Usage usage) {
+        Double quantity = usage.getQuantity();
+        if ( quantity == null ) {
+            throw new IllegalArgumentException("The usage quantity is required");
+        }
+        return quantity;
+    }
+
+    /*
+     * Get the account of a quota id that may be null
+     */
+    private Account account(Integer quotaId) {
+        return quotaId == null ? null : accounts.get(quotaId);
+    }
+
+    /*
+     * Get the account of a quota, failing if it is not registered
+     */
+    private Account requireAccount(int quotaId) {
+        Account account = accounts.get(quotaId);
+        if ( account == null ) {
+            throw new IllegalArgumentException("The quota " + quotaId + " is not registered");
+        }
+        return account;
+    }
+
+    /*
+     * Remove an account from the subject index
+     */
+    private void unindex(Account account) {
+        if ( account.subject != null ) {
+            quotasBySubject.computeIfPresent(account.subject, (subject, quotaIds) -> {
+                quotaIds.remove(account.quotaId);
+                return quotaIds.isEmpty() ? null : quotaIds;
+            });
+        }
+    }
+
+    /**
+     * A registered quota and its accumulated usage
+     */
+    static final class Account {
+
+        /* The quota identifier */
+        final Integer quotaId;
+
+        /* The quota subject */
+        final String subject;
+
+        /* The registered quota, never handed out */
+        final Quota quota;
+
+        /* The quota soft limit */
+        final double softLimit;
+
+        /* The quota hard limit */
+        final double hardLimit;
+
+        /* The total usage when the quota was registered */
+        final double baseUsage;
+
+        /* The usage applied since the quota was registered */
+        final DoubleAdder usage = new DoubleAdder();
+
+        Account(Quota quota) {
+            this.quota = copy(quota, quota.getTotalUsage());
+            this.quotaId = quota.getId();
+            this.subject = quota.getSubject();
+            this.softLimit = QuotaCheck.limit(quota.getSoftLimit());
+            this.hardLimit = QuotaCheck.limit(quota.getHardLimit());
+            this.baseUsage = quota.getTotalUsage();
+        }
+
+        /* The current total usage */
+        double total() {
+            return baseUsage + usage.sum();
+        }
+
+        /* A copy of the quota with the current total usage */
+        Quota snapshot() {
+            return copy(quota, total());
+        }
+
+        /* Copy a quota with the given total usage */
+        private static Quota copy(Quota quota, double totalUsage) {
+            return new Quota(quota.getId(), quota.getObject(), quota.getQuotaType(),
+                quota.getSoftLimit(), quota.getHardLimit(), totalUsage, quota.getUnit(),
+                quota.getOrderId(), quota.getSubject(), quota.getName());
+        }
+    }
+}
@@ -0,0 +1,426 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.quota;
+
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.codec.Varints;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A point-in-time copy of the registered quotas and their total usage, saved to a file so
+ * a restarted service can restore its ledger without summing the usage history. The
+ * snapshot also holds the usage contributions behind the totals, so that usages replayed
+ * after the checkpoint replace the contributions of earlier records for the same instance.
+ * Only non-zero contributions are kept: an inactive instance replayed after the checkpoint
+ * is applied as new, which adds the same amount. The snapshot size is therefore bounded by
+ * the number of active usage instances, not by the length of the usage history.
+ *
+ * The file starts with the magic bytes "BKQS", a format version, the checkpoint, the
+ * number of quotas, and a CRC-32 of the body. The body holds one record per quota: a
+ * varint of flags for the fields present, then the integers as varints, the limits and
+ * total usage as raw doubles, and the strings as dictionary codes, so repeated types,
+ * units and subjects are spelled out once. The contributions follow: the number of
+ * quotas with contributions, then for each the quota id, the number of instances, and
+ * each instance id and contribution. Version 1 files have no contributions.
+ *
+ * The checkpoint is an opaque position in the usage history the snapshot includes, such
+ * as the UsageJournal sequence number, from which usages are replayed after a restore.
+ * Take it while usages are not being applied, so the totals include exactly the usages
+ * before it.
+ */
+public final class QuotaSnapshot {
+
+    /* The file magic bytes, "BKQS" */
+    static final int MAGIC = 0x424b5153;
+
+    /* The file format version */
+    static final byte VERSION = 2;
+
+    /* The header size: magic, version, padding, checkpoint, quota count and checksum */
+    static final int HEADER_SIZE = 24;
+
+    /* The quota field flags */
+    private static final int ID = 1;
+    private static final int OBJECT = 1 << 1;
+    private static final int QUOTA_TYPE = 1 << 2;
+    private static final int SOFT_LIMIT = 1 << 3;
+    private static final int HARD_LIMIT = 1 << 4;
+    private static final int TOTAL_USAGE = 1 << 5;
+    private static final int UNIT = 1 << 6;
+    private static final int ORDER_ID = 1 << 7;
+    private static final int SUBJECT = 1 << 8;
+    private static final int NAME = 1 << 9;
+
+    /* The quotas, with their total usage */
+    private final List<Quota> quotas;
+
+    /* The usage contributions the totals include */
+    private final UsageContributions contributions;
+
+    /* The position in the usage history the totals include */
+    private final long checkpoint;
+
+    /**
+     * Construct a snapshot of quotas without usage contributions
+     * @param quotas the quotas, with their total usage
+     * @param checkpoint the position in the usage history the totals include
+     */
+    public QuotaSnapshot(Collection<Quota> quotas, long checkpoint) {
+        this(quotas, new UsageContributions(), checkpoint);
+    }
+
+    /**
+     * Construct a snapshot of quotas
+     * @param quotas the quotas, with their total usage
+     * @param contributions the usage contributions the totals include, of which the non-zero
+     *                      ones are copied
+     * @param checkpoint the position in the usage history the totals include
+     */
+    public QuotaSnapshot(Collection<Quota> quotas, UsageContributions contributions, long checkpoint) {
+        this.quotas = Collections.unmodifiableList(new ArrayList<>(quotas));
+        this.contributions = contributions.nonZero();
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Take a snapshot of the quotas registered with a ledger, without usage contributions
+     * @param ledger the quota ledger
+     * @param checkpoint the position in the usage history the ledger totals include
+     * @return snapshot the quota snapshot
+     */
+    public static QuotaSnapshot of(QuotaLedger ledger, long checkpoint) {
+        return new QuotaSnapshot(ledger.getQuotas(), checkpoint);
+    }
+
+    /**
+     * Take a snapshot of the quotas registered with a ledger
+     * @param ledger the quota ledger
+     * @param contributions the usage contributions the ledger totals include
+     * @param checkpoint the position in the usage history the ledger totals include
+     * @return snapshot the quota snapshot
+     */
+    public static QuotaSnapshot of(QuotaLedger ledger, UsageContributions contributions,
+                                   long checkpoint) {
+        return new QuotaSnapshot(ledger.getQuotas(), contributions, checkpoint);
+    }
+
+    /**
+     * Get the quotas
+     * @return quotas the quotas, with their total usage
+     */
+    public List<Quota> getQuotas() {
+        return quotas;
+    }
+
+    /**
+     * Get a copy of the usage contributions, to replay the usages after the checkpoint with
+     * @return contributions the usage contributions the totals include
+     */
+    public UsageContributions getContributions() {
+        return new UsageContributions(contributions);
+    }
+
+    /**
+     * Get the checkpoint
+     * @return checkpoint the position in the usage history the totals include
+     */
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Register the quotas with a ledger, with their total usage as the starting balance
+     * @param ledger the quota ledger
+     * @return count the number of quotas registered
+     */
+    public int restore(QuotaLedger ledger) {
+        for (Quota quota : quotas) {
+            ledger.register(quota);
+        }
+        return quotas.size();
+    }
+
+    /**
+     * Write the snapshot to a file. The snapshot is written and forced to a temporary file
+     * next to it, which then replaces the file, so a crash leaves either snapshot intact.
+     * The directory is forced after the move, so the new snapshot survives a crash before
+     * the usage history it covers is deleted.
+     * @param file the snapshot file
+     * @throws IOException when the snapshot cannot be written
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer buffer = encode();
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while ( buffer.hasRemaining() ) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            forceDirectory(directory);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Read a snapshot from a file, mapping it into memory
+     * @param file the snapshot file
+     * @return snapshot the quota snapshot
+     * @throws IOException when the file cannot be read, is not a snapshot, or fails its checksum
+     */
+    public static QuotaSnapshot read(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if ( buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC ) {
+            throw new IOException("Not a quota snapshot: " + file);
+        }
+        byte version = buffer.get(4);
+        if ( version != 1 && version != VERSION ) {
+            throw new IOException("Unsupported quota snapshot version " + buffer.get(4) + ": " + file);
+        }
+        long checkpoint = buffer.getLong(8);
+        int count = buffer.getInt(16);
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ( (int) crc.getValue() != buffer.getInt(20) || count < 0 ) {
+            throw new IOException("The quota snapshot is corrupt: " + file);
+        }
+        body.position(HEADER_SIZE);
+        List<Quota> quotas = new ArrayList<>(Math.min(count, body.remaining()));
+        List<String> strings = new ArrayList<>();
+        UsageContributions contributions = new UsageContributions();
+        try {
+            for (int i = 0; i < count; i++) {
+                quotas.add(readQuota(body, strings));
+            }
+            if ( version > 1 ) {
+                readContributions(body, strings, contributions);
+            }
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            throw new IOException("The quota snapshot is malformed: " + file, e);
+        }
+        return new QuotaSnapshot(quotas, contributions, checkpoint);
+    }
+
+    /*
+     * Encode the header and body into a buffer ready to be written
+     */
+    private ByteBuffer encode() {
+        int bound = HEADER_SIZE;
+        for (Quota quota : quotas) {
+            bound += 3 + 5 + 5 + 3 * 8 + stringBound(quota.getObject()) +
+                stringBound(quota.getQuotaType()) + stringBound(quota.getUnit()) +
+                stringBound(quota.getSubject()) + stringBound(quota.getName());
+        }
+        bound += 5;
+        for (Map<String, Double> instances : contributions.byQuota().values()) {
+            bound += 5 + 5;
+            for (String instanceId : instances.keySet()) {
+                bound += stringBound(instanceId) + 8;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(bound);
+        buffer.position(HEADER_SIZE);
+        Map<String, Integer> codes = new HashMap<>();
+        for (Quota quota : quotas) {
+            writeQuota(buffer, quota, codes);
+        }
+        writeContributions(buffer, codes);
+        buffer.flip();
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        buffer.putInt(0, MAGIC);
+        buffer.put(4, VERSION);
+        buffer.putLong(8, checkpoint);
+        buffer.putInt(16, quotas.size());
+        buffer.putInt(20, (int) crc.getValue());
+        return buffer;
+    }
+
+    private static void writeQuota(ByteBuffer buffer, Quota quota, Map<String, Integer> codes) {
+        int flags = (quota.getId() != null ? ID : 0) |
+            (quota.getObject() != null ? OBJECT : 0) |
+            (quota.getQuotaType() != null ? QUOTA_TYPE : 0) |
+            (quota.getSoftLimit() != null ? SOFT_LIMIT : 0) |
+            (quota.getHardLimit() != null ? HARD_LIMIT : 0) |
+            (quota.hasTotalUsage() ? TOTAL_USAGE : 0) |
+            (quota.getUnit() != null ? UNIT : 0) |
+            (quota.getOrderId() != null ? ORDER_ID : 0) |
+            (quota.getSubject() != null ? SUBJECT : 0) |
+            (quota.getName() != null ? NAME : 0);
+        Varints.writeVarint(buffer, flags);
+        if ( (flags & ID) != 0 ) {
+            Varints.writeVarint(buffer, quota.getId());
+        }
+        writeString(buffer, quota.getObject(), codes);
+        writeString(buffer, quota.getQuotaType(), codes);
+        if ( (flags & SOFT_LIMIT) != 0 ) {
+            buffer.putDouble(quota.getSoftLimit());
+        }
+        if ( (flags & HARD_LIMIT) != 0 ) {
+            buffer.putDouble(quota.getHardLimit());
+        }
+        if ( (flags & TOTAL_USAGE) != 0 ) {
+            buffer.putDouble(quota.getTotalUsage());
+        }
+        writeString(buffer, quota.getUnit(), codes);
+        if ( (flags & ORDER_ID) != 0 ) {
+            Varints.writeVarint(buffer, quota.getOrderId());
+        }
+        writeString(buffer, quota.getSubject(), codes);
+        writeString(buffer, quota.getName(), codes);
+    }
+
+    private static Quota readQuota(ByteBuffer buffer, List<String> strings) {
+        int flags = Varints.readVarint(buffer);
+        Quota quota = new Quota();
+        quota.setId((flags & ID) != 0 ? Varints.readVarint(buffer) : null);
+        quota.setObject((flags & OBJECT) != 0 ? readString(buffer, strings) : null);
+        quota.setQuotaType((flags & QUOTA_TYPE) != 0 ? readString(buffer, strings) : null);
+        quota.setSoftLimit((flags & SOFT_LIMIT) != 0 ? buffer.getDouble() : null);
+        quota.setHardLimit((flags & HARD_LIMIT) != 0 ? buffer.getDouble() : null);
+        quota.setTotalUsage((flags & TOTAL_USAGE) != 0 ? buffer.getDouble() : null);
+        quota.setUnit((flags & UNIT) != 0 ? readString(buffer, strings) : null);
+        quota.setOrderId((flags & ORDER_ID) != 0 ? Varints.readVarint(buffer) : null);
+        quota.setSubject((flags & SUBJECT) != 0 ? readString(buffer, strings) : null);
+        quota.setName((flags & NAME) != 0 ? readString(buffer, strings) : null);
+        return quota;
+    }
+
+    /*
+     * Write the contributions of each quota, with the instance ids as dictionary strings
+     */
+    private void writeContributions(ByteBuffer buffer, Map<String, Integer> codes) {
+        Map<Integer, Map<String, Double>> byQuota = contributions.byQuota();
+        Varints.writeVarint(buffer, byQuota.size());
+        for (Map.Entry<Integer, Map<String, Double>> quota : byQuota.entrySet()) {
+            Varints.writeVarint(buffer, quota.getKey());
+            Varints.writeVarint(buffer, quota.getValue().size());
+            for (Map.Entry<String, Double> instance : quota.getValue().entrySet()) {
+                writeString(buffer, instance.getKey(), codes);
+                buffer.putDouble(instance.getValue());
+            }
+        }
+    }
+
+    private static void readContributions(ByteBuffer buffer, List<String> strings,
+                                          UsageContributions contributions) {
+        int quotaCount = Varints.readVarint(buffer);
+        for (int i = 0; i < quotaCount; i++) {
+            int quotaId = Varints.readVarint(buffer);
+            int instanceCount = Varints.readVarint(buffer);
+            for (int j = 0; j < instanceCount; j++) {
+                contributions.put(quotaId, readString(buffer, strings), buffer.getDouble());
+            }
+        }
+    }
+
+    /*
+     * Write a string as its dictionary code, or as code 0 and the UTF-8 bytes the first time
+     */
+    private static void writeString(ByteBuffer buffer, String value, Map<String, Integer> codes) {
+        if ( value == null ) {
+            return;
+        }
+        Integer code = codes.get(value);
+        if ( code != null ) {
+            Varints.writeVarint(buffer, code);
+            return;
+        }
+        codes.put(value, codes.size() + 1);
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        Varints.writeVarint(buffer, 0);
+        Varints.writeVarint(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer, List<String> strings) {
+        int code = Varints.readVarint(buffer);
+        if ( code != 0 ) {
+            if ( code < 0 || code > strings.size() ) {
+                throw new IllegalArgumentException("Unknown string code " + code);
+            }
+            return strings.get(code - 1);
+        }
+        int length = Varints.readVarint(buffer);
+        if ( length < 0 || length > buffer.remaining() ) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(value);
+        return value;
+    }
+
+    /*
+     * Force a directory, so the entries moved into it are durable. Platforms that cannot
+     * open a directory, such as Windows, make the move durable themselves.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (FileChannel opened = channel) {
+            opened.force(true);
+        }
+    }
+
+    private static int stringBound(String value) {
+        return value == null ? 0 : 10 + 3 * value.length();
+    }
+}
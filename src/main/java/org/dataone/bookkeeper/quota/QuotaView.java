@@ -0,0 +1,125 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.quota;
+
+import org.dataone.bookkeeper.api.Quota;
+
+/**
+ * An immutable, primitive view of a quota's limits and usage, for repeated admission
+ * checks without unboxing. Create a view when a quota is loaded and check against it.
+ */
+public final class QuotaView {
+
+    /* The quota identifier */
+    private final int quotaId;
+
+    /* The quota soft limit */
+    private final double softLimit;
+
+    /* The quota hard limit */
+    private final double hardLimit;
+
+    /* The quota total usage */
+    private final double totalUsage;
+
+    /**
+     * Construct a quota view
+     * @param quotaId the quota identifier
+     * @param softLimit the quota soft limit
+     * @param hardLimit the quota hard limit
+     * @param totalUsage the quota total usage
+     */
+    public QuotaView(int quotaId, double softLimit, double hardLimit, double totalUsage) {
+        this.quotaId = quotaId;
+        this.softLimit = softLimit;
+        this.hardLimit = hardLimit;
+        this.totalUsage = totalUsage;
+    }
+
+    /**
+     * Create a view of a quota, treating a missing limit as unlimited
+     * @param quota the quota, which must have an id
+     * @return view the quota view
+     */
+    public static QuotaView of(Quota quota) {
+        return new QuotaView(quota.getId(), QuotaCheck.limit(quota.getSoftLimit()),
+            QuotaCheck.limit(quota.getHardLimit()), quota.getTotalUsage());
+    }
+
+    /**
+     * Check a requested quantity against the quota
+     * @param requestedQuantity the quantity to be used
+     * @return admission the outcome of the check
+     */
+    public Admission admit(double requestedQuantity) {
+        return QuotaCheck.admit(softLimit, hardLimit, totalUsage, requestedQuantity);
+    }
+
+    /**
+     * Get a view of the same quota with a different total usage
+     * @param totalUsage the quota total usage
+     * @return view the updated quota view
+     */
+    public QuotaView withTotalUsage(double totalUsage) {
+        return new QuotaView(quotaId, softLimit, hardLimit, totalUsage);
+    }
+
+    /**
+     * Get the quota identifier
+     * @return quotaId the quota identifier
+     */
+    public int getQuotaId() {
+        return quotaId;
+    }
+
+    /**
+     * Get the quota soft limit
+     * @return softLimit the quota soft limit
+     */
+    public double getSoftLimit() {
+        return softLimit;
+    }
+
+    /**
+     * Get the quota hard limit
+     * @return hardLimit the quota hard limit
+     */
+    public double getHardLimit() {
+        return hardLimit;
+    }
+
+    /**
+     * Get the quota total usage
+     * @return totalUsage the quota total usage
+     */
+    public double getTotalUsage() {
+        return totalUsage;
+    }
+
+    /**
+     * Get the usage remaining before the hard limit is reached
+     * @return remaining the remaining quantity, negative when over the hard limit
+     */
+    public double getRemaining() {
+        return hardLimit - totalUsage;
+    }
+}
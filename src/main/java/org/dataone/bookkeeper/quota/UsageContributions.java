@@ -0,0 +1,148 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.quota;
+
+import org.dataone.bookkeeper.api.Usage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The contribution of each usage instance to its quota total, so that a later record for
+ * the same quota id and instance id replaces the earlier contribution rather than adding
+ * to it. Replaying the usage history from a QuotaSnapshot needs the contributions as of
+ * the snapshot checkpoint, so the snapshot saves them with the quota totals.
+ *
+ * Contributions are not thread safe; apply usages from one thread, or synchronize.
+ */
+public final class UsageContributions {
+
+    /* The inactive usage status */
+    private static final String INACTIVE = "inactive";
+
+    /* The contribution of each instance, by quota id and instance id */
+    private final Map<Integer, Map<String, Double>> contributions;
+
+    /**
+     * Construct empty contributions
+     */
+    public UsageContributions() {
+        this.contributions = new HashMap<>();
+    }
+
+    /**
+     * Construct a copy of contributions
+     * @param other the contributions to copy
+     */
+    public UsageContributions(UsageContributions other) {
+        this.contributions = new HashMap<>(other.contributions.size() * 4 / 3 + 1);
+        for (Map.Entry<Integer, Map<String, Double>> entry : other.contributions.entrySet()) {
+            this.contributions.put(entry.getKey(), new HashMap<>(entry.getValue()));
+        }
+    }
+
+    /**
+     * Apply a usage to a ledger, replacing the contribution of the last usage with the same
+     * quota id and instance id. The first usage of an instance is applied to the ledger;
+     * later ones record the difference from the earlier contribution. Active usages, and
+     * usages without a status, contribute their quantity, and inactive usages nothing.
+     * Usages without a quota id or instance id are each applied.
+     * @param ledger the ledger with the quotas registered
+     * @param usage the usage to apply
+     * @throws IllegalArgumentException when the usage has no quantity
+     */
+    public void apply(QuotaLedger ledger, Usage usage) {
+        if ( usage.getInstanceId() == null || usage.getQuotaId() == null ) {
+            ledger.apply(usage);
+            return;
+        }
+        Double quantity = usage.getQuantity();
+        if ( quantity == null ) {
+            throw new IllegalArgumentException("The usage quantity is required");
+        }
+        double contribution = INACTIVE.equals(usage.getStatus()) ? 0 : quantity;
+        Double previous = get(usage.getQuotaId(), usage.getInstanceId());
+        if ( previous == null ) {
+            if ( ledger.apply(usage) ) {
+                put(usage.getQuotaId(), usage.getInstanceId(), contribution);
+            }
+        } else {
+            ledger.record(usage.getQuotaId(), contribution - previous);
+            put(usage.getQuotaId(), usage.getInstanceId(), contribution);
+        }
+    }
+
+    /**
+     * Get the contribution of a usage instance
+     * @param quotaId the quota identifier
+     * @param instanceId the usage instance identifier
+     * @return contribution the contribution to the quota total, or null if none was applied
+     */
+    public Double get(int quotaId, String instanceId) {
+        Map<String, Double> instances = contributions.get(quotaId);
+        return instances == null ? null : instances.get(instanceId);
+    }
+
+    /**
+     * Set the contribution of a usage instance
+     * @param quotaId the quota identifier
+     * @param instanceId the usage instance identifier
+     * @param contribution the contribution to the quota total
+     */
+    public void put(int quotaId, String instanceId, double contribution) {
+        contributions.computeIfAbsent(quotaId, id -> new HashMap<>()).put(instanceId, contribution);
+    }
+
+    /**
+     * Get the number of usage instances with a contribution
+     * @return size the number of usage instances
+     */
+    public int size() {
+        int size = 0;
+        for (Map<String, Double> instances : contributions.values()) {
+            size += instances.size();
+        }
+        return size;
+    }
+
+    /*
+     * Copy the non-zero contributions, for a snapshot
+     */
+    UsageContributions nonZero() {
+        UsageContributions copy = new UsageContributions();
+        for (Map.Entry<Integer, Map<String, Double>> quota : contributions.entrySet()) {
+            for (Map.Entry<String, Double> instance : quota.getValue().entrySet()) {
+                if ( instance.getValue() != 0 ) {
+                    copy.put(quota.getKey(), instance.getKey(), instance.getValue());
+                }
+            }
+        }
+        return copy;
+    }
+
+    /*
+     * Get the contributions by quota id and instance id, for writing a snapshot
+     */
+    Map<Integer, Map<String, Double>> byQuota() {
+        return contributions;
+    }
+}
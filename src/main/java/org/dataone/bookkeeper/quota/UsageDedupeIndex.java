@@ -0,0 +1,245 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.quota;
+
+import org.dataone.bookkeeper.api.Usage;
+
+/**
+ * A concurrent set of (quotaId, instanceId) pairs used to detect duplicate usage
+ * submissions, such as retries from member nodes, without a database round trip.
+ *
+ * Entries live in open-addressing hash tables split into independently locked segments,
+ * storing the hash, quota id and instance id in parallel arrays rather than as entry
+ * objects. An optional Bloom filter in front of the tables answers most lookups of new
+ * pairs without taking a segment lock.
+ */
+public class UsageDedupeIndex {
+
+    /* The maximum load factor of a segment table before it grows */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /* The hash marking an empty slot */
+    private static final int EMPTY = 0;
+
+    /* The index segments */
+    private final Segment[] segments;
+
+    /* The shift selecting a segment from the high bits of a hash */
+    private final int segmentShift;
+
+    /* The optional Bloom filter, or null */
+    private final BloomFilter filter;
+
+    /**
+     * Construct an index without a Bloom filter
+     * @param expectedEntries the expected number of entries
+     */
+    public UsageDedupeIndex(int expectedEntries) {
+        this(expectedEntries, null);
+    }
+
+    /**
+     * Construct an index
+     * @param expectedEntries the expected number of entries
+     * @param filter the Bloom filter to consult before the index tables, or null
+     */
+    public UsageDedupeIndex(int expectedEntries, BloomFilter filter) {
+        int segmentCount = Integer.highestOneBit(
+            Math.max(1, Runtime.getRuntime().availableProcessors()) * 4 * 2 - 1);
+        this.segments = new Segment[segmentCount];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        int segmentEntries = Math.max(8, expectedEntries / segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentEntries);
+        }
+        this.filter = filter;
+    }
+
+    /**
+     * Record a usage, unless the same quota and instance have been recorded already.
+     * Usages without a quota id or instance id cannot be deduplicated and are always new.
+     * @param usage the usage
+     * @return true if the usage is new, false if it is a duplicate
+     */
+    public boolean add(Usage usage) {
+        if ( usage.getQuotaId() == null || usage.getInstanceId() == null ) {
+            return true;
+        }
+        return add(usage.getQuotaId(), usage.getInstanceId());
+    }
+
+    /**
+     * Record a quota and instance pair, unless it has been recorded already
+     * @param quotaId the quota identifier
+     * @param instanceId the usage instance identifier
+     * @return true if the pair is new, false if it is a duplicate
+     */
+    public boolean add(int quotaId, String instanceId) {
+        long hash = hash(quotaId, instanceId);
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            // A negative filter answer means the pair is new; the filter and the segment
+            // are updated together under the segment lock, so the answer cannot be stale
+            boolean known = filter == null || filter.mightContain(hash);
+            if ( known && segment.contains(tableHash(hash), quotaId, instanceId) ) {
+                return false;
+            }
+            segment.insert(tableHash(hash), quotaId, instanceId);
+            if ( filter != null ) {
+                filter.put(hash);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Determine if a quota and instance pair has been recorded
+     * @param quotaId the quota identifier
+     * @param instanceId the usage instance identifier
+     * @return true if the pair has been recorded
+     */
+    public boolean contains(int quotaId, String instanceId) {
+        long hash = hash(quotaId, instanceId);
+        if ( filter != null && ! filter.mightContain(hash) ) {
+            return false;
+        }
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            return segment.contains(tableHash(hash), quotaId, instanceId);
+        }
+    }
+
+    /**
+     * Get the number of recorded pairs
+     * @return size the number of pairs
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /*
+     * Get the segment of a hash
+     */
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> 32) >>> segmentShift];
+    }
+
+    /*
+     * Get the non-empty table hash of a pair hash
+     */
+    private static int tableHash(long hash) {
+        int tableHash = (int) hash;
+        return tableHash == EMPTY ? 1 : tableHash;
+    }
+
+    /*
+     * Hash a quota and instance pair to 64 well-mixed bits
+     */
+    static long hash(int quotaId, String instanceId) {
+        long hash = ((long) quotaId << 32) ^ (instanceId.hashCode() & 0xffffffffL);
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * An open-addressing table with linear probing, guarded by its own monitor
+     */
+    private static final class Segment {
+
+        /* The slot hashes, EMPTY for unused slots */
+        private int[] hashes;
+
+        /* The slot quota ids */
+        private int[] quotaIds;
+
+        /* The slot instance ids */
+        private String[] instanceIds;
+
+        /* The number of used slots */
+        private int size;
+
+        Segment(int expectedEntries) {
+            int capacity = Integer.highestOneBit((int) (expectedEntries / LOAD_FACTOR) * 2 - 1);
+            allocate(Math.max(16, capacity));
+        }
+
+        /* Determine if the table holds the pair */
+        boolean contains(int hash, int quotaId, String instanceId) {
+            int mask = hashes.length - 1;
+            for (int slot = hash & mask; hashes[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if ( hashes[slot] == hash && quotaIds[slot] == quotaId &&
+                    instanceIds[slot].equals(instanceId) ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /* Insert a pair known to be absent */
+        void insert(int hash, int quotaId, String instanceId) {
+            if ( size + 1 > hashes.length * LOAD_FACTOR ) {
+                grow();
+            }
+            put(hash, quotaId, instanceId);
+            size++;
+        }
+
+        /* Store a pair in the first free slot of its probe sequence */
+        private void put(int hash, int quotaId, String instanceId) {
+            int mask = hashes.length - 1;
+            int slot = hash & mask;
+            while ( hashes[slot] != EMPTY ) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = hash;
+            quotaIds[slot] = quotaId;
+            instanceIds[slot] = instanceId;
+        }
+
+        /* Double the table capacity and rehash the pairs */
+        private void grow() {
+            int[] oldHashes = hashes;
+            int[] oldQuotaIds = quotaIds;
+            String[] oldInstanceIds = instanceIds;
+            allocate(oldHashes.length * 2);
+            for (int i = 0; i < oldHashes.length; i++) {
+                if ( oldHashes[i] != EMPTY ) {
+                    put(oldHashes[i], oldQuotaIds[i], oldInstanceIds[i]);
+                }
+            }
+        }
+
+        /* Allocate empty slot arrays */
+        private void allocate(int capacity) {
+            hashes = new int[capacity];
+            quotaIds = new int[capacity];
+            instanceIds = new String[capacity];
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dataone.bookkeeper.helpers.BookkeeperTestHelper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static io.dropwizard.testing.FixtureHelpers.fixture;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test that the model validate() methods agree with bean validation
+ */
+public class ConstraintsTest {
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+
+    /* The default locale, restored after the tests */
+    private static Locale defaultLocale;
+
+    /* The validator factory */
+    private static ValidatorFactory factory;
+
+    /* The validator, reporting English messages */
+    private static Validator validator;
+
+    @BeforeAll
+    public static void createValidator() {
+        defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.ENGLISH);
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+    }
+
+    @AfterAll
+    public static void closeValidator() {
+        factory.close();
+        Locale.setDefault(defaultLocale);
+    }
+
+    /**
+     * Test that valid models have no violations, and invalid values the same violations
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test validate() matches the Validator")
+    public void matchesValidator() throws Exception {
+        Product product = BookkeeperTestHelper.createTestProduct(1);
+        assertParity(product, product.validate());
+        product.setAmount(-1);
+        product.setCaption("");
+        product.setCurrency("USDX");
+        product.setName(null);
+        product.setInterval("fortnight");
+        product.setStatementDescriptor(String.join("", Collections.nCopies(101, "x")));
+        product.setUrl("ftp://example.com");
+        assertParity(product, product.validate());
+
+        Order order = BookkeeperTestHelper.createTestOrder(1, 2, 3, 4);
+        assertParity(order, order.validate());
+        order.setObject("invoice");
+        order.setCustomer(null);
+        order.getItems().get(0).setType("refund");
+        order.getItems().add(new OrderItem("order_item", null, "USD", "Storage", 1000, 1, "sku"));
+        order.getItems().add(null);
+        assertParity(order, order.validate());
+        order.setItems(new ArrayList<>());
+        assertParity(order, order.validate());
+
+        Customer customer = MAPPER.readValue(fixture("fixtures/customer.json"), Customer.class);
+        assertParity(customer, customer.validate());
+        for (String email : new String[] {"", "jdoe", "jdoe@", "j doe@example.com", "jdoe@example..com"}) {
+            customer.setEmail(email);
+            assertParity(customer, customer.validate());
+        }
+        customer.setCurrency("usd");
+        customer.setSubject("");
+        customer.setGivenName(null);
+        assertParity(customer, customer.validate());
+
+        assertAllParity(() -> read("fixtures/quota.json", Quota.class), quota -> {
+            quota.setQuotaType("bandwidth");
+            quota.setSoftLimit(null);
+            quota.setHardLimit(null);
+            quota.setUnit("");
+        });
+        assertAllParity(() -> read("fixtures/usage.json", Usage.class), usage -> {
+            usage.setObject("");
+            usage.setQuantity(null);
+            usage.setInstanceId(null);
+            usage.setStatus("archived");
+        });
+        assertAllParity(() -> read("fixtures/usagestatus.json", UsageStatus.class), status -> {
+            status.setObject(null);
+            status.setStatus("");
+        });
+        assertAllParity(() -> read("fixtures/feature.json", Feature.class), feature -> {
+            feature.setName(null);
+            feature.setLabel("");
+        });
+    }
+
+    /**
+     * Test that violations are reported with their path, message and value
+     */
+    @Test
+    @DisplayName("Test validate() violations")
+    public void reportsViolations() {
+        Order order = BookkeeperTestHelper.createTestOrder(1, 2, 3, 4);
+        assertThat(order.validate()).isEmpty();
+        order.getItems().add(new OrderItem("order_item", 100, "USD", "Storage", 1000, 1, "refund"));
+        assertThat(order.validate()).containsExactly(
+            new Violation("items[1].type", "must match \"sku|tax|shipping|discount\"", "refund"));
+    }
+
+    private static <T> T read(String fixture, Class<T> type) {
+        try {
+            return MAPPER.readValue(fixture(fixture), type);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T> void assertAllParity(Supplier<T> valid, Consumer<T> invalidate) {
+        T model = valid.get();
+        assertParity(model, validate(model));
+        invalidate.accept(model);
+        assertThat(validate(model)).isNotEmpty();
+        assertParity(model, validate(model));
+    }
+
+    private static List<Violation> validate(Object model) {
+        if ( model instanceof Quota ) {
+            return ((Quota) model).validate();
+        } else if ( model instanceof Usage ) {
+            return ((Usage) model).validate();
+        } else if ( model instanceof UsageStatus ) {
+            return ((UsageStatus) model).validate();
+        }
+        return ((Feature) model).validate();
+    }
+
+    private static void assertParity(Object model, List<Violation> violations) {
+        List<String> expected = new ArrayList<>();
+        for (ConstraintViolation<Object> violation : validator.validate(model)) {
+            expected.add(violation.getPropertyPath() + " " + violation.getMessage());
+        }
+        assertThat(violations.stream().map(Violation::toString).collect(Collectors.toList()))
+            .containsExactlyInAnyOrderElementsOf(expected);
+    }
+}
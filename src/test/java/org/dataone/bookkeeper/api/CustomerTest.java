@@ -24,9 +24,14 @@ package org.dataone.bookkeeper.api;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.dataone.service.types.v1.Group;
+import org.dataone.service.types.v1.Person;
+import org.dataone.service.types.v1.SubjectInfo;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import javax.security.auth.Subject;
+
 import static io.dropwizard.testing.FixtureHelpers.fixture;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -100,4 +105,78 @@ class CustomerTest {
             MAPPER.readValue(fixture("fixtures/customer.json"), Customer.class);
         assertThat(deserializedCustomer).isEqualTo(customer);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test that a serialized customer, including its principal name, can be read back
+     */
+    @Test
+    @DisplayName("Test Customer model round trip")
+    public void roundTripsThroughJSON() throws Exception {
+        final Customer customer = new Customer(ID, OBJECT, SUBJECT, BALANCE, ADDRESS, CREATED,
+            CURRENCY, DELINQUENT, DESCRIPTION, DISCOUNT, EMAIL, INVOICEPREFIX, INVOICESETTINGS,
+            METADATA, GIVENNAME, SURNAME, PHONE);
+        final String json = MAPPER.writeValueAsString(customer);
+        assertThat(MAPPER.readTree(json).get("name").asText()).isEqualTo(SUBJECT);
+        assertThat(MAPPER.readValue(json, Customer.class)).isEqualTo(customer);
+    }
+
+    /**
+     * Test that the customer implies subjects for its identities, and is a member of its
+     * nested groups
+     */
+    @Test
+    @DisplayName("Test Customer group membership")
+    public void impliesMemberships() {
+        final Customer customer = new Customer(ID, OBJECT, SUBJECT, BALANCE, ADDRESS, CREATED,
+            CURRENCY, DELINQUENT, DESCRIPTION, DISCOUNT, EMAIL, INVOICEPREFIX, INVOICESETTINGS,
+            METADATA, GIVENNAME, SURNAME, PHONE);
+        assertThat(customer.implies(subject(SUBJECT))).isTrue();
+        assertThat(customer.implies(subject("CN=nceas,DC=dataone,DC=org"))).isFalse();
+        // The subjects every customer shares do not imply the customer
+        assertThat(customer.implies(subject("public"))).isFalse();
+        assertThat(customer.implies(subject("authenticatedUser"))).isFalse();
+        assertThat(customer.isMemberOf("public")).isTrue();
+
+        // The ORCID is equivalent to a DN, which is a member of a group nested in another
+        final SubjectInfo subjectInfo = new SubjectInfo();
+        final Person person = new Person();
+        person.setSubject(d1Subject(SUBJECT));
+        person.addEquivalentIdentity(d1Subject("CN=Christopher Jones,DC=dataone,DC=org"));
+        subjectInfo.addPerson(person);
+        final Group nceas = new Group();
+        nceas.setSubject(d1Subject("CN=nceas,DC=dataone,DC=org"));
+        nceas.addHasMember(d1Subject("CN=Christopher Jones,DC=dataone,DC=org"));
+        subjectInfo.addGroup(nceas);
+        final Group ucsb = new Group();
+        ucsb.setSubject(d1Subject("CN=ucsb,DC=dataone,DC=org"));
+        ucsb.addHasMember(d1Subject("CN=nceas,DC=dataone,DC=org"));
+        subjectInfo.addGroup(ucsb);
+        final Group other = new Group();
+        other.setSubject(d1Subject("CN=other,DC=dataone,DC=org"));
+        subjectInfo.addGroup(other);
+        customer.setSubjectInfo(subjectInfo);
+
+        assertThat(customer.getMemberships()).containsExactlyInAnyOrder(SUBJECT,
+            "CN=Christopher Jones,DC=dataone,DC=org", "CN=nceas,DC=dataone,DC=org",
+            "CN=ucsb,DC=dataone,DC=org", "public", "authenticatedUser");
+        // A group principal makes a member of the group, not the customer
+        assertThat(customer.implies(subject("CN=ucsb,DC=dataone,DC=org"))).isFalse();
+        assertThat(customer.isMemberOf("CN=ucsb,DC=dataone,DC=org")).isTrue();
+        assertThat(customer.implies(subject("CN=Christopher Jones,DC=dataone,DC=org"))).isTrue();
+        assertThat(customer.implies(subject("CN=other,DC=dataone,DC=org"))).isFalse();
+        assertThat(customer.isMemberOf("CN=nceas,DC=dataone,DC=org")).isTrue();
+        assertThat(customer.getMemberships()).isSameAs(customer.getMemberships());
+    }
+
+    private static Subject subject(String name) {
+        final Subject subject = new Subject();
+        subject.getPrincipals().add(() -> name);
+        return subject;
+    }
+
+    private static org.dataone.service.types.v1.Subject d1Subject(String value) {
+        final org.dataone.service.types.v1.Subject subject = new org.dataone.service.types.v1.Subject();
+        subject.setValue(value);
+        return subject;
+    }
+}
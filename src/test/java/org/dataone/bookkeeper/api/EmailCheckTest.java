@@ -0,0 +1,65 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import javax.validation.constraints.Email;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test that the email check agrees with the @Email constraint of the Validator
+ */
+public class EmailCheckTest {
+
+    /**
+     * Test well-formed and malformed addresses against the @Email constraint of Customer email
+     */
+    @Test
+    @DisplayName("Test EmailCheck matches the Validator")
+    public void matchesValidator() {
+        final String[] emails = {
+            "cjones@nceas.ucsb.edu", "c.jones+billing@example.org", "\"c jones\"@example.org",
+            "cjones@[192.168.0.1]", "cjones@localhost", "jöns@exämple.org", "x@x.x",
+            "", "cjones", "cjones@", "@example.org", "c jones@example.org", "cjones@example..org",
+            "cjones@-example.org", "cjones@example.org.", "c..jones@example.org", "cjones@@example.org",
+            "cjones@" + String.join("", Collections.nCopies(64, "x")) + ".org"
+        };
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            final Validator validator = factory.getValidator();
+            for (String email : emails) {
+                assertThat(EmailCheck.isValid(email))
+                    .as(email)
+                    .isEqualTo(validator.validateValue(Customer.class, "email", email).stream()
+                        .noneMatch(violation ->
+                            violation.getConstraintDescriptor().getAnnotation() instanceof Email));
+            }
+        }
+        assertThat(EmailCheck.isValid(null)).isTrue();
+    }
+}
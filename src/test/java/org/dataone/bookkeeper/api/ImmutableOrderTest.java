@@ -0,0 +1,114 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dataone.bookkeeper.helpers.BookkeeperTestHelper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static io.dropwizard.testing.FixtureHelpers.fixture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test the immutable order, order item and quota snapshots
+ */
+public class ImmutableOrderTest {
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Test that a snapshot matches its order, and is unaffected by later changes to either
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test ImmutableOrder snapshot")
+    public void snapshotsOrder() throws Exception {
+        final Order order = BookkeeperTestHelper.createTestOrder(1, 2, 3, 4);
+        final List<Quota> quotas = new ArrayList<>();
+        quotas.add(MAPPER.readValue(fixture("fixtures/quota.json"), Quota.class));
+        order.setQuotas(quotas);
+
+        final ImmutableOrder snapshot = order.freeze();
+        assertThat(snapshot.hashCode()).isEqualTo(order.hashCode());
+        assertThat(snapshot.getItems().get(0).hashCode()).isEqualTo(order.getItems().get(0).hashCode());
+        assertThat(snapshot.getQuotas().get(0).hashCode()).isEqualTo(quotas.get(0).hashCode());
+        assertThat(snapshot.getTotalAmount()).isEqualTo(order.getTotalAmount());
+        assertThat(snapshot.toOrder()).isEqualTo(order);
+        assertThat(MAPPER.readTree(MAPPER.writeValueAsString(snapshot)))
+            .isEqualTo(MAPPER.readTree(MAPPER.writeValueAsString(order)));
+
+        // Neither the order nor the values read from the snapshot can change it
+        order.getItems().get(0).setAmount(1);
+        order.getCharge().put("amount", 1);
+        order.getStatusHistory().record(OrderStatus.REFUNDED, 1559768310);
+        quotas.get(0).setHardLimit(0.0);
+        snapshot.getMetadata().put("changed", true);
+        snapshot.getStatusHistory().record(OrderStatus.REFUNDED, 1559768310);
+        assertThatThrownBy(() -> snapshot.getItems().add(null))
+            .isInstanceOf(UnsupportedOperationException.class);
+        final ImmutableOrder original = BookkeeperTestHelper.createTestOrder(1, 2, 3, 4).freeze();
+        assertThat(snapshot.getItems()).isEqualTo(original.getItems());
+        assertThat(snapshot.getCharge()).isEqualTo(original.getCharge());
+        assertThat(snapshot.getMetadata()).isEqualTo(original.getMetadata());
+        assertThat(snapshot.getStatusHistory()).isEqualTo(original.getStatusHistory());
+        assertThat(snapshot.getQuotas().get(0).getHardLimit()).isEqualTo(3.0);
+    }
+
+    /**
+     * Test snapshot equality, within and across versions of an order
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test ImmutableOrder equality")
+    public void comparesSnapshots() throws Exception {
+        final Order order = BookkeeperTestHelper.createTestOrder(1, 2, 3, 4);
+        final ImmutableOrder snapshot = order.freeze();
+        assertThat(order.freeze()).isEqualTo(snapshot).isNotSameAs(snapshot);
+        assertThat(snapshot).isNotEqualTo(order);
+
+        // A new version, another order, or any other change is unequal
+        order.setUpdated(order.getUpdated() + 1);
+        assertThat(order.freeze()).isNotEqualTo(snapshot);
+        order.setUpdated(snapshot.getUpdated());
+        order.setId(2);
+        assertThat(order.freeze()).isNotEqualTo(snapshot);
+        order.setId(1);
+        order.getItems().get(0).setQuantity(2);
+        assertThat(order.freeze()).isNotEqualTo(snapshot);
+        order.getItems().get(0).setQuantity(snapshot.getItems().get(0).getQuantity());
+        assertThat(order.freeze()).isEqualTo(snapshot);
+
+        // Snapshots of empty models compare by value too
+        final Order empty = new Order();
+        empty.setItems(Collections.<OrderItem>emptyList());
+        assertThat(empty.freeze()).isEqualTo(empty.freeze());
+        assertThat(empty.freeze().hashCode()).isEqualTo(empty.hashCode());
+        assertThat(new Quota().freeze()).isEqualTo(new Quota().freeze());
+        final Quota quota = MAPPER.readValue(fixture("fixtures/quota.json"), Quota.class);
+        assertThat(quota.freeze().toQuota()).isEqualTo(quota);
+    }
+}
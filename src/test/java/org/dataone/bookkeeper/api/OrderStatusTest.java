@@ -0,0 +1,95 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test the order status transitions and status history
+ */
+public class OrderStatusTest {
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Test moving an order through its lifecycle
+     */
+    @Test
+    @DisplayName("Test OrderStatus transitions")
+    public void transitionsOrders() {
+        final Order order = new Order();
+        order.transition(OrderStatus.CREATED, 100);
+        order.transition(OrderStatus.PAID, 200);
+        order.transition(OrderStatus.PAST_DUE, 300);
+        order.transition(OrderStatus.PAID, 400);
+        assertThat(order.getStatus()).isEqualTo("paid");
+        assertThat(order.getStatusHistory().getTimestamp(OrderStatus.PAID)).isEqualTo(400);
+        assertThat(order.getStatusHistory().getLatest()).isEqualTo(OrderStatus.PAID);
+        assertThat(order.getStatusHistory().contains(OrderStatus.TRIALING)).isFalse();
+        assertThat(order.getStatusTransitions().toString())
+            .isEqualTo("{\"created\":100,\"paid\":400,\"past_due\":300}");
+
+        order.transition(OrderStatus.REFUNDED, 500);
+        assertThatThrownBy(() -> order.transition(OrderStatus.ACTIVE, 600))
+            .isInstanceOf(IllegalStateException.class);
+        assertThat(order.getOrderStatus()).isEqualTo(OrderStatus.REFUNDED);
+
+        // An unknown status is kept, and reported by validation
+        order.setStatus("lost");
+        assertThat(order.getStatus()).isEqualTo("lost");
+        assertThat(order.getOrderStatus()).isNull();
+        assertThat(order.validate()).contains(new Violation("status",
+            "must match \"active|created|paid|past_due|refunded|trialing|unpaid\"", "lost"));
+    }
+
+    /**
+     * Test status history serialization
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test StatusHistory serialization")
+    public void serializesStatusHistory() throws Exception {
+        final String json = "{\"created\":1559768309,\"trialing\":null,\"past_due\":1559768400}";
+        final StatusHistory history = MAPPER.readValue(json, StatusHistory.class);
+        assertThat(history.size()).isEqualTo(2);
+        assertThat(history.getTimestamp(OrderStatus.PAST_DUE)).isEqualTo(1559768400);
+        assertThat(MAPPER.writeValueAsString(history))
+            .isEqualTo("{\"created\":1559768309,\"past_due\":1559768400}");
+        assertThat(MAPPER.writeValueAsString(OrderStatus.PAST_DUE)).isEqualTo("\"past_due\"");
+
+        // Keys that are not statuses are kept and written back
+        final String unknown = "{\"paid\":1,\"lost\":{\"at\":2},\"void\":null}";
+        final StatusHistory withUnknown = MAPPER.readValue(unknown, StatusHistory.class);
+        assertThat(withUnknown.size()).isEqualTo(1);
+        assertThat(MAPPER.writeValueAsString(withUnknown)).isEqualTo(unknown);
+        assertThat(withUnknown.copy()).isEqualTo(withUnknown);
+        assertThat(StatusHistory.fromObjectNode(withUnknown.toObjectNode(MAPPER.getNodeFactory())))
+            .isEqualTo(withUnknown);
+        assertThatThrownBy(() -> MAPPER.readValue("{\"paid\":\"today\"}", StatusHistory.class))
+            .isInstanceOf(JsonMappingException.class);
+    }
+}
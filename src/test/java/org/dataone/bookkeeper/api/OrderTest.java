@@ -22,11 +22,16 @@
 package org.dataone.bookkeeper.api;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.dataone.bookkeeper.helpers.BookkeeperTestHelper;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
 import static io.dropwizard.testing.FixtureHelpers.fixture;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -75,4 +80,99 @@ public class OrderTest {
 
     }
 
+    /**
+     * Test that a serialized order, including its computed total, can be read back
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test Order model round trip")
+    public void roundTripsThroughJSON() throws Exception {
+        final Order order = BookkeeperTestHelper.createTestOrder(1, 2, 3, 4);
+        final String json = MAPPER.writeValueAsString(order);
+        assertThat(json).contains("\"totalAmount\":50000");
+        assertThat(MAPPER.readValue(json, Order.class)).isEqualTo(order);
+    }
+
+    /**
+     * Test streaming the order items as a JSON array
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test Order items JSON serialization")
+    public void serializesItemsToJSON() throws Exception {
+        final Order order = BookkeeperTestHelper.createTestOrder(1, 2, 3, 4);
+        final String expected = MAPPER.readTree(fixture(ORDER_JSON)).get("items").toString();
+        assertThat(order.getItemsJSON()).isEqualTo(expected);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        order.writeItemsJSON(outputStream);
+        assertThat(outputStream.toString("UTF-8")).isEqualTo(expected);
+
+        order.setItems(null);
+        assertThat(order.getItemsJSON()).isEqualTo("[]");
+    }
+
+    /**
+     * Test that the typed status and status history keep the JSON wire format
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test Order status wire format")
+    public void serializesStatusAsJSONValues() throws Exception {
+        final Order order = BookkeeperTestHelper.createTestOrder(1, 2, 3, 4);
+        final JsonNode expected = MAPPER.readTree(fixture(ORDER_JSON));
+        final JsonNode actual = MAPPER.readTree(MAPPER.writeValueAsString(order));
+        assertThat(actual.get("status")).isEqualTo(expected.get("status"));
+        assertThat(actual.get("statusTransitions")).isEqualTo(expected.get("statusTransitions"));
+        assertThat(order.getStatusTransitionsJSON())
+            .isEqualTo(expected.get("statusTransitions").toString());
+        assertThat(order.getStatusHistory().getTimestamp(OrderStatus.PAID)).isEqualTo(1559768309);
+
+        // An unknown status is kept on the wire, and reported by validation
+        final String unknown = fixture(ORDER_JSON).replace("\"status\": \"paid\"", "\"status\": \"lost\"");
+        final Order lost = MAPPER.readValue(unknown, Order.class);
+        assertThat(lost.getStatus()).isEqualTo("lost");
+        assertThat(MAPPER.readTree(MAPPER.writeValueAsString(lost)).get("status").asText()).isEqualTo("lost");
+        assertThat(lost.validate()).extracting(Violation::getPropertyPath).containsExactly("status");
+    }
+
+    /**
+     * Test the order totals by type and currency, past the Integer range
+     */
+    @Test
+    @DisplayName("Test Order totals")
+    public void computesTotals() {
+        final Order order = BookkeeperTestHelper.createTestOrder(1, 2, 3, 4);
+        final List<OrderItem> items = new ArrayList<>();
+        items.add(new OrderItem("order_item", Integer.MAX_VALUE, null, "Storage", 1000, 2, "sku"));
+        items.add(new OrderItem("order_item", Integer.MAX_VALUE, "USD", "Storage", 1000, 2, "sku"));
+        items.add(new OrderItem("order_item", 1500, "CAD", "Tax", 1000, 1, "tax"));
+        items.add(new OrderItem("order_item", -500, "USD", "Discount", 1000, 1, "discount"));
+        order.setItems(items);
+
+        final OrderTotals totals = order.getTotals();
+        assertThat(order.getTotalAmount()).isEqualTo(2L * Integer.MAX_VALUE + 1000);
+        assertThat(totals.getSkuTotal()).isEqualTo(2L * Integer.MAX_VALUE);
+        assertThat(totals.getTypeTotal("tax")).isEqualTo(1500);
+        assertThat(totals.getDiscountTotal()).isEqualTo(-500);
+        assertThat(totals.getCurrencyTotal("USD")).isEqualTo(2L * Integer.MAX_VALUE - 500);
+        assertThat(totals.getCurrencies()).containsExactly("USD", "CAD");
+        assertThat(order.getTotals()).isSameAs(totals);
+
+        // Setting the items or the currency recomputes the totals
+        items.add(new OrderItem("order_item", 100, null, "Shipping", 1000, 1, "shipping"));
+        assertThat(order.getTotals()).isSameAs(totals);
+        order.setItems(items);
+        assertThat(order.getTotals().getShippingTotal()).isEqualTo(100);
+        order.setCurrency("CAD");
+        assertThat(order.getTotals().getCurrencyTotal("CAD")).isEqualTo(1600L + Integer.MAX_VALUE);
+
+        // Null items are skipped
+        items.set(2, null);
+        items.set(3, new OrderItem("order_item", -700, "USD", "Discount", 1000, 1, "discount"));
+        order.setItems(items);
+        assertThat(order.getTotals().getTypeTotal("tax")).isEqualTo(0);
+        assertThat(order.freeze().getTotalAmount()).isEqualTo(2L * Integer.MAX_VALUE - 600);
+        assertThat(order.getTotals().getDiscountTotal()).isEqualTo(-700);
+    }
 }
@@ -28,6 +28,9 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import javax.validation.constraints.NotNull;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import static io.dropwizard.testing.FixtureHelpers.fixture;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -84,4 +87,31 @@ class QuotaTest {
             MAPPER.readValue(fixture("fixtures/quota.json"), Quota.class);
         assertThat(deserializedQuota).isEqualTo(quota);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test reading from JSON bytes, buffers, and streams
+     */
+    @Test
+    @DisplayName("Test Quota model deserialization from bytes")
+    public void deserializesFromJSONBytes() throws Exception {
+        final Quota quota = new Quota(ID, OBJECT, TYPE, SOFTLIMIT, HARDLIMIT,
+            USAGE, UNIT, MEMBERSHIP_ID, SUBJECT, NAME);
+        final byte[] json = fixture(QUOTA_JSON).getBytes(StandardCharsets.UTF_8);
+
+        assertThat(Quota.fromJson(json)).isEqualTo(quota);
+        assertThat(Quota.fromJson(new ByteArrayInputStream(json))).isEqualTo(quota);
+        assertThat(new Quota(fixture(QUOTA_JSON))).isEqualTo(quota);
+
+        // Read from an offset heap buffer and a direct buffer
+        final ByteBuffer heapBuffer = ByteBuffer.allocate(json.length + 4);
+        heapBuffer.position(4);
+        heapBuffer.put(json);
+        heapBuffer.position(4);
+        assertThat(Quota.fromJson(heapBuffer.slice())).isEqualTo(quota);
+        final ByteBuffer directBuffer = ByteBuffer.allocateDirect(json.length);
+        directBuffer.put(json);
+        directBuffer.flip();
+        assertThat(Quota.fromJson(directBuffer)).isEqualTo(quota);
+        assertThat(directBuffer.remaining()).isEqualTo(json.length);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static io.dropwizard.testing.FixtureHelpers.fixture;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test the streaming list models
+ */
+class StreamingListTest {
+    private final static ObjectMapper MAPPER = new ObjectMapper();
+    private final static String QUOTA_LIST_JSON = "fixtures/quotalist.json";
+
+    /**
+     * Test that a streaming list serializes like its materialized counterpart
+     */
+    @Test
+    @DisplayName("Test StreamingQuotaList serialization")
+    public void serializesLikeQuotaList() throws Exception {
+        final QuotaList quotaList = MAPPER.readValue(fixture(QUOTA_LIST_JSON), QuotaList.class);
+        quotaList.setStart(0);
+        quotaList.setCount(3);
+        quotaList.setTotal(30);
+
+        final AtomicBoolean closed = new AtomicBoolean();
+        final StreamingQuotaList streamingList = new StreamingQuotaList(
+            quotaList.getQuotas().stream().onClose(() -> closed.set(true)));
+        streamingList.setStart(0);
+        streamingList.setCount(3);
+        streamingList.setTotal(30);
+
+        final String streamed = MAPPER.writeValueAsString(streamingList);
+        final JsonNode expected = MAPPER.readTree(MAPPER.writeValueAsString(quotaList));
+        assertThat(MAPPER.readTree(streamed)).isEqualTo(expected);
+        assertThat(closed.get()).isTrue();
+
+        // The materialized list can read the streamed form
+        assertThat(MAPPER.readValue(streamed, QuotaList.class).getQuotas())
+            .isEqualTo(quotaList.getQuotas());
+    }
+
+    /**
+     * Test streaming a large list of lazily produced usages
+     */
+    @Test
+    @DisplayName("Test StreamingUsageList serialization of a large page")
+    public void serializesLargeUsageList() throws Exception {
+        final int size = 100000;
+        final Stream<Usage> usages = IntStream.range(0, size).mapToObj(i ->
+            new Usage(i, "usage", 1, "urn:uuid:" + i, 1.0, "active", "urn:node:testNode"));
+        final StreamingUsageList usageList = new StreamingUsageList(usages);
+        usageList.setTotal(size);
+
+        // Count the objects written without holding the output
+        final int[] objects = {0};
+        MAPPER.writeValue(new OutputStream() {
+            @Override
+            public void write(int b) {
+                if ( b == '{' ) {
+                    objects[0]++;
+                }
+            }
+        }, usageList);
+        assertThat(objects[0]).isEqualTo(size + 1);
+    }
+
+    /**
+     * Test reading a list response one element at a time
+     */
+    @Test
+    @DisplayName("Test StreamingListReader deserialization")
+    public void readsUsageListIncrementally() throws Exception {
+        final Usage usage = MAPPER.readValue(fixture("fixtures/usage.json"), Usage.class);
+        final UsageList usageList = new UsageList(Arrays.asList(usage, usage, usage));
+        usageList.setStart(0);
+        usageList.setCount(3);
+        usageList.setTotal(9);
+        final byte[] json = MAPPER.writeValueAsBytes(usageList);
+
+        try (StreamingListReader<Usage> reader = UsageList.stream(new ByteArrayInputStream(json))) {
+            assertThat(reader.getStart()).isEqualTo(0);
+            assertThat(reader.getCount()).isEqualTo(3);
+            assertThat(reader.getTotal()).isEqualTo(9);
+            assertThat(reader.stream().collect(Collectors.toList()))
+                .isEqualTo(usageList.getUsages());
+        }
+
+        // Paging properties after the elements are read once the elements are consumed
+        final String trailing = "{\"usages\":[" + fixture("fixtures/usage.json") +
+            "],\"ignored\":{\"a\":[1]},\"total\":1}";
+        final StreamingListReader<Usage> reader =
+            UsageList.stream(new ByteArrayInputStream(trailing.getBytes(StandardCharsets.UTF_8)));
+        assertThat(reader.getTotal()).isNull();
+        assertThat(reader.next()).isEqualTo(usage);
+        assertThat(reader.hasNext()).isFalse();
+        assertThat(reader.getTotal()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.api.UsageList;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test the usage batcher against a local stand-in for the bookkeeper usages endpoint
+ */
+class UsageBatcherTest {
+
+    /* The stand-in usages endpoint */
+    private HttpServer server;
+
+    /* The number of usages in each request received by the endpoint */
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    /* The last usage received for each instance id */
+    private final Map<String, Usage> received = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/bookkeeper/v1/usages", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                UsageList usages = BookkeeperCodecs.read(UsageList.class, body);
+                batchSizes.add(usages.getUsages().size());
+                for (Usage usage : usages.getUsages()) {
+                    received.put(usage.getInstanceId(), usage);
+                }
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    /**
+     * Test that updates to the same instance are coalesced and batches respect the size limit
+     */
+    @Test
+    @DisplayName("Test UsageBatcher coalesces and batches usages")
+    public void coalescesAndBatches() throws Exception {
+        URL endpoint = new URL("http://127.0.0.1:" + server.getAddress().getPort() +
+            "/bookkeeper/v1/usages");
+        HttpUsageSink sink = new HttpUsageSink(endpoint,
+            Collections.singletonMap("Authorization", "Bearer test"), 5000);
+        // Buffer everything, so each repeated instance is coalesced before the flush on close
+        UsageBatcher batcher = new UsageBatcher(sink, 1000, 1000, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 250; i++) {
+            batcher.add(new Usage(null, "usage", 1, "urn:uuid:" + (i % 200), (double) i,
+                "active", "urn:node:testNode"));
+        }
+        batcher.close();
+        assertThat(batcher.getCoalescedUsages()).isEqualTo(50);
+        assertThat(batchSizes).containsExactly(200);
+        assertThat(received.get("urn:uuid:10").getQuantity()).isEqualTo(210.0);
+        assertThat(received.get("urn:uuid:100").getQuantity()).isEqualTo(100.0);
+
+        // Flush by size
+        batchSizes.clear();
+        try (UsageBatcher sizedBatcher = new UsageBatcher(sink, 100, 1000, 1, TimeUnit.HOURS)) {
+            for (int i = 0; i < 250; i++) {
+                sizedBatcher.add(new Usage(null, "usage", 2, "urn:uuid:" + i, 1.0,
+                    "active", "urn:node:testNode"));
+            }
+        }
+        assertThat(batchSizes).allMatch(size -> size <= 100);
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(250);
+    }
+
+    /**
+     * Test that offers time out while the buffer is full, and proceed once a flush drains it
+     */
+    @Test
+    @DisplayName("Test UsageBatcher applies back-pressure")
+    public void appliesBackPressure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<UsageList> sent = new CopyOnWriteArrayList<>();
+        UsageSink blockingSink = usages -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sent.add(usages);
+        };
+        try (UsageBatcher batcher = new UsageBatcher(blockingSink, 2, 2, 1, TimeUnit.HOURS)) {
+            // The first batch is taken by the blocked sender, the second fills the buffer
+            for (int i = 0; i < 4; i++) {
+                assertThat(batcher.offer(usage(i), 5, TimeUnit.SECONDS)).isTrue();
+                while ( i == 1 && batcher.getPendingCount() > 0 ) {
+                    Thread.sleep(1);
+                }
+            }
+            assertThat(batcher.offer(usage(4), 50, TimeUnit.MILLISECONDS)).isFalse();
+            // Updating a buffered instance never waits
+            assertThat(batcher.offer(usage(3), 0, TimeUnit.MILLISECONDS)).isTrue();
+            release.countDown();
+            assertThat(batcher.offer(usage(4), 5, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(sent.stream().mapToInt(list -> list.getUsages().size()).sum()).isEqualTo(5);
+
+        // An offer waiting for room when the batcher closes fails rather than being lost
+        CountDownLatch closing = new CountDownLatch(1);
+        sent.clear();
+        UsageSink closingSink = usages -> {
+            try {
+                closing.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sent.add(usages);
+        };
+        UsageBatcher batcher = new UsageBatcher(closingSink, 1, 1, 1, TimeUnit.HOURS);
+        assertThat(batcher.offer(usage(0), 5, TimeUnit.SECONDS)).isTrue();
+        while ( batcher.getPendingCount() > 0 ) {
+            Thread.sleep(1);
+        }
+        assertThat(batcher.offer(usage(1), 5, TimeUnit.SECONDS)).isTrue();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        Thread waiting = new Thread(() -> {
+            try {
+                batcher.offer(usage(2), 5, TimeUnit.SECONDS);
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        });
+        waiting.start();
+        while ( waiting.getState() != Thread.State.TIMED_WAITING ) {
+            Thread.sleep(1);
+        }
+        Thread closer = new Thread(() -> {
+            try {
+                batcher.close();
+            } catch (Exception e) {
+                failures.add(e);
+            }
+        });
+        closer.start();
+        waiting.join();
+        closing.countDown();
+        closer.join();
+        assertThat(failures).hasSize(1).first().isInstanceOf(IllegalStateException.class);
+        assertThat(sent.stream().mapToInt(list -> list.getUsages().size()).sum()).isEqualTo(2);
+    }
+
+    private static Usage usage(int i) {
+        return new Usage(null, "usage", 1, "urn:uuid:" + i, 1.0, "active", "urn:node:testNode");
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.codec;
+
+import org.dataone.bookkeeper.api.Order;
+import org.dataone.bookkeeper.api.OrderList;
+import org.dataone.bookkeeper.api.QuotaList;
+import org.dataone.bookkeeper.api.UsageList;
+import org.dataone.bookkeeper.helpers.BookkeeperTestHelper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static io.dropwizard.testing.FixtureHelpers.fixture;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test the binary model formats and content negotiation
+ */
+class BookkeeperFormatTest {
+
+    /**
+     * Test that the lists survive a round trip through each format unchanged
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test BookkeeperFormat round trips")
+    public void roundTripsLists() throws Exception {
+        final Order order = BookkeeperTestHelper.createTestOrder(1, 2, 3, 4);
+        final Object[] lists = {
+            new OrderList(Collections.singletonList(order)),
+            BookkeeperCodecs.read(QuotaList.class, fixture("fixtures/quotalist.json").getBytes("UTF-8")),
+            BookkeeperCodecs.read(UsageList.class, ("{\"usages\": [" +
+                fixture("fixtures/usage.json") + "]}").getBytes("UTF-8"))
+        };
+        for (BookkeeperFormat format : BookkeeperFormat.values()) {
+            assertThat(format.isAvailable()).isTrue();
+            for (Object list : lists) {
+                final byte[] encoded = format.write(list);
+                final Object decoded = format.read(list.getClass(), encoded);
+                assertThat(BookkeeperCodecs.toJSON(decoded)).isEqualTo(BookkeeperCodecs.toJSON(list));
+            }
+        }
+        final OrderList orders = (OrderList) lists[0];
+        assertThat(BookkeeperFormat.SMILE.read(OrderList.class, BookkeeperFormat.SMILE.write(orders))
+            .getOrders()).containsExactly(order);
+    }
+
+    /**
+     * Test choosing formats from Content-Type and Accept headers
+     */
+    @Test
+    @DisplayName("Test BookkeeperFormat content negotiation")
+    public void negotiatesFormats() {
+        assertThat(BookkeeperFormat.forContentType("application/json; charset=UTF-8"))
+            .isEqualTo(BookkeeperFormat.JSON);
+        assertThat(BookkeeperFormat.forContentType("Application/CBOR")).isEqualTo(BookkeeperFormat.CBOR);
+        assertThat(BookkeeperFormat.forContentType("text/plain")).isNull();
+
+        assertThat(BookkeeperFormat.negotiate(null)).isEqualTo(BookkeeperFormat.JSON);
+        assertThat(BookkeeperFormat.negotiate("*/*")).isEqualTo(BookkeeperFormat.JSON);
+        assertThat(BookkeeperFormat.negotiate(
+            "application/json;q=0.5, application/x-jackson-smile, application/cbor;q=0.9"))
+            .isEqualTo(BookkeeperFormat.SMILE);
+        assertThat(BookkeeperFormat.negotiate("application/cbor, application/json"))
+            .isEqualTo(BookkeeperFormat.CBOR);
+        assertThat(BookkeeperFormat.negotiate("text/html, application/json;q=0")).isNull();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.codec;
+
+import org.dataone.bookkeeper.api.Order;
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.api.Usage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static io.dropwizard.testing.FixtureHelpers.fixture;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test the string pool and the canonical string deserializer
+ */
+public class StringPoolTest {
+
+    /**
+     * Test that equal values resolve to one instance, from strings or characters
+     */
+    @Test
+    @DisplayName("Test StringPool canonicalizes values")
+    public void canonicalizes() {
+        StringPool pool = new StringPool(100, 8);
+        assertThat(pool.getCapacity()).isEqualTo(128);
+
+        String active = pool.canonicalize(new String("active"));
+        assertThat(pool.canonicalize(new String("active"))).isSameAs(active);
+        char[] chars = "xxactivexx".toCharArray();
+        assertThat(pool.canonicalize(chars, 2, 6)).isSameAs(active);
+        assertThat(pool.canonicalize(chars, 2, 5)).isEqualTo("activ").isNotSameAs(active);
+
+        // Characters are pooled too, and values over the maximum length are not
+        String inactive = pool.canonicalize("inactive".toCharArray(), 0, 8);
+        assertThat(pool.canonicalize(new String("inactive"))).isSameAs(inactive);
+        String long1 = pool.canonicalize(new String("urn:node:testNode"));
+        assertThat(pool.canonicalize(new String("urn:node:testNode"))).isNotSameAs(long1);
+        assertThat(pool.canonicalize((String) null)).isNull();
+
+        // A value taking an occupied slot replaces it, leaving the old value unpooled
+        StringPool single = new StringPool(1, 8);
+        String usage = single.canonicalize(new String("usage"));
+        assertThat(single.canonicalize(new String("quota"))).isEqualTo("quota");
+        assertThat(single.canonicalize(new String("usage"))).isEqualTo(usage).isNotSameAs(usage);
+    }
+
+    /**
+     * Test that models read from JSON share their low-cardinality strings
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test CanonicalStringDeserializer shares model strings")
+    public void sharesModelStrings() throws Exception {
+        Usage first = BookkeeperCodecs.read(Usage.class, fixture("fixtures/usage.json").getBytes("UTF-8"));
+        Usage second = BookkeeperCodecs.reader(Usage.class).readValue(fixture("fixtures/usage.json"));
+        assertThat(second).isEqualTo(first);
+        assertThat(second.getObject()).isSameAs(first.getObject());
+        assertThat(second.getStatus()).isSameAs(first.getStatus());
+        assertThat(second.getNodeId()).isSameAs(first.getNodeId());
+        // Unpooled fields keep their own instances
+        assertThat(second.getInstanceId()).isNotSameAs(first.getInstanceId());
+
+        Quota quota = BookkeeperCodecs.reader(Quota.class).readValue(fixture("fixtures/quota.json"));
+        assertThat(quota.getQuotaType()).isSameAs(StringPool.shared().canonicalize(new String("portal")));
+        assertThat(quota.getUnit()).isSameAs(quota.getQuotaType());
+
+        Order order = BookkeeperCodecs.reader(Order.class).readValue(fixture("fixtures/order.json"));
+        Order copy = BookkeeperCodecs.reader(Order.class).readValue(fixture("fixtures/order.json"));
+        assertThat(copy.getItems().get(0).getType()).isSameAs(order.getItems().get(0).getType());
+        assertThat(copy.getCurrency()).isSameAs(order.getCurrency());
+
+        // Scalars are coerced as for any string
+        Usage coerced = BookkeeperCodecs.reader(Usage.class)
+            .readValue("{\"object\":\"usage\",\"status\":1,\"nodeId\":null}");
+        assertThat(coerced.getStatus()).isEqualTo("1");
+        assertThat(coerced.getNodeId()).isNull();
+        assertThat(coerced.getObject()).isSameAs(first.getObject());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.codec;
+
+import org.dataone.bookkeeper.api.Order;
+import org.dataone.bookkeeper.helpers.BookkeeperTestHelper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test epoch-second timestamp formatting
+ */
+class TimestampsTest {
+
+    /**
+     * Test that timestamps match SimpleDateFormat across the epoch-second Integer range
+     */
+    @Test
+    @DisplayName("Test Timestamps matches SimpleDateFormat")
+    public void matchesSimpleDateFormat() {
+        SimpleDateFormat formatter = new SimpleDateFormat(Timestamps.PATTERN);
+        Random random = new Random(42);
+        long[] values = {0L, 1L, -1L, 951782400L, 1583020800L, 1615705199L, 1615705200L,
+            Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (long value : values) {
+            assertThat(Timestamps.format(value))
+                .isEqualTo(formatter.format(new Date(value * 1000)));
+        }
+        for (int i = 0; i < 10000; i++) {
+            int value = random.nextInt();
+            String expected = formatter.format(new Date(value * 1000L));
+            assertThat(Timestamps.format(value)).isEqualTo(expected);
+            // Repeat to read the cached value
+            assertThat(Timestamps.format(value)).isEqualTo(expected);
+            assertThat(Timestamps.appendTo(new StringBuilder("at "), value).toString())
+                .isEqualTo("at " + expected);
+        }
+    }
+
+    /**
+     * Test the model timestamp getters
+     */
+    @Test
+    @DisplayName("Test model timestamp getters")
+    public void formatsModelTimestamps() throws Exception {
+        assertThat(new Order().getCreatedTimestamp()).isNull();
+        Order order = BookkeeperTestHelper.createTestOrder(1, 2, 3, 4);
+        order.setCreated(1583020800);
+        order.setEndDate(1615705200);
+        assertThat(order.getCreatedTimestamp()).isEqualTo(Timestamps.format(1583020800L));
+        assertThat(order.getEndDateTimestamp()).isEqualTo(Timestamps.format(1615705200L));
+        assertThat(BookkeeperCodecs.toJSON(order)).doesNotContain("Timestamp");
+    }
+}
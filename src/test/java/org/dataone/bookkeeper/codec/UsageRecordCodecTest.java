@@ -0,0 +1,140 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.codec;
+
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.api.UsageList;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static io.dropwizard.testing.FixtureHelpers.fixture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test the binary usage record format
+ */
+class UsageRecordCodecTest {
+
+    /**
+     * Test that the fixture usage survives a round trip through heap and direct buffers
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test UsageRecordCodec round trip")
+    public void roundTripsUsage() throws Exception {
+        final Usage usage = BookkeeperCodecs.read(Usage.class,
+            fixture("fixtures/usage.json").getBytes("UTF-8"));
+        final UsageRecordCodec[] codecs = {
+            new UsageRecordCodec(),
+            new UsageRecordCodec(Collections.singletonList("urn:node:testNode"))
+        };
+        for (UsageRecordCodec codec : codecs) {
+            for (ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.allocate(128), ByteBuffer.allocateDirect(128)}) {
+                codec.encode(usage, buffer);
+                assertThat(buffer.position()).isLessThanOrEqualTo(UsageRecordCodec.maxEncodedSize(usage));
+                buffer.flip();
+                assertThat(codec.decode(buffer)).isEqualTo(usage);
+                assertThat(buffer.hasRemaining()).isFalse();
+            }
+        }
+
+        // The dictionary code replaces the 17 byte node literal
+        final ByteBuffer plain = ByteBuffer.allocate(128);
+        final ByteBuffer coded = ByteBuffer.allocate(128);
+        codecs[0].encode(usage, plain);
+        codecs[1].encode(usage, coded);
+        assertThat(coded.position()).isEqualTo(plain.position() - 18);
+
+        final ByteBuffer small = ByteBuffer.allocate(20);
+        small.put((byte) 1);
+        assertThatThrownBy(() -> codecs[0].encode(usage, small))
+            .isInstanceOf(BufferOverflowException.class);
+        assertThat(small.position()).isEqualTo(1);
+    }
+
+    /**
+     * Test writing and reading a framed stream, including missing and unusual fields
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test UsageRecordWriter and UsageRecordReader")
+    public void roundTripsStream() throws Exception {
+        final List<Usage> usages = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            usages.add(new Usage(i * 1000 - 5, "usage", i % 7, "urn:uuid:" + i, i / 3.0,
+                i % 2 == 0 ? "active" : "inactive", "urn:node:node" + (i % 5)));
+        }
+        final Usage sparse = new Usage();
+        sparse.setObject("legacy_usage");
+        usages.add(sparse);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (UsageRecordWriter writer = new UsageRecordWriter(outputStream)) {
+            writer.writeAll(usages);
+            assertThat(writer.getCount()).isEqualTo(1001);
+        }
+        final byte[] records = outputStream.toByteArray();
+        final byte[] json = BookkeeperCodecs.writer(UsageList.class)
+            .writeValueAsBytes(new UsageList(usages));
+        assertThat(records.length).isLessThan(json.length / 3);
+
+        final List<Usage> read = new ArrayList<>();
+        try (UsageRecordReader reader = new UsageRecordReader(new ByteArrayInputStream(records))) {
+            Usage usage;
+            while ( (usage = reader.read()) != null ) {
+                read.add(usage);
+            }
+        }
+        assertThat(read.subList(0, 1000)).isEqualTo(usages.subList(0, 1000));
+        assertThat(read.get(1000).getObject()).isEqualTo("legacy_usage");
+        assertThat(read.get(1000).getQuotaId()).isNull();
+
+        // A negative instance id length is a malformed record, not an index exception
+        final byte[] malformed = {6, 1 << 2, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f};
+        assertThatThrownBy(() -> new UsageRecordCodec().decode(ByteBuffer.wrap(malformed, 1, 6)))
+            .isInstanceOf(IllegalArgumentException.class);
+        // So is a negative status dictionary code
+        final byte[] negativeCode = {1 << 4, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f};
+        assertThatThrownBy(() -> new UsageRecordCodec().decode(ByteBuffer.wrap(negativeCode)))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Unknown dictionary code -1");
+        final ByteArrayOutputStream malformedStream = new ByteArrayOutputStream();
+        malformedStream.write(records, 0, 5);
+        malformedStream.write(malformed, 0, 7);
+        try (UsageRecordReader reader = new UsageRecordReader(
+                new ByteArrayInputStream(malformedStream.toByteArray()))) {
+            assertThatThrownBy(reader::read)
+                .isInstanceOf(IOException.class)
+                .hasMessage("Malformed usage record");
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.entitlement;
+
+import org.dataone.bookkeeper.api.Order;
+import org.dataone.bookkeeper.api.OrderStatus;
+import org.dataone.bookkeeper.api.Product;
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.codec.BookkeeperCodecs;
+import org.dataone.bookkeeper.helpers.BookkeeperTestHelper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.dropwizard.testing.FixtureHelpers.fixture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test the feature catalog and entitlement resolver
+ */
+class EntitlementResolverTest {
+    private static final String SUBJECT = "http://orcid.org/0000-0002-8121-2341";
+
+    /**
+     * Test resolving, caching, expiring and invalidating entitlements
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test EntitlementResolver resolves product features")
+    public void resolvesEntitlements() throws Exception {
+        final FeatureCatalog catalog = FeatureCatalog.of(Collections.singletonList(product()));
+        assertThat(catalog.getFeatures(1)).hasSize(6);
+        final Quota template = catalog.getQuotaTemplate(1, "custom_portal");
+        assertThat(template.getHardLimit()).isEqualTo(3.0);
+        template.setHardLimit(10.0);
+        assertThat(catalog.getQuotaTemplate(1, "custom_portal").getHardLimit()).isEqualTo(3.0);
+
+        final List<Order> orders = new ArrayList<>();
+        final AtomicInteger loads = new AtomicInteger();
+        final EntitlementResolver resolver = new EntitlementResolver(catalog, subject -> {
+            loads.incrementAndGet();
+            return SUBJECT.equals(subject) ? orders : null;
+        });
+        final Order order = order(1, 1000, 2000);
+        orders.add(order);
+
+        // Before the order starts, during it, and after it ends
+        assertThat(resolver.getEntitlements(SUBJECT, 500).hasFeature("custom_portal")).isFalse();
+        final Entitlements entitlements = resolver.getEntitlements(SUBJECT, 1000);
+        assertThat(entitlements.hasFeature("custom_portal")).isTrue();
+        assertThat(entitlements.getOrderIds()).containsExactly(1);
+        assertThat(entitlements.getValidUntil()).isEqualTo(2000);
+        assertThat(resolver.getEntitlements(SUBJECT, 1999)).isSameAs(entitlements);
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(resolver.getEntitlements(SUBJECT, 2000).getFeatureNames()).isEmpty();
+        assertThat(loads.get()).isEqualTo(3);
+
+        // Changing an order invalidates the subject
+        order.setEndDate(3000);
+        resolver.orderChanged(order);
+        assertThat(resolver.getEntitlements(SUBJECT, 2000).hasFeature("aggregated_metrics")).isTrue();
+        order.setOrderStatus(OrderStatus.REFUNDED);
+        resolver.orderChanged(order);
+        assertThat(resolver.getEntitlements(SUBJECT, 2000).hasFeature("aggregated_metrics")).isFalse();
+
+        assertThat(resolver.hasFeature("CN=other,DC=dataone,DC=org", "custom_portal")).isFalse();
+        resolver.setCatalog(FeatureCatalog.EMPTY);
+        assertThat(resolver.size()).isEqualTo(0);
+    }
+
+    /**
+     * Test that a feature that is not an object is rejected
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test FeatureCatalog rejects invalid features")
+    public void rejectsInvalidFeatures() throws Exception {
+        final Product product = product();
+        product.getMetadata().withArray("features").add("custom_portal");
+        assertThatThrownBy(() -> FeatureCatalog.of(Collections.singletonList(product)))
+            .isInstanceOf(IOException.class).hasMessageContaining("product 1");
+    }
+
+    private static Product product() throws IOException {
+        return BookkeeperCodecs.read(Product.class,
+            fixture("fixtures/product.json").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Order order(int productId, int startDate, int endDate) {
+        final Order order = BookkeeperTestHelper.createTestOrder(1, 2, 3, 4);
+        order.setSubject(SUBJECT);
+        order.getItems().get(0).setParent(productId);
+        order.setStartDate(startDate);
+        order.setEndDate(endDate);
+        return order;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.index;
+
+import org.dataone.bookkeeper.api.Customer;
+import org.dataone.bookkeeper.api.CustomerList;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test the customer directory
+ */
+class CustomerDirectoryTest {
+
+    /**
+     * Test lookups by each key, replacement, expiry and the metrics
+     */
+    @Test
+    @DisplayName("Test CustomerDirectory lookups and expiry")
+    public void looksUpCustomers() {
+        final AtomicLong now = new AtomicLong();
+        final CustomerDirectory directory = new CustomerDirectory(10, 1, TimeUnit.MINUTES, now::get);
+        final List<Customer> customers = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            customers.add(customer(i, "http://orcid.org/0000-0000-0000-000" + i, "User" + i + "@Example.org"));
+        }
+        customers.add(customer(4, null, null));
+        assertThat(directory.putAll(new CustomerList(customers))).isEqualTo(3);
+
+        assertThat(directory.getBySubject("http://orcid.org/0000-0000-0000-0001").getId()).isEqualTo(1);
+        assertThat(directory.get(customers.get(1)).getId()).isEqualTo(2);
+        assertThat(directory.getByEmail("user3@example.ORG").getId()).isEqualTo(3);
+        assertThat(directory.getById(2).getSubject()).isEqualTo("http://orcid.org/0000-0000-0000-0002");
+        assertThat(directory.getById(4)).isNull();
+
+        // A new email for a subject replaces the old one
+        directory.put(customer(1, "http://orcid.org/0000-0000-0000-0001", "new@example.org"));
+        assertThat(directory.getByEmail("user1@example.org")).isNull();
+        assertThat(directory.getByEmail("NEW@example.org").getId()).isEqualTo(1);
+        assertThat(directory.size()).isEqualTo(3);
+        assertThat(directory.getHitCount()).isEqualTo(5);
+        assertThat(directory.getMissCount()).isEqualTo(2);
+
+        // Entries expire, and the loader reloads them
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertThat(directory.getById(2)).isNull();
+        assertThat(directory.getExpirationCount()).isEqualTo(1);
+        final Customer loaded = directory.getBySubject("http://orcid.org/0000-0000-0000-0002",
+            subject -> customer(2, subject, null));
+        assertThat(directory.getById(2)).isSameAs(loaded);
+
+        assertThat(directory.invalidate("http://orcid.org/0000-0000-0000-0002")).isTrue();
+        assertThat(directory.getBySubject("http://orcid.org/0000-0000-0000-0002")).isNull();
+        directory.invalidateAll();
+        assertThat(directory.size()).isEqualTo(0);
+    }
+
+    /**
+     * Test that a full directory evicts customers that were not looked up recently
+     */
+    @Test
+    @DisplayName("Test CustomerDirectory eviction")
+    public void evictsUnreferencedCustomers() {
+        final CustomerDirectory directory = new CustomerDirectory(4, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 4; i++) {
+            directory.put(customer(i, "subject" + i, null));
+        }
+        directory.getById(0);
+        directory.getById(2);
+        directory.put(customer(4, "subject4", null));
+        directory.put(customer(5, "subject5", null));
+        assertThat(directory.size()).isEqualTo(4);
+        assertThat(directory.getEvictionCount()).isEqualTo(2);
+        assertThat(directory.getById(0)).isNotNull();
+        assertThat(directory.getById(2)).isNotNull();
+        assertThat(directory.getById(1)).isNull();
+        assertThat(directory.getById(3)).isNull();
+    }
+
+    private static Customer customer(int id, String subject, String email) {
+        final Customer customer = new Customer();
+        customer.setId(id);
+        customer.setObject("customer");
+        customer.setSubject(subject);
+        customer.setEmail(email);
+        return customer;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.index;
+
+import org.dataone.bookkeeper.api.Order;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test the order expiry index
+ */
+class OrderExpiryIndexTest {
+
+    /**
+     * Create an order with an end date
+     */
+    private static Order createOrder(int id, Integer endDate) {
+        Order order = new Order();
+        order.setId(id);
+        order.setObject("order");
+        order.setEndDate(endDate);
+        return order;
+    }
+
+    /**
+     * Test range queries as orders are added, moved and removed
+     */
+    @Test
+    @DisplayName("Test OrderExpiryIndex range queries")
+    public void findsExpiringOrders() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            orders.add(createOrder(i, 1000 + (i % 10) * 100));
+        }
+        orders.add(createOrder(101, null));
+        OrderExpiryIndex index = new OrderExpiryIndex(orders);
+        assertThat(index.size()).isEqualTo(100);
+
+        assertThat(index.getExpiring(1100, 1300)).hasSize(20)
+            .extracting(Order::getEndDate).isSorted();
+        assertThat(index.getExpiring(1300, 1300)).isEmpty();
+
+        // Move an order out of the range, then remove another
+        Order moved = index.get(1);
+        moved.setEndDate(5000);
+        assertThat(index.put(moved)).isTrue();
+        assertThat(index.remove(11).getId()).isEqualTo(11);
+        assertThat(index.remove(11)).isNull();
+        assertThat(index.getExpiring(1100, 1300)).hasSize(18)
+            .extracting(Order::getId).doesNotContain(1, 11);
+        assertThat(index.getExpiring(4000, Long.MAX_VALUE)).containsExactly(moved);
+
+        moved.setEndDate(null);
+        assertThat(index.put(moved)).isFalse();
+        assertThat(index.size()).isEqualTo(98);
+    }
+
+    /**
+     * Test iterating over and draining the due orders
+     */
+    @Test
+    @DisplayName("Test OrderExpiryIndex due orders")
+    public void drainsDueOrders() {
+        OrderExpiryIndex index = new OrderExpiryIndex();
+        for (int i = 1; i <= 10; i++) {
+            index.put(createOrder(i, 100 * i));
+        }
+        Iterator<Order> due = index.due(300);
+        assertThat(due.next().getId()).isEqualTo(1);
+        due.remove();
+        assertThat(due.next().getId()).isEqualTo(2);
+        assertThat(due.next().getId()).isEqualTo(3);
+        assertThat(due.hasNext()).isFalse();
+        assertThat(index.get(1)).isNull();
+
+        assertThat(index.pollDue(199)).isNull();
+        List<Integer> drained = new ArrayList<>();
+        assertThat(index.drainDue(500, order -> drained.add(order.getId()))).isEqualTo(4);
+        assertThat(drained).containsExactly(2, 3, 4, 5);
+        assertThat(index.size()).isEqualTo(5);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.index;
+
+import org.dataone.bookkeeper.api.Order;
+import org.dataone.bookkeeper.api.OrderList;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test the series index
+ */
+class SeriesIndexTest {
+
+    /**
+     * Create a one-year order in a series
+     */
+    private static Order createOrder(int id, String seriesId, int startDate) {
+        Order order = new Order();
+        order.setId(id);
+        order.setObject("order");
+        order.setSeriesId(seriesId);
+        order.setStartDate(startDate);
+        order.setEndDate(startDate + 1000);
+        return order;
+    }
+
+    /**
+     * Test current and next pending lookups over a rebuilt chain, moving forward and back
+     */
+    @Test
+    @DisplayName("Test SeriesIndex current and pending orders")
+    public void findsCurrentAndPendingOrders() {
+        List<Order> orders = new ArrayList<>();
+        orders.add(createOrder(3, "series-1", 3000));
+        orders.add(createOrder(1, "series-1", 1000));
+        orders.add(createOrder(2, "series-1", 2000));
+        orders.add(createOrder(4, "series-2", 1000));
+        SeriesIndex index = new SeriesIndex(new OrderList(orders));
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.getOrders("series-1")).extracting(Order::getId).containsExactly(1, 2, 3);
+        assertThat(index.getCurrent("series-1", 500)).isNull();
+        assertThat(index.getNextPending("series-1", 500).getId()).isEqualTo(1);
+        assertThat(index.getCurrent("series-1", 2500).getId()).isEqualTo(2);
+        assertThat(index.getNextPending("series-1", 2500).getId()).isEqualTo(3);
+        assertThat(index.getCurrent("series-1", 3999).getId()).isEqualTo(3);
+        assertThat(index.getNextPending("series-1", 3999)).isNull();
+        assertThat(index.getCurrent("series-1", 4000)).isNull();
+        assertThat(index.getCurrent("series-1", 1000).getId()).isEqualTo(1);
+        assertThat(index.getCurrent("series-3", 1000)).isNull();
+    }
+
+    /**
+     * Test inserting, moving and removing orders in chains
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test SeriesIndex updates")
+    public void updatesChains() throws Exception {
+        SeriesIndex index = new SeriesIndex();
+        index.put(createOrder(1, "series-1", 1000));
+        index.put(createOrder(3, "series-1", 3000));
+        Order renewal = createOrder(2, "series-1", 2000);
+        index.put(renewal);
+        assertThat(index.getOrders("series-1")).extracting(Order::getId).containsExactly(1, 2, 3);
+
+        // Reschedule the renewal, then move it to another series
+        renewal.setStartDate(4000);
+        renewal.setEndDate(5000);
+        index.put(renewal);
+        assertThat(index.getOrders("series-1")).extracting(Order::getId).containsExactly(1, 3, 2);
+        renewal.setSeriesId("series-2");
+        index.put(renewal);
+        assertThat(index.getOrders("series-1")).extracting(Order::getId).containsExactly(1, 3);
+        assertThat(index.getCurrent("series-2", 4500)).isSameAs(renewal);
+
+        assertThat(index.remove(2)).isTrue();
+        assertThat(index.remove(2)).isFalse();
+        assertThat(index.size()).isEqualTo(1);
+
+        // Concurrent puts and removes of an order leave its chain and id entries in step
+        Order order = createOrder(5, "series-3", 1000);
+        for (int round = 0; round < 200; round++) {
+            Thread putter = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    index.put(order);
+                }
+            });
+            Thread remover = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    index.remove(5);
+                }
+            });
+            putter.start();
+            remover.start();
+            putter.join();
+            remover.join();
+            boolean chained = index.getOrders("series-3").contains(order);
+            assertThat(index.remove(5)).isEqualTo(chained);
+        }
+
+        // Puts during rebuilds land in the old or the rebuilt index, never half in each
+        List<Order> rebuilt = new ArrayList<>();
+        rebuilt.add(createOrder(6, "series-4", 1000));
+        for (int round = 0; round < 200; round++) {
+            Thread putter = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    index.put(order);
+                }
+            });
+            Thread rebuilder = new Thread(() -> {
+                for (int i = 0; i < 10; i++) {
+                    index.rebuild(rebuilt);
+                }
+            });
+            putter.start();
+            rebuilder.start();
+            putter.join();
+            rebuilder.join();
+            boolean chained = index.getOrders("series-3").contains(order);
+            assertThat(index.remove(5)).isEqualTo(chained);
+            assertThat(index.getOrders("series-3")).isEmpty();
+        }
+    }
+}
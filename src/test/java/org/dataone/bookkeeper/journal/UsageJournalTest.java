@@ -0,0 +1,207 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.journal;
+
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.quota.QuotaLedger;
+import org.dataone.bookkeeper.quota.QuotaSnapshot;
+import org.dataone.bookkeeper.quota.UsageContributions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test the usage journal on local disk
+ */
+class UsageJournalTest {
+
+    /**
+     * Test appending across segments from several threads, reopening, and replaying into a ledger
+     * @param directory the journal directory
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test UsageJournal appends, rolls and replays")
+    public void appendsAndReplays(@TempDir Path directory) throws Exception {
+        try (UsageJournal journal = new UsageJournal(directory, 4096)) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                final int quotaId = thread % 2 + 1;
+                final int instance = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        journal.appendAndSync(usage(quotaId, instance + ":" + i, 1.0, "active"));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            assertThat(journal.getDurableSequence()).isEqualTo(400);
+            assertThat(journal.getSyncCount()).isBetween(1L, 400L);
+            assertThat(journal.getSegmentCount()).isGreaterThan(1);
+        }
+
+        try (UsageJournal journal = new UsageJournal(directory, 4096)) {
+            assertThat(journal.getSequence()).isEqualTo(400);
+            // An update replaces the contribution of the earlier record for the instance
+            journal.append(usage(1, "0:0", 1.0, "inactive"));
+            journal.append(usage(2, "1:0", 3.0, "active"));
+            // A usage without a quantity counts as 0
+            Usage unmeasured = usage(2, "1:1", 1.0, "active");
+            unmeasured.setQuantity(null);
+            journal.append(unmeasured);
+            journal.sync();
+
+            QuotaLedger ledger = new QuotaLedger();
+            ledger.register(quota(1));
+            ledger.register(quota(2));
+            assertThat(journal.replayInto(ledger)).isEqualTo(403);
+            assertThat(ledger.getTotalUsage(1)).isEqualTo(199.0);
+            assertThat(ledger.getTotalUsage(2)).isEqualTo(201.0);
+
+            List<Usage> tail = new ArrayList<>();
+            assertThat(journal.replay(399, tail::add)).isEqualTo(4);
+            assertThat(tail.get(2).getQuantity()).isEqualTo(3.0);
+
+            int segments = journal.getSegmentCount();
+            assertThat(journal.deleteBefore(399)).isGreaterThan(0);
+            assertThat(journal.getSegmentCount()).isLessThan(segments);
+            assertThat(journal.replay(399, usage -> { })).isEqualTo(4);
+        }
+    }
+
+    /**
+     * Test that a torn record at the end of the journal is discarded on recovery
+     * @param directory the journal directory
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test UsageJournal recovers from a torn record")
+    public void recoversFromTornRecord(@TempDir Path directory) throws Exception {
+        try (UsageJournal journal = new UsageJournal(directory, 4096)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(usage(1, "urn:uuid:" + i, 1.0, "active"));
+            }
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.collect(Collectors.toList()).get(0);
+        }
+        // Flip a byte in the last record
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            int offset = UsageJournal.HEADER_SIZE;
+            ByteBuffer length = ByteBuffer.allocate(4);
+            for (int i = 0; i < 9; i++) {
+                length.clear();
+                channel.read(length, offset);
+                offset += UsageJournal.RECORD_HEADER_SIZE + length.getInt(0);
+            }
+            channel.write(ByteBuffer.wrap(new byte[] {0x7f}), offset + UsageJournal.RECORD_HEADER_SIZE + 3);
+        }
+
+        try (UsageJournal journal = new UsageJournal(directory, 4096)) {
+            assertThat(journal.getSequence()).isEqualTo(9);
+            assertThat(journal.append(usage(1, "urn:uuid:new", 1.0, "active"))).isEqualTo(9);
+        }
+        try (UsageJournal journal = new UsageJournal(directory, 4096)) {
+            List<Usage> usages = new ArrayList<>();
+            assertThat(journal.replay(0, usages::add)).isEqualTo(10);
+            assertThat(usages.get(9).getInstanceId()).isEqualTo("urn:uuid:new");
+        }
+    }
+
+    /**
+     * Test that records after a snapshot checkpoint replace the contributions of records
+     * before it, as a full replay does
+     * @param directory the journal and snapshot directory
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test UsageJournal replays from a restored snapshot")
+    public void replaysFromSnapshot(@TempDir Path directory) throws Exception {
+        final Path file = directory.resolve("quotas.snapshot");
+        try (UsageJournal journal = new UsageJournal(directory.resolve("journal"), 4096)) {
+            journal.append(usage(1, "urn:uuid:1", 5.0, "active"));
+            journal.append(usage(1, "urn:uuid:2", 2.0, "active"));
+            for (int i = 3; i < 100; i++) {
+                journal.append(usage(1, "urn:uuid:" + i, 4.0, "active"));
+                journal.append(usage(1, "urn:uuid:" + i, 4.0, "inactive"));
+            }
+            journal.sync();
+            final QuotaLedger ledger = new QuotaLedger();
+            ledger.register(quota(1));
+            final UsageContributions contributions = new UsageContributions();
+            journal.replayInto(ledger, 0, contributions);
+            QuotaSnapshot.of(ledger, contributions, journal.getSequence()).write(file);
+
+            // Deactivate one usage, resend another and reactivate a third after the checkpoint
+            journal.append(usage(1, "urn:uuid:1", 5.0, "inactive"));
+            journal.append(usage(1, "urn:uuid:2", 2.0, "active"));
+            journal.append(usage(1, "urn:uuid:3", 4.0, "active"));
+            journal.sync();
+
+            final QuotaLedger replayed = new QuotaLedger();
+            replayed.register(quota(1));
+            journal.replayInto(replayed);
+            assertThat(replayed.getTotalUsage(1)).isEqualTo(6.0);
+
+            // The snapshot keeps only the contributions of the active instances
+            final QuotaSnapshot snapshot = QuotaSnapshot.read(file);
+            assertThat(snapshot.getContributions().size()).isEqualTo(2);
+            final QuotaLedger restored = new QuotaLedger();
+            snapshot.restore(restored);
+            assertThat(journal.replayInto(restored, snapshot.getCheckpoint(),
+                snapshot.getContributions())).isEqualTo(3);
+            assertThat(restored.getTotalUsage(1)).isEqualTo(6.0);
+        }
+    }
+
+    private static Usage usage(int quotaId, String instanceId, double quantity, String status) {
+        return new Usage(null, "usage", quotaId, instanceId, quantity, status, "urn:node:testNode");
+    }
+
+    private static Quota quota(int id) {
+        return new Quota(id, "quota", "storage", 1000.0, 2000.0, null, "megabyte",
+            null, "http://orcid.org/0000-0002-8121-2341", null);
+    }
+}
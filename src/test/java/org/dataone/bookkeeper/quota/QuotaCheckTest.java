@@ -0,0 +1,76 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.quota;
+
+import org.dataone.bookkeeper.api.Quota;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test the quota admission checks
+ */
+class QuotaCheckTest {
+
+    /**
+     * Test admission against the soft and hard limits
+     */
+    @Test
+    @DisplayName("Test QuotaCheck admission")
+    public void admitsWithinLimits() {
+        final Quota quota = new Quota(1, "quota", "storage", 100.0, 150.0, null, "megabyte",
+            null, null, null);
+
+        assertThat(QuotaCheck.admit(quota, 100.0)).isEqualTo(Admission.WITHIN);
+        assertThat(QuotaCheck.admit(quota, 100.5)).isEqualTo(Admission.OVER_SOFT);
+        assertThat(QuotaCheck.admit(quota, 151.0)).isEqualTo(Admission.OVER_HARD);
+        assertThat(Admission.OVER_SOFT.isAdmitted()).isTrue();
+        assertThat(Admission.OVER_HARD.isAdmitted()).isFalse();
+
+        // The check does not set the missing total usage
+        final QuotaView view = QuotaView.of(quota);
+        assertThat(quota.getTotalUsage()).isEqualTo(0.0);
+        assertThat(view.withTotalUsage(60.0).admit(50.0)).isEqualTo(Admission.OVER_SOFT);
+
+        // Missing limits are unlimited
+        quota.setHardLimit(null);
+        assertThat(QuotaCheck.admit(quota, 1.0e9)).isEqualTo(Admission.OVER_SOFT);
+    }
+
+    /**
+     * Test admission against a ledger's current usage
+     */
+    @Test
+    @DisplayName("Test QuotaLedger admission")
+    public void admitsAgainstLedger() {
+        final QuotaLedger ledger = new QuotaLedger();
+        ledger.register(new Quota(1, "quota", "portal", 3.0, 3.0, 2.0, "portal",
+            null, null, null));
+
+        assertThat(ledger.admit(1, 1.0)).isEqualTo(Admission.WITHIN);
+        ledger.record(1, 1.0);
+        assertThat(ledger.admit(1, 1.0)).isEqualTo(Admission.OVER_HARD);
+        assertThat(ledger.view(1).getRemaining()).isEqualTo(0.0);
+        assertThat(ledger.view(2)).isNull();
+    }
+}
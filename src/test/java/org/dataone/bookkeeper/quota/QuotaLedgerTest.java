@@ -0,0 +1,162 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.quota;
+
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.api.Usage;
+import org.dataone.bookkeeper.api.UsageStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test the quota ledger
+ */
+class QuotaLedgerTest {
+    private static final String SUBJECT = "http://orcid.org/0000-0002-8121-2341";
+
+    /**
+     * Create a storage quota
+     */
+    private static Quota createQuota(int id, String subject, Double totalUsage) {
+        return new Quota(id, "quota", "storage", 1000.0, 2000.0, totalUsage, "megabyte",
+            null, subject, null);
+    }
+
+    /**
+     * Test applying usages and status transitions
+     */
+    @Test
+    @DisplayName("Test QuotaLedger usage accounting")
+    public void appliesUsages() {
+        final QuotaLedger ledger = new QuotaLedger();
+        ledger.register(createQuota(1, SUBJECT, 10.0));
+        ledger.register(createQuota(2, SUBJECT, null));
+        ledger.register(createQuota(3, "CN=other,DC=dataone,DC=org", null));
+
+        final Usage usage = new Usage(null, "usage", 1, "urn:uuid:1", 5.0, "active", "urn:node:testNode");
+        assertThat(ledger.apply(usage)).isTrue();
+        assertThat(ledger.apply(new Usage(null, "usage", 1, "urn:uuid:2", 7.0, "inactive",
+            "urn:node:testNode"))).isTrue();
+        assertThat(ledger.apply(new Usage(null, "usage", 9, "urn:uuid:3", 7.0, "active",
+            "urn:node:testNode"))).isFalse();
+        assertThat(ledger.getTotalUsage(1)).isEqualTo(15.0);
+
+        // Deactivate, reactivate, and repeat a transition
+        ledger.transition(usage, new UsageStatus("usagestatus", "inactive"));
+        ledger.transition(usage, new UsageStatus("usagestatus", "inactive"));
+        assertThat(ledger.getTotalUsage(1)).isEqualTo(10.0);
+        assertThat(usage.getStatus()).isEqualTo("inactive");
+        ledger.transition(usage, new UsageStatus("usagestatus", "active"));
+        assertThat(ledger.getQuota(1).getTotalUsage()).isEqualTo(15.0);
+
+        assertThat(ledger.getQuotas(SUBJECT)).extracting(Quota::getId).containsExactlyInAnyOrder(1, 2);
+        assertThat(ledger.remove(2).getId()).isEqualTo(2);
+        assertThat(ledger.getQuotas(SUBJECT)).extracting(Quota::getId).containsExactly(1);
+        assertThat(ledger.getQuotas("unknown")).isEmpty();
+
+        // A usage without a quantity is rejected before it is recorded as applied
+        final QuotaLedger dedupeLedger = new QuotaLedger(new UsageDedupeIndex(16));
+        dedupeLedger.register(createQuota(1, SUBJECT, null));
+        final Usage missing = new Usage(null, "usage", 1, "urn:uuid:4", null, "active", "urn:node:testNode");
+        assertThatThrownBy(() -> dedupeLedger.apply(missing)).isInstanceOf(IllegalArgumentException.class);
+        missing.setQuantity(3.0);
+        assertThat(dedupeLedger.apply(missing)).isTrue();
+        assertThat(dedupeLedger.getTotalUsage(1)).isEqualTo(3.0);
+    }
+
+    /**
+     * Test concurrent usage updates to the same quotas
+     */
+    @Test
+    @DisplayName("Test QuotaLedger concurrent updates")
+    public void appliesConcurrentUpdates() throws Exception {
+        final QuotaLedger ledger = new QuotaLedger();
+        ledger.register(createQuota(1, SUBJECT, null));
+        ledger.register(createQuota(2, SUBJECT, null));
+        final int threads = 8;
+        final int updates = 100000;
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < updates; i++) {
+                        ledger.record(1 + i % 2, 1.0);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(ledger.getTotalUsage(1) + ledger.getTotalUsage(2))
+            .isEqualTo((double) threads * updates);
+
+        // Concurrent deactivations of one usage are counted once, and quotas re-registered
+        // while others of the subject are removed stay indexed
+        final ExecutorService transitions = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 1000; round++) {
+                final Usage usage = new Usage(null, "usage", 1, "urn:uuid:" + round, 1.0, "active",
+                    "urn:node:testNode");
+                ledger.apply(usage);
+                final int other = 100 + round;
+                final String subject = "subject" + round;
+                final List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final int thread = t;
+                    futures.add(transitions.submit(() -> {
+                        if ( thread == 0 ) {
+                            ledger.register(createQuota(other, subject, null));
+                        } else if ( thread == 1 ) {
+                            ledger.register(createQuota(other + 1000, subject, null));
+                            ledger.remove(other + 1000);
+                        } else {
+                            ledger.transition(usage, new UsageStatus("usagestatus", "inactive"));
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                assertThat(ledger.getQuotas(subject)).extracting(Quota::getId)
+                    .containsExactly(other);
+            }
+        } finally {
+            transitions.shutdown();
+        }
+        assertThat(ledger.getTotalUsage(1) + ledger.getTotalUsage(2))
+            .isEqualTo((double) threads * updates);
+    }
+}
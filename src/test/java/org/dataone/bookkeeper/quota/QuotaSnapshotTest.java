@@ -0,0 +1,120 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.quota;
+
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.api.Usage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test saving and restoring quota snapshots
+ */
+class QuotaSnapshotTest {
+    private static final String SUBJECT = "http://orcid.org/0000-0002-8121-2341";
+
+    /**
+     * Test that a restored ledger has the quotas and totals of the snapshotted one
+     * @param directory the snapshot directory
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test QuotaSnapshot round trip")
+    public void restoresLedger(@TempDir Path directory) throws Exception {
+        final QuotaLedger ledger = new QuotaLedger();
+        ledger.register(new Quota(1, "quota", "storage", 1000.0, 2000.0, 10.0, "megabyte",
+            7, SUBJECT, "Héllo portal"));
+        ledger.register(new Quota(2, "quota", "portal", 3.0, 3.0, 0.0, "portal",
+            null, SUBJECT, null));
+        ledger.register(new Quota(-3, "quota", "storage", 1.0, 1.0, 0.0, "megabyte",
+            null, null, null));
+        for (int i = 0; i < 10; i++) {
+            ledger.apply(new Usage(null, "usage", 1, "urn:uuid:" + i, 1.5, "active", "urn:node:testNode"));
+        }
+        ledger.apply(new Usage(null, "usage", 2, "urn:uuid:portal", 1.0, "active", "urn:node:testNode"));
+
+        final Path file = directory.resolve("quotas.snapshot");
+        QuotaSnapshot.of(ledger, 11).write(file);
+        // Replacing the snapshot leaves no temporary files behind
+        QuotaSnapshot.of(ledger, 11).write(file);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+
+        final QuotaSnapshot snapshot = QuotaSnapshot.read(file);
+        assertThat(snapshot.getCheckpoint()).isEqualTo(11);
+        final QuotaLedger restored = new QuotaLedger();
+        assertThat(snapshot.restore(restored)).isEqualTo(3);
+        assertThat(restored.getTotalUsage(1)).isEqualTo(25.0);
+        assertThat(restored.getTotalUsage(2)).isEqualTo(1.0);
+        assertThat(restored.getQuotas()).containsExactlyInAnyOrderElementsOf(ledger.getQuotas());
+        assertThat(restored.getQuotas(SUBJECT)).hasSize(2);
+
+        // Non-zero contributions and an unset total usage survive the round trip
+        final UsageContributions contributions = new UsageContributions();
+        contributions.put(1, "urn:uuid:1", 1.5);
+        contributions.put(-3, "urn:uuid:1", 0.0);
+        final Quota unused = new Quota(4, "quota", "portal", 1.0, 1.0, null, "portal",
+            null, null, null);
+        new QuotaSnapshot(Collections.singletonList(unused), contributions, 11).write(file);
+        final QuotaSnapshot withContributions = QuotaSnapshot.read(file);
+        assertThat(withContributions.getQuotas().get(0).hasTotalUsage()).isFalse();
+        assertThat(withContributions.getContributions().size()).isEqualTo(1);
+        assertThat(withContributions.getContributions().get(1, "urn:uuid:1")).isEqualTo(1.5);
+        assertThat(withContributions.getContributions().get(-3, "urn:uuid:1")).isNull();
+    }
+
+    /**
+     * Test that files that are not snapshots, or fail their checksum, are rejected
+     * @param directory the snapshot directory
+     * @throws Exception any test exception
+     */
+    @Test
+    @DisplayName("Test QuotaSnapshot rejects corrupt files")
+    public void rejectsCorruptFiles(@TempDir Path directory) throws Exception {
+        final QuotaLedger ledger = new QuotaLedger();
+        ledger.register(new Quota(1, "quota", "storage", 1000.0, 2000.0, 10.0, "megabyte",
+            null, SUBJECT, null));
+        final Path file = directory.resolve("quotas.snapshot");
+        QuotaSnapshot.of(ledger, 0).write(file);
+
+        final byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        assertThatThrownBy(() -> QuotaSnapshot.read(file))
+            .isInstanceOf(IOException.class).hasMessageContaining("corrupt");
+
+        Files.write(file, "{\"quotas\": []}".getBytes("UTF-8"));
+        assertThatThrownBy(() -> QuotaSnapshot.read(file))
+            .isInstanceOf(IOException.class).hasMessageContaining("Not a quota snapshot");
+    }
+}
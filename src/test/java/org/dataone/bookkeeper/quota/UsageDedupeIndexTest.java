@@ -0,0 +1,76 @@
+/*
+ * This work was created by participants in the DataONE project, and is
+ * jointly copyrighted by participating institutions in DataONE. For
+ * more information on DataONE, see our web site at http://dataone.org.
+ *
+ *   Copyright 2020
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.dataone.bookkeeper.quota;
+
+import org.dataone.bookkeeper.api.Quota;
+import org.dataone.bookkeeper.api.Usage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test the usage dedupe index
+ */
+class UsageDedupeIndexTest {
+
+    /**
+     * Test recording pairs with and without a Bloom filter, past the initial table sizes
+     */
+    @Test
+    @DisplayName("Test UsageDedupeIndex detects duplicates")
+    public void detectsDuplicates() {
+        UsageDedupeIndex[] indexes = {
+            new UsageDedupeIndex(16),
+            new UsageDedupeIndex(16, new BloomFilter(1000, 0.01))
+        };
+        for (UsageDedupeIndex index : indexes) {
+            for (int i = 0; i < 5000; i++) {
+                assertThat(index.add(i % 7, "urn:uuid:" + i)).isTrue();
+            }
+            for (int i = 0; i < 5000; i++) {
+                assertThat(index.add(i % 7, "urn:uuid:" + i)).isFalse();
+                assertThat(index.contains(i % 7, "urn:uuid:" + i)).isTrue();
+                assertThat(index.contains(i % 7 + 1, "urn:uuid:" + i)).isFalse();
+            }
+            assertThat(index.size()).isEqualTo(5000);
+        }
+    }
+
+    /**
+     * Test that a ledger with a dedupe index applies a repeated usage once
+     */
+    @Test
+    @DisplayName("Test QuotaLedger ignores duplicate usages")
+    public void ledgerIgnoresDuplicates() {
+        QuotaLedger ledger = new QuotaLedger(new UsageDedupeIndex(100));
+        ledger.register(new Quota(1, "quota", "storage", 1000.0, 2000.0, null, "megabyte",
+            null, "http://orcid.org/0000-0002-8121-2341", null));
+
+        Usage usage = new Usage(null, "usage", 1, "urn:uuid:1", 5.0, "active", "urn:node:testNode");
+        assertThat(ledger.apply(usage)).isTrue();
+        assertThat(ledger.apply(usage)).isFalse();
+        assertThat(ledger.apply(new Usage(null, "usage", 1, null, 2.0, "active",
+            "urn:node:testNode"))).isTrue();
+        assertThat(ledger.getTotalUsage(1)).isEqualTo(7.0);
+    }
+}